@@ -70,11 +70,65 @@ resource "aws_iam_policy" "ecs_task_dynamodb" {
         Effect = "Allow"
         Action = [
           "dynamodb:PutItem",
+          "dynamodb:BatchWriteItem",
           "dynamodb:GetItem",
           "dynamodb:UpdateItem",
-          "dynamodb:Scan"
+          "dynamodb:Scan",
+          "dynamodb:Query",
+          "dynamodb:DescribeTable"
         ]
-        Resource = aws_dynamodb_table.workflow.arn
+        Resource = [
+          aws_dynamodb_table.workflow.arn,
+          "${aws_dynamodb_table.workflow.arn}/index/*"
+        ]
+      },
+      {
+        // API status view follows the table's change stream
+        Effect = "Allow"
+        Action = [
+          "dynamodb:DescribeStream",
+          "dynamodb:GetShardIterator",
+          "dynamodb:GetRecords"
+        ]
+        Resource = "${aws_dynamodb_table.workflow.arn}/stream/*"
+      },
+      {
+        // Account balances and posting markers (worker ledger)
+        Effect = "Allow"
+        Action = [
+          "dynamodb:GetItem",
+          "dynamodb:PutItem",
+          "dynamodb:UpdateItem"
+        ]
+        Resource = aws_dynamodb_table.ledger.arn
+      },
+      {
+        // Customers and accounts (worker registry)
+        Effect = "Allow"
+        Action = [
+          "dynamodb:GetItem",
+          "dynamodb:PutItem"
+        ]
+        Resource = aws_dynamodb_table.registry.arn
+      },
+      {
+        // Payout duplicate claims (worker)
+        Effect = "Allow"
+        Action = [
+          "dynamodb:PutItem",
+          "dynamodb:DeleteItem"
+        ]
+        Resource = aws_dynamodb_table.payout_claims.arn
+      },
+      {
+        // Idempotency-Key claims (API)
+        Effect = "Allow"
+        Action = [
+          "dynamodb:PutItem",
+          "dynamodb:UpdateItem",
+          "dynamodb:DeleteItem"
+        ]
+        Resource = aws_dynamodb_table.idempotency.arn
       }
     ]
   })
@@ -121,6 +175,7 @@ data "aws_iam_policy_document" "ecs_task_policy" {
   statement {
     actions = [
       "dynamodb:PutItem",
+      "dynamodb:BatchWriteItem",
       "dynamodb:UpdateItem",
       "dynamodb:GetItem",
       "events:PutEvents"
@@ -249,7 +304,10 @@ resource "aws_ecs_task_definition" "api" {
       }
       environment = [
         { name = "DDB_TABLE", value = aws_dynamodb_table.workflow.name },
+        { name = "IDEMPOTENCY_TABLE", value = aws_dynamodb_table.idempotency.name },
         { name = "EVENT_BUS", value = aws_cloudwatch_event_bus.workflow.name },
+        // Every task with the view polls every stream shard; Streams throttles above ~2 readers per shard
+        { name = "WORKFLOW_VIEW_CHANGE_FEED", value = var.api_desired_count <= 2 ? "dynamodb-streams" : "none" },
         { "name": "AWS_REGION", "value": var.aws_region }
       ]
     }
@@ -261,7 +319,7 @@ resource "aws_ecs_service" "api" {
   name            = "${var.cluster_name}-api"
   cluster         = aws_ecs_cluster.solance.id
   task_definition = aws_ecs_task_definition.api.arn
-  desired_count   = 2
+  desired_count   = var.api_desired_count
   launch_type     = "FARGATE"
 
   network_configuration {
@@ -303,6 +361,9 @@ resource "aws_ecs_task_definition" "worker" {
       }
       environment = [
         { name = "DDB_TABLE", value = aws_dynamodb_table.workflow.name },
+        { name = "LEDGER_TABLE", value = aws_dynamodb_table.ledger.name },
+        { name = "REGISTRY_TABLE", value = aws_dynamodb_table.registry.name },
+        { name = "PAYOUT_CLAIMS_TABLE", value = aws_dynamodb_table.payout_claims.name },
         { name = "EVENT_BUS", value = aws_cloudwatch_event_bus.workflow.name },
         { name: "AWS_REGION", "value": var.aws_region },
         { name  = "SQS_QUEUE", value = aws_sqs_queue.workflow.name}
@@ -331,17 +392,146 @@ resource "aws_dynamodb_table" "workflow" {
   billing_mode = "PAY_PER_REQUEST"
   hash_key     = "eventId"
 
+  // Feeds the API's in-memory status view
+  stream_enabled   = true
+  stream_view_type = "NEW_IMAGE"
+
   attribute {
     name = "eventId"
     type = "S"
   }
+
+  attribute {
+    name = "status"
+    type = "S"
+  }
+
+  attribute {
+    name = "type"
+    type = "S"
+  }
+
+  attribute {
+    name = "outboxShard"
+    type = "S"
+  }
+
+  attribute {
+    name = "outboxAt"
+    type = "N"
+  }
+
+  // Ops queries: "all FAILED payouts" etc. without scanning the table
+  global_secondary_index {
+    name            = "status-type-index"
+    hash_key        = "status"
+    range_key       = "type"
+    projection_type = "KEYS_ONLY"
+  }
+
+  global_secondary_index {
+    name            = "type-status-index"
+    hash_key        = "type"
+    range_key       = "status"
+    projection_type = "KEYS_ONLY"
+  }
+
+  // Sparse: only events still waiting in the outbox carry these attributes
+  global_secondary_index {
+    name               = "outbox-index"
+    hash_key           = "outboxShard"
+    range_key          = "outboxAt"
+    projection_type    = "INCLUDE"
+    non_key_attributes = ["type", "outboxBody", "receivedAt"]
+  }
+}
+
+// Account balances in minor units, one item per account, updated under a version check,
+// and a marker per applied posting ("posting#<eventId>") written in the same transaction
+resource "aws_dynamodb_table" "ledger" {
+  name         = "solance-workflow-ledger"
+  billing_mode = "PAY_PER_REQUEST"
+  hash_key     = "accountId"
+
+  attribute {
+    name = "accountId"
+    type = "S"
+  }
+}
+
+// Customers ("customer#<userId>") and accounts ("account#<accountId>"), written once by the worker
+resource "aws_dynamodb_table" "registry" {
+  name         = "solance-workflow-registry"
+  billing_mode = "PAY_PER_REQUEST"
+  hash_key     = "registryKey"
+
+  attribute {
+    name = "registryKey"
+    type = "S"
+  }
+}
+
+// Payment instruction fingerprint -> eventId that paid it, for the duplicate window; reaped by TTL
+resource "aws_dynamodb_table" "payout_claims" {
+  name         = "solance-workflow-payout-claims"
+  billing_mode = "PAY_PER_REQUEST"
+  hash_key     = "payoutKey"
+
+  attribute {
+    name = "payoutKey"
+    type = "S"
+  }
+
+  ttl {
+    attribute_name = "expiresAt"
+    enabled        = true
+  }
+}
+
+// Idempotency-Key -> eventId claims; expired claims are reaped by TTL
+resource "aws_dynamodb_table" "idempotency" {
+  name         = "solance-workflow-idempotency"
+  billing_mode = "PAY_PER_REQUEST"
+  hash_key     = "idempotencyKey"
+
+  attribute {
+    name = "idempotencyKey"
+    type = "S"
+  }
+
+  ttl {
+    attribute_name = "expiresAt"
+    enabled        = true
+  }
+}
+
+# 1. Create the SQS queue, with a dead-letter queue for messages the worker gives up on
+resource "aws_sqs_queue" "workflow_dlq" {
+  name                      = "solance-workflow-queue-dlq"
+  message_retention_seconds = 1209600  # 14 days
 }
 
-# 1. Create the SQS queue
 resource "aws_sqs_queue" "workflow" {
   name                       = "solance-workflow-queue"
+  # The worker extends this while a message is in flight (workflow.worker.visibility.*); keep them in sync
   visibility_timeout_seconds = 60
   message_retention_seconds  = 1209600  # 14 days
+
+  # Backstop only: the worker dead-letters after workflow.worker.retry.max-attempts (5)
+  # itself, with the reason attached; this catches messages that crash it instead
+  redrive_policy = jsonencode({
+    deadLetterTargetArn = aws_sqs_queue.workflow_dlq.arn
+    maxReceiveCount     = 8
+  })
+}
+
+resource "aws_sqs_queue_redrive_allow_policy" "workflow_dlq" {
+  queue_url = aws_sqs_queue.workflow_dlq.id
+
+  redrive_allow_policy = jsonencode({
+    redrivePermission = "byQueue"
+    sourceQueueArns   = [aws_sqs_queue.workflow.arn]
+  })
 }
 
 # 2. Allow EventBridge to send to it
@@ -412,10 +602,26 @@ resource "aws_iam_policy" "worker_sqs_policy" {
         Action = [
           "sqs:ReceiveMessage",
           "sqs:DeleteMessage",
+          "sqs:DeleteMessageBatch",
+          "sqs:ChangeMessageVisibility",
+          "sqs:ChangeMessageVisibilityBatch",
           "sqs:GetQueueAttributes",
           "sqs:GetQueueUrl"
         ]
         Resource = aws_sqs_queue.workflow.arn
+      },
+      {
+        # Quarantine (worker) and redrive (API admin endpoint)
+        Effect = "Allow"
+        Action = [
+          "sqs:SendMessage",
+          "sqs:ReceiveMessage",
+          "sqs:DeleteMessage",
+          "sqs:DeleteMessageBatch",
+          "sqs:GetQueueAttributes",
+          "sqs:GetQueueUrl"
+        ]
+        Resource = aws_sqs_queue.workflow_dlq.arn
       }
     ]
   })
@@ -23,3 +23,9 @@ variable "worker_image" {
   type        = string
   default     = "472842289688.dkr.ecr.eu-west-1.amazonaws.com/solance-worker:latest"
 }
+
+variable "api_desired_count" {
+  description = "Number of API tasks; the stream-fed status view is only enabled while this is 2 or less"
+  type        = number
+  default     = 2
+}
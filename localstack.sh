@@ -9,14 +9,80 @@ ENDP="--endpoint-url=http://localhost:4566"
 # 1) DynamoDB
 aws dynamodb create-table \
   --table-name solance-workflow \
-  --attribute-definitions AttributeName=eventId,AttributeType=S \
+  --attribute-definitions \
+      AttributeName=eventId,AttributeType=S \
+      AttributeName=status,AttributeType=S \
+      AttributeName=type,AttributeType=S \
+      AttributeName=outboxShard,AttributeType=S \
+      AttributeName=outboxAt,AttributeType=N \
   --key-schema AttributeName=eventId,KeyType=HASH \
+  --global-secondary-indexes '[
+    {"IndexName":"status-type-index",
+     "KeySchema":[{"AttributeName":"status","KeyType":"HASH"},{"AttributeName":"type","KeyType":"RANGE"}],
+     "Projection":{"ProjectionType":"KEYS_ONLY"}},
+    {"IndexName":"type-status-index",
+     "KeySchema":[{"AttributeName":"type","KeyType":"HASH"},{"AttributeName":"status","KeyType":"RANGE"}],
+     "Projection":{"ProjectionType":"KEYS_ONLY"}},
+    {"IndexName":"outbox-index",
+     "KeySchema":[{"AttributeName":"outboxShard","KeyType":"HASH"},{"AttributeName":"outboxAt","KeyType":"RANGE"}],
+     "Projection":{"ProjectionType":"INCLUDE","NonKeyAttributes":["type","outboxBody","receivedAt"]}}
+  ]' \
+  --stream-specification StreamEnabled=true,StreamViewType=NEW_IMAGE \
   --billing-mode PAY_PER_REQUEST \
   $ENDP
 
-# 2) SQS
+aws dynamodb create-table \
+  --table-name solance-workflow-idempotency \
+  --attribute-definitions AttributeName=idempotencyKey,AttributeType=S \
+  --key-schema AttributeName=idempotencyKey,KeyType=HASH \
+  --billing-mode PAY_PER_REQUEST \
+  $ENDP
+
+aws dynamodb update-time-to-live \
+  --table-name solance-workflow-idempotency \
+  --time-to-live-specification Enabled=true,AttributeName=expiresAt \
+  $ENDP
+
+aws dynamodb create-table \
+  --table-name solance-workflow-ledger \
+  --attribute-definitions AttributeName=accountId,AttributeType=S \
+  --key-schema AttributeName=accountId,KeyType=HASH \
+  --billing-mode PAY_PER_REQUEST \
+  $ENDP
+
+aws dynamodb create-table \
+  --table-name solance-workflow-registry \
+  --attribute-definitions AttributeName=registryKey,AttributeType=S \
+  --key-schema AttributeName=registryKey,KeyType=HASH \
+  --billing-mode PAY_PER_REQUEST \
+  $ENDP
+
+aws dynamodb create-table \
+  --table-name solance-workflow-payout-claims \
+  --attribute-definitions AttributeName=payoutKey,AttributeType=S \
+  --key-schema AttributeName=payoutKey,KeyType=HASH \
+  --billing-mode PAY_PER_REQUEST \
+  $ENDP
+
+aws dynamodb update-time-to-live \
+  --table-name solance-workflow-payout-claims \
+  --time-to-live-specification Enabled=true,AttributeName=expiresAt \
+  $ENDP
+
+# 2) SQS, with a dead-letter queue as a backstop for the worker's own retries
+aws sqs create-queue \
+  --queue-name solance-workflow-queue-dlq \
+  $ENDP
+
+DLQ_ARN=$(aws sqs get-queue-attributes \
+  --queue-url http://localhost:4566/000000000000/solance-workflow-queue-dlq \
+  --attribute-names QueueArn \
+  --query "Attributes.QueueArn" --output text \
+  $ENDP)
+
 aws sqs create-queue \
   --queue-name solance-workflow-queue \
+  --attributes '{"RedrivePolicy":"{\"deadLetterTargetArn\":\"'"$DLQ_ARN"'\",\"maxReceiveCount\":\"8\"}"}' \
   $ENDP
 
 # grab the Queue ARN
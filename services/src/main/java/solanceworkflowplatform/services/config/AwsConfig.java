@@ -10,10 +10,18 @@ import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClientBuilder;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClientBuilder;
+import software.amazon.awssdk.services.dynamodb.streams.DynamoDbStreamsClient;
+import software.amazon.awssdk.services.dynamodb.streams.DynamoDbStreamsClientBuilder;
+import software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient;
+import software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClientBuilder;
 import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
 import software.amazon.awssdk.services.eventbridge.EventBridgeClientBuilder;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsAsyncClientBuilder;
 import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.sqs.SqsClientBuilder;
 
@@ -78,6 +86,40 @@ public class AwsConfig {
         return configureEndpoint(b).build();
     }
 
+    @Bean
+    public DynamoDbStreamsClient dynamoDbStreamsClient() {
+        DynamoDbStreamsClientBuilder b = DynamoDbStreamsClient.builder()
+                .region(Region.of(awsRegion))
+                .credentialsProvider(credentialsProvider());
+        return configureEndpoint(b).build();
+    }
+
+    /* ---------- async clients (used on the reactive request path) -------- */
+
+    @Bean
+    public DynamoDbAsyncClient dynamoDbAsyncClient() {
+        DynamoDbAsyncClientBuilder b = DynamoDbAsyncClient.builder()
+                .region(Region.of(awsRegion))
+                .credentialsProvider(credentialsProvider());
+        return configureEndpoint(b).build();
+    }
+
+    @Bean
+    public SqsAsyncClient sqsAsyncClient() {
+        SqsAsyncClientBuilder b = SqsAsyncClient.builder()
+                .region(Region.of(awsRegion))
+                .credentialsProvider(credentialsProvider());
+        return configureEndpoint(b).build();
+    }
+
+    @Bean
+    public EventBridgeAsyncClient eventBridgeAsyncClient() {
+        EventBridgeAsyncClientBuilder b = EventBridgeAsyncClient.builder()
+                .region(Region.of(awsRegion))
+                .credentialsProvider(credentialsProvider());
+        return configureEndpoint(b).build();
+    }
+
     @Bean
     public ObjectMapper objectMapper() {
         // registers JSR310 (java.time) module automatically
@@ -6,7 +6,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
-import org.springframework.scheduling.annotation.Scheduled;
 import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.sqs.model.CreateQueueRequest;
 import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
@@ -23,6 +22,9 @@ public class SqsConfig {
     private final SqsClient sqsClient;
     private final String queueName;
 
+    /** Messages waiting in the queue at the last status check; -1 until the first check succeeds. */
+    private volatile long approximateQueueDepth = -1;
+
     public SqsConfig(
             SqsClient sqsClient,
             @Value("${sqs.queue.workflow.name}") String queueName) {
@@ -69,12 +71,22 @@ public class SqsConfig {
     }
 
     /**
-     * Periodically checks the status of the SQS queue and logs relevant information.
-     * This is useful for debugging SQS issues.
+     * Backlog seen by the last {@link #checkQueueStatus()}, used by the API's
+     * load shedding; -1 if unknown.
+     */
+    public long getApproximateQueueDepth() {
+        return approximateQueueDepth;
+    }
+
+    /**
+     * Checks the status of the SQS queue and logs relevant information.
+     * This is useful for debugging SQS issues, and the backlog it reads feeds
+     * {@link #getApproximateQueueDepth()}. Polled by {@link
+     * solanceworkflowplatform.services.controller.LoadSheddingFilter} while it
+     * sheds on queue depth.
      */
-    @Scheduled(fixedRate = 60000, initialDelay = 10000) // Check every minute, with initial delay of 10 seconds
     public void checkQueueStatus() {
-        logger.info("Checking SQS queue status for queue: {}", queueName);
+        logger.debug("Checking SQS queue status for queue: {}", queueName);
         try {
             // Get the queue URL
             String queueUrl = sqsClient.getQueueUrl(GetQueueUrlRequest.builder()
@@ -91,15 +103,18 @@ public class SqsConfig {
                             QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_DELAYED)
                     .build())
                     .attributes();
+            approximateQueueDepth = Long.parseLong(attributes.getOrDefault(
+                    QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES, "0"));
 
-            logger.info("SQS queue '{}' status - URL: {}, Messages available: {}, Messages in flight: {}, Messages delayed: {}",
+            logger.debug("SQS queue '{}' status - URL: {}, Messages available: {}, Messages in flight: {}, Messages delayed: {}",
                     queueName,
                     queueUrl,
-                    attributes.getOrDefault(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES.toString(), "0"),
-                    attributes.getOrDefault(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE.toString(), "0"),
-                    attributes.getOrDefault(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_DELAYED.toString(), "0"));
+                    attributes.getOrDefault(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES, "0"),
+                    attributes.getOrDefault(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE, "0"),
+                    attributes.getOrDefault(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_DELAYED, "0"));
         } catch (Exception e) {
             logger.warn("Failed to check status of SQS queue '{}': {}", queueName, e.getMessage());
+            approximateQueueDepth = -1;
         }
     }
 }
@@ -0,0 +1,55 @@
+package solanceworkflowplatform.services.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import solanceworkflowplatform.services.model.ExportResult;
+import solanceworkflowplatform.services.model.RedriveResult;
+import solanceworkflowplatform.services.model.WorkflowEventRecord;
+import solanceworkflowplatform.services.service.DeadLetterRedriver;
+import solanceworkflowplatform.services.service.EventExportService;
+
+/**
+ * Operational endpoints that are not part of the client-facing workflow API.
+ */
+@RestController
+@RequestMapping("/api/v1/admin")
+public class AdminController {
+    private final EventExportService exportService;
+    private final DeadLetterRedriver redriver;
+    private final int defaultSegments;
+
+    public AdminController(
+            EventExportService exportService,
+            DeadLetterRedriver redriver,
+            @Value("${workflow.export.segments:4}") int defaultSegments) {
+        this.exportService = exportService;
+        this.redriver = redriver;
+        this.defaultSegments = defaultSegments;
+    }
+
+    /** Streams the whole table as NDJSON using a parallel scan. */
+    @GetMapping(path = "/events:export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<WorkflowEventRecord> exportEvents(@RequestParam(required = false) Integer segments) {
+        return exportService.exportAll(segments == null ? defaultSegments : segments);
+    }
+
+    /** Writes the whole table to a gzip-compressed NDJSON file on the task. */
+    @PostMapping("/exports")
+    public Mono<ExportResult> exportToFile(@RequestParam(required = false) Integer segments) {
+        return exportService.exportToFile(segments == null ? defaultSegments : segments);
+    }
+
+    /** Moves dead-lettered messages back onto the workflow queue at a bounded rate. */
+    @PostMapping("/dlq:redrive")
+    public Mono<RedriveResult> redriveDeadLetters(@RequestParam(required = false) Integer limit,
+                                                  @RequestParam(required = false) Double messagesPerSecond) {
+        return redriver.redrive(limit, messagesPerSecond)
+                .onErrorMap(IllegalArgumentException.class,
+                        ex -> new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex));
+    }
+}
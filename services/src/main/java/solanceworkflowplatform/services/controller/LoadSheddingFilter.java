@@ -0,0 +1,157 @@
+package solanceworkflowplatform.services.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import solanceworkflowplatform.services.config.SqsConfig;
+import solanceworkflowplatform.services.service.AdaptiveConcurrencyLimiter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sheds submissions before they reach {@link WorkflowController} when the
+ * platform is saturated, instead of queueing them until they time out:
+ * <ul>
+ *   <li>429 when the {@link AdaptiveConcurrencyLimiter} has no permit left;</li>
+ *   <li>503 when the worker queue backlog exceeds {@code workflow.limiter.max-queue-depth}.</li>
+ * </ul>
+ * Both carry {@code Retry-After}. Reads, the SSE stream and admin endpoints
+ * are not limited. The backlog is polled every
+ * {@code workflow.sqs.status-check-ms} on a thread of its own, and only while
+ * the depth cap is on.
+ */
+@Component
+public class LoadSheddingFilter implements WebFilter {
+    private static final Logger logger = LoggerFactory.getLogger(LoadSheddingFilter.class);
+
+    private static final String API_PREFIX = "/api/v1/";
+    private static final String ADMIN_PREFIX = "/api/v1/admin/";
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final SqsConfig sqsConfig;
+    private final boolean enabled;
+    private final long maxQueueDepth;
+    private final long statusCheckMs;
+    private final String retryAfterSeconds;
+    private final Counter rejectedConcurrency;
+    private final Counter rejectedQueueDepth;
+    private final Scheduler statusChecks = Schedulers.newSingle("sqs-status-check", true);
+
+    public LoadSheddingFilter(
+            AdaptiveConcurrencyLimiter limiter,
+            SqsConfig sqsConfig,
+            MeterRegistry meterRegistry,
+            @Value("${workflow.limiter.enabled:true}") boolean enabled,
+            @Value("${workflow.limiter.max-queue-depth:0}") long maxQueueDepth,
+            @Value("${workflow.limiter.retry-after-seconds:1}") int retryAfterSeconds,
+            @Value("${workflow.sqs.status-check-ms:60000}") long statusCheckMs
+    ) {
+        this.limiter = limiter;
+        this.sqsConfig = sqsConfig;
+        this.enabled = enabled;
+        this.maxQueueDepth = maxQueueDepth;
+        this.statusCheckMs = Math.max(1000, statusCheckMs);
+        this.retryAfterSeconds = Integer.toString(Math.max(1, retryAfterSeconds));
+        this.rejectedConcurrency = rejectionCounter(meterRegistry, "concurrency");
+        this.rejectedQueueDepth = rejectionCounter(meterRegistry, "queue-depth");
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled && maxQueueDepth > 0) {
+            // The SQS client is blocking, so it gets its own thread rather than a shared one
+            statusChecks.schedulePeriodically(sqsConfig::checkQueueStatus, 10_000, statusCheckMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        statusChecks.dispose();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!enabled || !isLimited(request)) {
+            return chain.filter(exchange);
+        }
+
+        if (maxQueueDepth > 0 && sqsConfig.getApproximateQueueDepth() > maxQueueDepth) {
+            rejectedQueueDepth.increment();
+            return reject(exchange, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+            rejectedConcurrency.increment();
+            return reject(exchange, HttpStatus.TOO_MANY_REQUESTS);
+        }
+
+        // A bulk upload's duration says nothing about downstream latency
+        boolean sample = !request.getPath().value().endsWith(":bulk");
+        return chain.filter(exchange)
+                .doOnSuccess(v -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    if (status != null && status.is5xxServerError()) {
+                        permit.failure();
+                    } else if (sample) {
+                        permit.success();
+                    } else {
+                        permit.ignore();
+                    }
+                })
+                .doOnError(ex -> {
+                    // Client errors are not a sign of downstream trouble
+                    if (ex instanceof ResponseStatusException rse && rse.getStatusCode().is4xxClientError()) {
+                        permit.ignore();
+                    } else {
+                        permit.failure();
+                    }
+                })
+                .doOnCancel(permit::ignore);
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private static boolean isLimited(ServerHttpRequest request) {
+        String path = request.getPath().value();
+        return HttpMethod.POST.equals(request.getMethod())
+                && path.startsWith(API_PREFIX)
+                && !path.startsWith(ADMIN_PREFIX);
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, HttpStatus status) {
+        logger.debug("Shedding request: path={}, status={}, limit={}, inflight={}, queueDepth={}",
+                exchange.getRequest().getPath(), status.value(), limiter.getLimit(), limiter.getInflight(),
+                sqsConfig.getApproximateQueueDepth());
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        return response.setComplete();
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("workflow.limiter.rejected")
+                .description("Requests shed before reaching the controller")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -1,11 +1,17 @@
 package solanceworkflowplatform.services.controller;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import solanceworkflowplatform.services.model.*;
+import solanceworkflowplatform.services.service.IdempotencyStore;
 import solanceworkflowplatform.services.service.WorkflowService;
+import solanceworkflowplatform.services.view.EventStreamBroadcaster;
 
 
 import java.util.Map;
@@ -13,41 +19,122 @@ import java.util.Map;
 @RestController
 @RequestMapping("/api/v1")
 public class WorkflowController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final WorkflowService service;
+    private final EventStreamBroadcaster broadcaster;
 
-    public WorkflowController(WorkflowService service) {
+    public WorkflowController(WorkflowService service, EventStreamBroadcaster broadcaster) {
         this.service = service;
+        this.broadcaster = broadcaster;
     }
 
     @PostMapping("/register")
     public Mono<ResponseEntity<Map<String, String>>> register(
-            @RequestBody RegisterRequest req) {
-        return service.submit(RegisterRequest.EVENT_TYPE, req)
+            @RequestBody RegisterRequest req,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return submit(RegisterRequest.EVENT_TYPE, req, idempotencyKey)
                 .map(id -> ResponseEntity.ok(Map.of("eventId", id)));
     }
 
     @PostMapping("/open-account")
     public Mono<ResponseEntity<Map<String, String>>> openAccount(
-            @RequestBody OpenAccountRequest req) {
-        return service.submit(OpenAccountRequest.EVENT_TYPE, req)
+            @RequestBody OpenAccountRequest req,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return submit(OpenAccountRequest.EVENT_TYPE, req, idempotencyKey)
                 .map(id -> ResponseEntity.ok(Map.of("eventId", id)));
     }
 
     @PostMapping("/deposit")
     public Mono<ResponseEntity<Map<String, String>>> deposit(
-            @RequestBody DepositRequest req) {
-        return service.submit(DepositRequest.EVENT_TYPE, req)
+            @RequestBody DepositRequest req,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return submit(DepositRequest.EVENT_TYPE, req, idempotencyKey)
                 .map(id -> ResponseEntity.ok(Map.of("eventId", id)));
     }
 
     @PostMapping("/payout")
     public Mono<ResponseEntity<Map<String, String>>> payout(
-            @RequestBody PaymentInstructionRequest req) {
-        return service.submit(PaymentInstructionRequest.EVENT_TYPE, req)
+            @RequestBody PaymentInstructionRequest req,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return submit(PaymentInstructionRequest.EVENT_TYPE, req, idempotencyKey)
                 .map(id -> ResponseEntity.ok(Map.of("eventId", id)));
     }
-    @GetMapping("/events")
-    public Flux<WorkflowEventRecord> listEvents() {
-        return service.listEvents();
+
+    /**
+     * Bulk ingestion: one {@code {"detailType": ..., "detail": {...}}} object per
+     * line in, one result per line streamed back.
+     */
+    @PostMapping(path = "/events:bulk",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkSubmitResult> submitBulk(@RequestBody Flux<String> lines) {
+        return service.submitBulk(lines);
+    }
+
+    /**
+     * Without {@code limit} or {@code cursor} every matching event is streamed,
+     * page by page, as a JSON array (or NDJSON when requested). With either
+     * parameter a single page is returned and the cursor for the next one is
+     * sent in the {@value #NEXT_CURSOR_HEADER} header. {@code status} and
+     * {@code type} filters are answered from the secondary indexes.
+     */
+    @GetMapping(path = "/events",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<WorkflowEventRecord>>> listEvents(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String type) {
+        if (limit == null && cursor == null) {
+            return Mono.just(ResponseEntity.ok(service.listEvents(status, type)));
+        }
+
+        int pageSize = Math.min(Math.max(limit == null ? DEFAULT_PAGE_SIZE : limit, 1), MAX_PAGE_SIZE);
+        return service.listEventsPage(pageSize, cursor, status, type)
+                .map(page -> ResponseEntity.ok()
+                        .headers(h -> {
+                            if (page.nextCursor() != null) {
+                                h.set(NEXT_CURSOR_HEADER, page.nextCursor());
+                            }
+                        })
+                        .body(Flux.fromIterable(page.items())))
+                .onErrorMap(IllegalArgumentException.class,
+                        ex -> new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex));
+    }
+
+    /**
+     * Server-Sent Events stream of status transitions as they happen, so
+     * clients no longer need to poll {@code GET /events}. Reconnecting clients
+     * send {@code Last-Event-ID} and get what they missed replayed.
+     */
+    @GetMapping(path = "/events/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<StatusTransition>> streamEvents(
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        return broadcaster.subscribe(lastEventId);
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    /**
+     * Submits with an optional {@value #IDEMPOTENCY_KEY_HEADER}: a retry with the
+     * same key returns the original eventId; reusing a key for a different
+     * request, or retrying before the first request has been accepted, is a 409.
+     */
+    private Mono<String> submit(String type, Object req, String idempotencyKey) {
+        if (idempotencyKey != null
+                && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    IDEMPOTENCY_KEY_HEADER + " must be 1-" + MAX_IDEMPOTENCY_KEY_LENGTH + " characters"));
+        }
+        return service.submit(type, req, idempotencyKey)
+                .onErrorMap(IdempotencyStore.KeyReuseException.class,
+                        ex -> new ResponseStatusException(HttpStatus.CONFLICT, ex.getMessage(), ex))
+                .onErrorMap(IdempotencyStore.ClaimPendingException.class,
+                        ex -> new ResponseStatusException(HttpStatus.CONFLICT, ex.getMessage(), ex));
     }
 }
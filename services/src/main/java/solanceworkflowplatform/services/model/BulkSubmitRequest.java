@@ -0,0 +1,10 @@
+package solanceworkflowplatform.services.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * One line of a bulk NDJSON submission: the workflow type and its payload,
+ * shaped like {@link WorkflowEvent} without the eventId.
+ */
+public record BulkSubmitRequest(String detailType, JsonNode detail) {
+}
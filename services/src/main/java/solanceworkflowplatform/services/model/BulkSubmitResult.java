@@ -0,0 +1,18 @@
+package solanceworkflowplatform.services.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one line of a bulk submission: the eventId on success, otherwise the error.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkSubmitResult(long line, String eventId, String error) {
+
+    public static BulkSubmitResult accepted(long line, String eventId) {
+        return new BulkSubmitResult(line, eventId, null);
+    }
+
+    public static BulkSubmitResult rejected(long line, String error) {
+        return new BulkSubmitResult(line, null, error);
+    }
+}
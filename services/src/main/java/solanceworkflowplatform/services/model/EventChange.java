@@ -0,0 +1,28 @@
+package solanceworkflowplatform.services.model;
+
+import java.time.Instant;
+
+/**
+ * A change to one workflow event as delivered by a change feed: the event's
+ * state after the change, including the lifecycle timestamps reached so far
+ * ({@code null} if not reached or not known). Everything but {@code eventId}
+ * and {@code changedAt} is {@code null} when the item was deleted.
+ */
+public record EventChange(String eventId, String detailType, String status,
+                          Instant receivedAt, Instant dequeuedAt, Instant startedAt, Instant completedAt,
+                          Instant changedAt, boolean removed) {
+
+    public static EventChange upsert(String eventId, String detailType, String status, Instant changedAt) {
+        return new EventChange(eventId, detailType, status, null, null, null, null, changedAt, false);
+    }
+
+    /** The event as {@code record} describes it, e.g. mapped from a stream record's new image. */
+    public static EventChange upsert(WorkflowEventRecord record, Instant changedAt) {
+        return new EventChange(record.eventId(), record.detailType(), record.status(), record.receivedAt(),
+                record.dequeuedAt(), record.startedAt(), record.completedAt(), changedAt, false);
+    }
+
+    public static EventChange removal(String eventId, Instant changedAt) {
+        return new EventChange(eventId, null, null, null, null, null, null, changedAt, true);
+    }
+}
@@ -0,0 +1,10 @@
+package solanceworkflowplatform.services.model;
+
+import java.util.List;
+
+/**
+ * One page of workflow events plus the opaque cursor for the next page
+ * ({@code null} once the last page has been read).
+ */
+public record EventPage(List<WorkflowEventRecord> items, String nextCursor) {
+}
@@ -0,0 +1,7 @@
+package solanceworkflowplatform.services.model;
+
+/**
+ * Summary of a completed full-table export written to a compressed file.
+ */
+public record ExportResult(String file, long events, long durationMs) {
+}
@@ -0,0 +1,8 @@
+package solanceworkflowplatform.services.model;
+
+/**
+ * Summary of a dead-letter queue redrive: messages moved back to the workflow
+ * queue, and messages that stayed in the dead-letter queue because moving them failed.
+ */
+public record RedriveResult(String from, String to, long redriven, long failed, long durationMs) {
+}
@@ -0,0 +1,16 @@
+package solanceworkflowplatform.services.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * A status change of one workflow event as pushed to SSE subscribers.
+ * {@code previousStatus} is absent the first time an event is seen.
+ * {@code seq} orders transitions within one API instance and is carried in the SSE id.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record StatusTransition(@JsonIgnore long seq, String eventId, String detailType,
+                               String previousStatus, String status, Instant at) {
+}
@@ -2,34 +2,45 @@ package solanceworkflowplatform.services.model;
 
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
+import java.time.Instant;
 import java.util.Map;
 
 /**
- * Record representing a workflow event stored in DynamoDB.
+ * Record representing a workflow event stored in DynamoDB, with its lifecycle
+ * timestamps: accepted by the API, taken off the queue, handler started,
+ * and finished (COMPLETED or FAILED). Timestamps not reached yet are {@code null}.
  */
-public record WorkflowEventRecord(String eventId, String detailType, String status) {
+public record WorkflowEventRecord(String eventId, String detailType, String status,
+                                  Instant receivedAt, Instant dequeuedAt, Instant startedAt, Instant completedAt) {
 
-    /** Map a DynamoDB item (field -> AttributeValue) into this record. */
-    public static WorkflowEventRecord fromDynamo(Map<String, AttributeValue> item) {
-        String eventId = null;
-        String detailType = null;
-        String status = null;
-
-        AttributeValue eventIdAttr = item.get("eventId");
-        if (eventIdAttr != null) {
-            eventId = eventIdAttr.s();
-        }
+    public WorkflowEventRecord(String eventId, String detailType, String status) {
+        this(eventId, detailType, status, null, null, null, null);
+    }
 
-        AttributeValue typeAttr = item.get("type");
-        if (typeAttr != null) {
-            detailType = typeAttr.s();
-        }
+    /**
+     * Map a DynamoDB item (field -> AttributeValue) into this record. Works for
+     * full table items as well as index items, which only carry the projected
+     * attributes; anything not present is left {@code null}.
+     */
+    public static WorkflowEventRecord fromDynamo(Map<String, AttributeValue> item) {
+        return new WorkflowEventRecord(
+                stringAttr(item, "eventId"),
+                stringAttr(item, "type"),
+                stringAttr(item, "status"),
+                instantAttr(item, "receivedAt"),
+                instantAttr(item, "dequeuedAt"),
+                instantAttr(item, "startedAt"),
+                instantAttr(item, "completedAt"));
+    }
 
-        AttributeValue statusAttr = item.get("status");
-        if (statusAttr != null) {
-            status = statusAttr.s();
-        }
+    private static String stringAttr(Map<String, AttributeValue> item, String name) {
+        AttributeValue attr = item.get(name);
+        return attr != null ? attr.s() : null;
+    }
 
-        return new WorkflowEventRecord(eventId, detailType, status);
+    /** Timestamps are stored as epoch milliseconds. */
+    private static Instant instantAttr(Map<String, AttributeValue> item, String name) {
+        AttributeValue attr = item.get(name);
+        return attr != null && attr.n() != null ? Instant.ofEpochMilli(Long.parseLong(attr.n())) : null;
     }
 }
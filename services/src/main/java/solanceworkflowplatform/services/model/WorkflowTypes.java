@@ -0,0 +1,24 @@
+package solanceworkflowplatform.services.model;
+
+import java.util.Map;
+
+/**
+ * Maps each workflow {@code detailType} to the request record carrying its payload.
+ */
+public final class WorkflowTypes {
+
+    private static final Map<String, Class<?>> PAYLOAD_TYPES = Map.of(
+            RegisterRequest.EVENT_TYPE, RegisterRequest.class,
+            OpenAccountRequest.EVENT_TYPE, OpenAccountRequest.class,
+            DepositRequest.EVENT_TYPE, DepositRequest.class,
+            PaymentInstructionRequest.EVENT_TYPE, PaymentInstructionRequest.class
+    );
+
+    private WorkflowTypes() {
+    }
+
+    /** @return the payload record for the given type, or {@code null} if the type is unknown */
+    public static Class<?> payloadType(String detailType) {
+        return detailType == null ? null : PAYLOAD_TYPES.get(detailType);
+    }
+}
@@ -0,0 +1,179 @@
+package solanceworkflowplatform.services.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive concurrency limit for the request path, in the style of the
+ * gradient limiters: the limit grows while observed latency stays close to
+ * the best latency seen recently (no queueing downstream) and shrinks in
+ * proportion as latency climbs. Failures and timeouts cut the limit
+ * multiplicatively (AIMD). Samples are averaged over windows of
+ * {@code workflow.limiter.window-ms} and the limit moves at most once per
+ * window, so a burst of completions does not compound into a collapse.
+ * The baseline latency is re-learned every
+ * {@code workflow.limiter.probe-interval-ms} so a permanently slower
+ * downstream does not pin the limit at its minimum.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    /** Returned by {@link #tryAcquire()}; must be released exactly once. */
+    public final class Permit {
+        private final long startedNanos = System.nanoTime();
+        private boolean released;
+
+        /** Request finished normally; its latency is a sample. */
+        public void success() {
+            release(true, false);
+        }
+
+        /** Request failed or timed out downstream. */
+        public void failure() {
+            release(false, true);
+        }
+
+        /** Request ended without a meaningful latency (client cancelled, long stream). */
+        public void ignore() {
+            release(false, false);
+        }
+
+        private void release(boolean sample, boolean dropped) {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            inflight.decrementAndGet();
+            if (sample) {
+                onSample(System.nanoTime() - startedNanos);
+            } else if (dropped) {
+                onDrop();
+            }
+        }
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final double backoffRatio;
+    private final long probeIntervalNanos;
+    private final long windowNanos;
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private volatile double limit;
+    private long minRttNanos = Long.MAX_VALUE;
+    private long minRttResetAt;
+    private long windowEndsAt;
+    private long windowRttSum;
+    private int windowSamples;
+    private boolean windowDropped;
+
+    public AdaptiveConcurrencyLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${workflow.limiter.initial-limit:64}") int initialLimit,
+            @Value("${workflow.limiter.min-limit:8}") int minLimit,
+            @Value("${workflow.limiter.max-limit:1024}") int maxLimit,
+            @Value("${workflow.limiter.rtt-tolerance:2.0}") double tolerance,
+            @Value("${workflow.limiter.smoothing:0.2}") double smoothing,
+            @Value("${workflow.limiter.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${workflow.limiter.probe-interval-ms:30000}") long probeIntervalMs,
+            @Value("${workflow.limiter.window-ms:100}") long windowMs
+    ) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.tolerance = Math.max(1.0, tolerance);
+        this.smoothing = smoothing;
+        this.backoffRatio = backoffRatio;
+        this.probeIntervalNanos = TimeUnit.MILLISECONDS.toNanos(probeIntervalMs);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+        this.minRttResetAt = System.nanoTime() + probeIntervalNanos;
+
+        Gauge.builder("workflow.limiter.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("workflow.limiter.inflight", inflight, AtomicInteger::get)
+                .description("Requests currently holding a permit")
+                .register(meterRegistry);
+    }
+
+    /** A permit if a request may proceed, otherwise {@code null}. */
+    public Permit tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= (int) limit) {
+                return null;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return new Permit();
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private synchronized void onSample(long rttNanos) {
+        long now = System.nanoTime();
+        if (now - minRttResetAt >= 0) {
+            minRttNanos = Long.MAX_VALUE;
+            minRttResetAt = now + probeIntervalNanos;
+        }
+        minRttNanos = Math.min(minRttNanos, rttNanos);
+        windowRttSum += rttNanos;
+        windowSamples++;
+        closeWindowIfDue(now);
+    }
+
+    private synchronized void onDrop() {
+        windowDropped = true;
+        closeWindowIfDue(System.nanoTime());
+    }
+
+    private void closeWindowIfDue(long now) {
+        if (now - windowEndsAt < 0) {
+            return;
+        }
+        if (windowDropped) {
+            update(limit * backoffRatio);
+        } else if (windowSamples > 0) {
+            double rtt = windowRttSum / (double) windowSamples;
+            // 1.0 while latency is within tolerance of the baseline, falling towards 0.5 as it grows
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * minRttNanos / rtt));
+            // Room to grow: only if the limit is actually being used
+            double headroom = inflight.get() + 1 >= limit / 2 ? Math.sqrt(limit) : 0;
+            double target = limit * gradient + headroom;
+            update(limit * (1 - smoothing) + target * smoothing);
+        }
+        windowEndsAt = now + windowNanos;
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowDropped = false;
+    }
+
+    private void update(double newLimit) {
+        double bounded = Math.min(maxLimit, Math.max(minLimit, newLimit));
+        if ((int) bounded != (int) limit) {
+            logger.debug("Concurrency limit {} -> {}", (int) limit, (int) bounded);
+        }
+        limit = bounded;
+    }
+}
@@ -0,0 +1,219 @@
+package solanceworkflowplatform.services.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gathers items submitted by concurrent callers into batches and hands each
+ * batch to a {@link BatchSender}. A batch is sent as soon as it reaches
+ * {@code maxEntries} or {@code maxBytes}, or once the oldest item has waited
+ * for {@code linger}. Every caller gets a {@link Mono} that completes (or fails)
+ * with the result of its own entry only.
+ * <p>
+ * Each dispatched batch records its fill ratio ({@code workflow.batch.fill})
+ * and how long its oldest entry lingered ({@code workflow.batch.linger}),
+ * tagged with the batcher name, so linger and size limits can be tuned.
+ *
+ * @param <T> item type
+ * @param <R> per-entry result type
+ */
+public class CoalescingBatcher<T, R> {
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingBatcher.class);
+
+    /**
+     * Sends one batch. Implementations must complete or fail every entry they
+     * were given; entries left open when the returned Mono terminates are failed.
+     */
+    @FunctionalInterface
+    public interface BatchSender<T, R> {
+        Mono<Void> send(List<Entry<T, R>> batch);
+    }
+
+    /** A single caller's item together with its pending result. */
+    public static final class Entry<T, R> {
+        private final T item;
+        private final int bytes;
+        private final long enqueuedAtNanos = System.nanoTime();
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+
+        private Entry(T item, int bytes) {
+            this.item = item;
+            this.bytes = bytes;
+        }
+
+        public T item() {
+            return item;
+        }
+
+        public int bytes() {
+            return bytes;
+        }
+
+        long enqueuedAtNanos() {
+            return enqueuedAtNanos;
+        }
+
+        public void complete(R value) {
+            result.complete(value);
+        }
+
+        public void fail(Throwable error) {
+            result.completeExceptionally(error);
+        }
+
+        public boolean isDone() {
+            return result.isDone();
+        }
+    }
+
+    private final String name;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Duration linger;
+    private final BatchSender<T, R> sender;
+    private final Scheduler scheduler;
+    private final DistributionSummary fillRatio;
+    private final Timer lingerTime;
+
+    private final Object lock = new Object();
+    private List<Entry<T, R>> pending = new ArrayList<>();
+    private long pendingBytes;
+    private Disposable lingerTask;
+
+    public CoalescingBatcher(String name, int maxEntries, long maxBytes, Duration linger,
+                             BatchSender<T, R> sender, Scheduler scheduler, MeterRegistry meterRegistry) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.linger = linger;
+        this.sender = sender;
+        this.scheduler = scheduler;
+        this.fillRatio = DistributionSummary.builder("workflow.batch.fill")
+                .description("Entries per dispatched batch as a fraction of the maximum")
+                .tag("batcher", name)
+                .publishPercentiles(0.5, 0.9)
+                .register(meterRegistry);
+        this.lingerTime = Timer.builder("workflow.batch.linger")
+                .description("Time the oldest entry of a batch waited before dispatch")
+                .tag("batcher", name)
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues an item for the next batch. The returned Mono is lazy: the item is
+     * only queued once subscribed.
+     */
+    public Mono<R> submit(T item, int bytes) {
+        return Mono.defer(() -> {
+            if (bytes > maxBytes) {
+                return Mono.error(new IllegalArgumentException(
+                        name + " entry of " + bytes + " bytes exceeds the batch limit of " + maxBytes));
+            }
+            Entry<T, R> entry = new Entry<>(item, bytes);
+            enqueue(entry);
+            return Mono.fromFuture(entry.result, true);
+        });
+    }
+
+    /** Sends whatever is currently queued without waiting for the linger window. */
+    public void flush() {
+        List<Entry<T, R>> batch;
+        synchronized (lock) {
+            batch = drainLocked();
+        }
+        dispatch(batch);
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private void enqueue(Entry<T, R> entry) {
+        List<Entry<T, R>> overflow = null;
+        List<Entry<T, R>> full = null;
+        synchronized (lock) {
+            // Close the current batch first if this entry would push it over the byte cap
+            if (!pending.isEmpty() && pendingBytes + entry.bytes > maxBytes) {
+                overflow = drainLocked();
+            }
+            pending.add(entry);
+            pendingBytes += entry.bytes;
+
+            if (pending.size() >= maxEntries || pendingBytes >= maxBytes) {
+                full = drainLocked();
+            } else if (lingerTask == null) {
+                lingerTask = scheduler.schedule(this::flushLingering, linger.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        dispatch(overflow);
+        dispatch(full);
+    }
+
+    private void flushLingering() {
+        List<Entry<T, R>> batch;
+        synchronized (lock) {
+            lingerTask = null;
+            batch = drainLocked();
+        }
+        dispatch(batch);
+    }
+
+    private List<Entry<T, R>> drainLocked() {
+        if (lingerTask != null) {
+            lingerTask.dispose();
+            lingerTask = null;
+        }
+        if (pending.isEmpty()) {
+            return null;
+        }
+        List<Entry<T, R>> batch = pending;
+        pending = new ArrayList<>(maxEntries);
+        pendingBytes = 0;
+        return batch;
+    }
+
+    private void dispatch(List<Entry<T, R>> batch) {
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        logger.debug("Dispatching {} batch: entries={}", name, batch.size());
+        fillRatio.record((double) batch.size() / maxEntries);
+        lingerTime.record(System.nanoTime() - batch.get(0).enqueuedAtNanos(), TimeUnit.NANOSECONDS);
+
+        Mono<Void> send;
+        try {
+            send = sender.send(batch);
+        } catch (Exception ex) {
+            send = Mono.error(ex);
+        }
+        send.subscribe(
+                null,
+                err -> {
+                    logger.warn("{} batch of {} entries failed: {}", name, batch.size(), err.toString());
+                    failOpen(batch, err);
+                },
+                () -> failOpen(batch, new IllegalStateException(name + " batch completed without a result for this entry")));
+    }
+
+    private static <T, R> void failOpen(List<Entry<T, R>> batch, Throwable error) {
+        for (Entry<T, R> entry : batch) {
+            if (!entry.isDone()) {
+                entry.fail(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package solanceworkflowplatform.services.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+import solanceworkflowplatform.services.model.RedriveResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves messages from the workflow dead-letter queue back onto the workflow
+ * queue at a bounded rate, so a redrive after an outage does not itself
+ * become a burst that overwhelms the dependency that just recovered. Each
+ * message is sent before it is deleted from the dead-letter queue: a message
+ * whose send fails stays there, and one whose delete fails may be delivered
+ * twice, which the worker's status transitions already absorb.
+ */
+@Service
+public class DeadLetterRedriver {
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterRedriver.class);
+
+    /** Hard limit imposed by the ReceiveMessage and SendMessageBatch APIs. */
+    private static final int SQS_MAX_BATCH_ENTRIES = 10;
+
+    /** Added by the worker when it dead-letters a message; meaningless once redriven. */
+    private static final Set<String> QUARANTINE_ATTRIBUTES = Set.of("quarantineReason", "quarantinedAt", "sourceMessageId");
+
+    private final SqsAsyncClient sqs;
+    private final String queueName;
+    private final String deadLetterQueueName;
+    private final boolean fifo;
+    private final int maxMessages;
+    private final double defaultRate;
+    private final double maxRate;
+    private final Duration awsTimeout;
+
+    public DeadLetterRedriver(
+            SqsAsyncClient sqs,
+            @Value("${sqs.queue.workflow.name}") String queueName,
+            @Value("${sqs.queue.workflow.dlq-name:${sqs.queue.workflow.name}-dlq}") String deadLetterQueueName,
+            @Value("${workflow.sqs.fifo:false}") boolean fifo,
+            @Value("${workflow.dlq.redrive.max-messages:10000}") int maxMessages,
+            @Value("${workflow.dlq.redrive.messages-per-second:10}") double defaultRate,
+            @Value("${workflow.dlq.redrive.max-messages-per-second:100}") double maxRate,
+            @Value("${workflow.aws.timeout-ms:5000}") long awsTimeoutMs
+    ) {
+        // The pacer treats a non-positive rate as unlimited, which is exactly what a redrive must not be
+        if (!(defaultRate > 0) || !(maxRate > 0)) {
+            throw new IllegalArgumentException("workflow.dlq.redrive rates must be positive: messages-per-second="
+                    + defaultRate + ", max-messages-per-second=" + maxRate);
+        }
+        this.sqs = sqs;
+        this.queueName = queueName;
+        this.deadLetterQueueName = deadLetterQueueName;
+        this.fifo = fifo;
+        this.maxMessages = Math.max(1, maxMessages);
+        this.maxRate = maxRate;
+        this.defaultRate = Math.min(defaultRate, maxRate);
+        this.awsTimeout = Duration.ofMillis(awsTimeoutMs);
+    }
+
+    /**
+     * Redrives up to {@code limit} messages (capped at {@code workflow.dlq.redrive.max-messages})
+     * at no more than {@code messagesPerSecond} (capped at
+     * {@code workflow.dlq.redrive.max-messages-per-second}). Stops early once
+     * the dead-letter queue looks empty.
+     *
+     * @throws IllegalArgumentException (as an error signal) if {@code messagesPerSecond} is not positive
+     */
+    public Mono<RedriveResult> redrive(Integer limit, Double messagesPerSecond) {
+        if (messagesPerSecond != null && !(messagesPerSecond > 0)) {
+            return Mono.error(new IllegalArgumentException("messagesPerSecond must be positive: " + messagesPerSecond));
+        }
+        int total = limit == null ? maxMessages : Math.min(Math.max(1, limit), maxMessages);
+        double rate = messagesPerSecond == null ? defaultRate : Math.min(messagesPerSecond, maxRate);
+        // One unit per message
+        ReadCapacityLimiter pacer = new ReadCapacityLimiter(rate);
+        AtomicLong redriven = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long started = System.nanoTime();
+        logger.info("Starting dead-letter redrive: from={}, to={}, limit={}, messagesPerSecond={}",
+                deadLetterQueueName, queueName, total, rate);
+
+        return Mono.zip(queueUrl(deadLetterQueueName), queueUrl(queueName))
+                .flatMap(urls -> redriveBatches(urls.getT1(), urls.getT2(), total, pacer, redriven, failed))
+                .then(Mono.fromSupplier(() -> new RedriveResult(deadLetterQueueName, queueName,
+                        redriven.get(), failed.get(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started))))
+                .doOnNext(result -> logger.info("Dead-letter redrive finished: redriven={}, failed={}, durationMs={}",
+                        result.redriven(), result.failed(), result.durationMs()));
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private Mono<Void> redriveBatches(String from, String to, int remaining, ReadCapacityLimiter pacer,
+                                      AtomicLong redriven, AtomicLong failed) {
+        if (remaining <= 0) {
+            return Mono.empty();
+        }
+        return receive(from, Math.min(SQS_MAX_BATCH_ENTRIES, remaining))
+                .flatMap(messages -> messages.isEmpty()
+                        ? Mono.empty()
+                        : pacer.consumed(messages.size())
+                                .then(move(from, to, messages, redriven, failed))
+                                .then(Mono.defer(() -> redriveBatches(from, to, remaining - messages.size(),
+                                        pacer, redriven, failed))));
+    }
+
+    private Mono<List<Message>> receive(String from, int count) {
+        return Mono.fromFuture(() -> sqs.receiveMessage(ReceiveMessageRequest.builder()
+                        .queueUrl(from)
+                        .maxNumberOfMessages(count)
+                        .waitTimeSeconds(1)
+                        .messageAttributeNames("All")
+                        .attributeNamesWithStrings("MessageGroupId")
+                        .build()))
+                .timeout(awsTimeout)
+                .map(resp -> resp.messages());
+    }
+
+    /** Sends a batch to the workflow queue, then deletes what was sent from the dead-letter queue. */
+    private Mono<Void> move(String from, String to, List<Message> messages, AtomicLong redriven, AtomicLong failed) {
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            SendMessageBatchRequestEntry.Builder entry = SendMessageBatchRequestEntry.builder()
+                    .id(Integer.toString(i))
+                    .messageBody(message.body())
+                    .messageAttributes(originalAttributes(message));
+            if (fifo) {
+                String group = message.attributesAsStrings().get("MessageGroupId");
+                entry.messageGroupId(group != null ? group : message.messageId())
+                        .messageDeduplicationId(message.messageId());
+            }
+            entries.add(entry.build());
+        }
+
+        return Mono.fromFuture(() -> sqs.sendMessageBatch(SendMessageBatchRequest.builder()
+                        .queueUrl(to)
+                        .entries(entries)
+                        .build()))
+                .timeout(awsTimeout)
+                .flatMap(resp -> {
+                    failed.addAndGet(resp.failed().size());
+                    resp.failed().forEach(f -> logger.warn("Failed to redrive message, leaving it in the dead-letter "
+                            + "queue: messageId={}, code={}", messages.get(Integer.parseInt(f.id())).messageId(), f.code()));
+                    List<DeleteMessageBatchRequestEntry> deletes = new ArrayList<>(resp.successful().size());
+                    for (SendMessageBatchResultEntry sent : resp.successful()) {
+                        deletes.add(DeleteMessageBatchRequestEntry.builder()
+                                .id(sent.id())
+                                .receiptHandle(messages.get(Integer.parseInt(sent.id())).receiptHandle())
+                                .build());
+                    }
+                    if (deletes.isEmpty()) {
+                        return Mono.empty();
+                    }
+                    return Mono.fromFuture(() -> sqs.deleteMessageBatch(DeleteMessageBatchRequest.builder()
+                                    .queueUrl(from)
+                                    .entries(deletes)
+                                    .build()))
+                            .timeout(awsTimeout)
+                            .doOnNext(deleted -> {
+                                redriven.addAndGet(deleted.successful().size());
+                                failed.addAndGet(deleted.failed().size());
+                            })
+                            .then();
+                });
+    }
+
+    private static Map<String, MessageAttributeValue> originalAttributes(Message message) {
+        Map<String, MessageAttributeValue> attributes = new HashMap<>(message.messageAttributes());
+        attributes.keySet().removeAll(QUARANTINE_ATTRIBUTES);
+        return attributes;
+    }
+
+    private Mono<String> queueUrl(String name) {
+        return Mono.fromFuture(() -> sqs.getQueueUrl(GetQueueUrlRequest.builder()
+                        .queueName(name)
+                        .build()))
+                .timeout(awsTimeout)
+                .map(GetQueueUrlResponse::queueUrl);
+    }
+}
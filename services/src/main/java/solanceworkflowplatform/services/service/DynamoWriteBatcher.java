@@ -0,0 +1,155 @@
+package solanceworkflowplatform.services.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Coalesces puts into the workflow table from concurrent requests into
+ * {@code BatchWriteItem} calls of up to 25 items. {@code UnprocessedItems} are
+ * retried with jittered exponential backoff; a caller's Mono completes only
+ * once its own item has been written.
+ */
+@Component
+public class DynamoWriteBatcher {
+    private static final Logger logger = LoggerFactory.getLogger(DynamoWriteBatcher.class);
+
+    /** Hard limits imposed by the BatchWriteItem API. */
+    static final int DDB_MAX_BATCH_ITEMS = 25;
+    static final long DDB_MAX_BATCH_BYTES = 16L * 1024 * 1024;
+
+    private static final String KEY_ATTRIBUTE = "eventId";
+
+    private final DynamoDbAsyncClient dynamo;
+    private final String tableName;
+    private final int maxAttempts;
+    private final Duration awsTimeout;
+    private final CoalescingBatcher<Map<String, AttributeValue>, Void> batcher;
+
+    public DynamoWriteBatcher(
+            DynamoDbAsyncClient dynamo,
+            MeterRegistry meterRegistry,
+            @Value("${DDB_TABLE:solance-workflow}") String tableName,
+            @Value("${workflow.ddb.batch.max-entries:25}") int maxEntries,
+            @Value("${workflow.ddb.batch.linger-ms:5}") long lingerMs,
+            @Value("${workflow.ddb.batch.max-attempts:5}") int maxAttempts,
+            @Value("${workflow.aws.timeout-ms:5000}") long awsTimeoutMs
+    ) {
+        this.dynamo = dynamo;
+        this.tableName = tableName;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.awsTimeout = Duration.ofMillis(awsTimeoutMs);
+        this.batcher = new CoalescingBatcher<>(
+                "ddb-write",
+                Math.min(Math.max(1, maxEntries), DDB_MAX_BATCH_ITEMS),
+                DDB_MAX_BATCH_BYTES,
+                Duration.ofMillis(lingerMs),
+                this::writeBatch,
+                Schedulers.parallel(),
+                meterRegistry);
+
+        logger.info("DynamoWriteBatcher initialized: table={}, maxEntries={}, lingerMs={}",
+                tableName, maxEntries, lingerMs);
+    }
+
+    /** Queues an item for the next batch; completes once the item is durable. */
+    public Mono<Void> put(Map<String, AttributeValue> item) {
+        return batcher.submit(item, itemSize(item)).then();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batcher.flush();
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private Mono<Void> writeBatch(List<CoalescingBatcher.Entry<Map<String, AttributeValue>, Void>> batch) {
+        return writeBatch(batch, 1);
+    }
+
+    private Mono<Void> writeBatch(List<CoalescingBatcher.Entry<Map<String, AttributeValue>, Void>> batch,
+                                  int attempt) {
+        Map<String, CoalescingBatcher.Entry<Map<String, AttributeValue>, Void>> byKey = new HashMap<>();
+        List<WriteRequest> writes = new ArrayList<>(batch.size());
+        for (CoalescingBatcher.Entry<Map<String, AttributeValue>, Void> entry : batch) {
+            byKey.put(entry.item().get(KEY_ATTRIBUTE).s(), entry);
+            writes.add(WriteRequest.builder()
+                    .putRequest(PutRequest.builder().item(entry.item()).build())
+                    .build());
+        }
+
+        logger.debug("Writing DynamoDB batch: table={}, items={}, attempt={}", tableName, writes.size(), attempt);
+        return Mono.fromFuture(() -> dynamo.batchWriteItem(BatchWriteItemRequest.builder()
+                        .requestItems(Map.of(tableName, writes))
+                        .build()))
+                .timeout(awsTimeout)
+                .flatMap(resp -> {
+                    List<WriteRequest> unprocessed = resp.hasUnprocessedItems()
+                            ? resp.unprocessedItems().getOrDefault(tableName, List.of())
+                            : List.of();
+
+                    List<CoalescingBatcher.Entry<Map<String, AttributeValue>, Void>> retry = new ArrayList<>();
+                    for (WriteRequest write : unprocessed) {
+                        retry.add(byKey.remove(write.putRequest().item().get(KEY_ATTRIBUTE).s()));
+                    }
+                    // Everything DynamoDB did not hand back has been written
+                    byKey.values().forEach(entry -> entry.complete(null));
+
+                    if (retry.isEmpty()) {
+                        return Mono.empty();
+                    }
+                    if (attempt >= maxAttempts) {
+                        IllegalStateException ex = new IllegalStateException(
+                                "DynamoDB left item unprocessed after " + attempt + " attempts");
+                        retry.forEach(entry -> entry.fail(ex));
+                        return Mono.empty();
+                    }
+
+                    logger.warn("Retrying {} of {} unprocessed DynamoDB items: table={}, attempt={}",
+                            retry.size(), writes.size(), tableName, attempt);
+                    return Mono.delay(backoff(attempt)).then(writeBatch(retry, attempt + 1));
+                });
+    }
+
+    /** Exponential backoff with jitter, as recommended for UnprocessedItems. */
+    private static Duration backoff(int attempt) {
+        long cap = Math.min(2000L, 50L << Math.min(attempt, 10));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(cap / 2, cap + 1));
+    }
+
+    /** Approximates the item size DynamoDB counts: attribute names plus values. */
+    private static int itemSize(Map<String, AttributeValue> item) {
+        int size = 0;
+        for (Map.Entry<String, AttributeValue> attr : item.entrySet()) {
+            size += attr.getKey().length();
+            AttributeValue value = attr.getValue();
+            if (value.s() != null) {
+                size += value.s().getBytes(StandardCharsets.UTF_8).length;
+            } else if (value.n() != null) {
+                size += value.n().length();
+            } else {
+                size += 8;
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,171 @@
+package solanceworkflowplatform.services.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.eventbridge.EventBridgeAsyncClient;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
+import software.amazon.awssdk.services.eventbridge.model.PutEventsResultEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Coalesces EventBridge publishes from concurrent requests into
+ * {@code PutEvents} calls of up to 10 entries and 256 KB. PutEvents can
+ * succeed as a call while rejecting individual entries, so every result
+ * entry is checked: entries that failed with a transient error code are
+ * retried on their own with jittered backoff, the rest fail their caller.
+ */
+@Component
+public class EventBridgePublisher {
+    private static final Logger logger = LoggerFactory.getLogger(EventBridgePublisher.class);
+
+    /** Hard limits imposed by the PutEvents API. */
+    static final int EB_MAX_BATCH_ENTRIES = 10;
+    static final long EB_MAX_BATCH_BYTES = 256L * 1024;
+
+    /** Per-entry error codes worth retrying; anything else (malformed detail, access denied) is final. */
+    private static final Set<String> RETRYABLE_ERRORS = Set.of("InternalFailure", "ThrottlingException");
+
+    private static final String SOURCE = "com.solance.workflow";
+
+    private final EventBridgeAsyncClient eb;
+    private final String eventBusName;
+    private final int maxAttempts;
+    private final Duration awsTimeout;
+    private final CoalescingBatcher<PutEventsRequestEntry, String> batcher;
+    private final Counter published;
+    private final Counter retried;
+    private final Counter rejected;
+
+    public EventBridgePublisher(
+            EventBridgeAsyncClient eb,
+            MeterRegistry meterRegistry,
+            @Value("${EVENT_BUS:workflow-bus}") String eventBusName,
+            @Value("${workflow.eventbridge.batch.max-entries:10}") int maxEntries,
+            @Value("${workflow.eventbridge.batch.linger-ms:5}") long lingerMs,
+            @Value("${workflow.eventbridge.batch.max-attempts:3}") int maxAttempts,
+            @Value("${workflow.aws.timeout-ms:5000}") long awsTimeoutMs
+    ) {
+        this.eb = eb;
+        this.eventBusName = eventBusName;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.awsTimeout = Duration.ofMillis(awsTimeoutMs);
+        this.batcher = new CoalescingBatcher<>(
+                "eventbridge-put",
+                Math.min(Math.max(1, maxEntries), EB_MAX_BATCH_ENTRIES),
+                EB_MAX_BATCH_BYTES,
+                Duration.ofMillis(lingerMs),
+                this::putBatch,
+                Schedulers.parallel(),
+                meterRegistry);
+        this.published = entryCounter(meterRegistry, "published");
+        this.retried = entryCounter(meterRegistry, "retried");
+        this.rejected = entryCounter(meterRegistry, "rejected");
+
+        logger.info("EventBridgePublisher initialized: eventBus={}, maxEntries={}, lingerMs={}",
+                eventBusName, maxEntries, lingerMs);
+    }
+
+    /**
+     * Queues an event for the next PutEvents call.
+     *
+     * @return the EventBridge event id once this entry has been accepted
+     */
+    public Mono<String> publish(String detailType, String detail) {
+        PutEventsRequestEntry entry = PutEventsRequestEntry.builder()
+                .eventBusName(eventBusName)
+                .source(SOURCE)
+                .detailType(detailType)
+                .detail(detail)
+                .build();
+        return batcher.submit(entry, entrySize(detailType, detail));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batcher.flush();
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private Mono<Void> putBatch(List<CoalescingBatcher.Entry<PutEventsRequestEntry, String>> batch) {
+        return putBatch(batch, 1);
+    }
+
+    private Mono<Void> putBatch(List<CoalescingBatcher.Entry<PutEventsRequestEntry, String>> batch, int attempt) {
+        List<PutEventsRequestEntry> entries = new ArrayList<>(batch.size());
+        for (CoalescingBatcher.Entry<PutEventsRequestEntry, String> entry : batch) {
+            entries.add(entry.item());
+        }
+
+        logger.debug("Publishing EventBridge batch: eventBus={}, entries={}, attempt={}",
+                eventBusName, entries.size(), attempt);
+        return Mono.fromFuture(() -> eb.putEvents(PutEventsRequest.builder()
+                        .entries(entries)
+                        .build()))
+                .timeout(awsTimeout)
+                .flatMap(resp -> {
+                    // Result entries are positional: one per request entry, in order
+                    List<PutEventsResultEntry> results = resp.entries();
+                    List<CoalescingBatcher.Entry<PutEventsRequestEntry, String>> retry = new ArrayList<>();
+                    for (int i = 0; i < batch.size(); i++) {
+                        CoalescingBatcher.Entry<PutEventsRequestEntry, String> entry = batch.get(i);
+                        PutEventsResultEntry result = i < results.size() ? results.get(i) : null;
+                        if (result != null && result.errorCode() == null && result.eventId() != null) {
+                            published.increment();
+                            entry.complete(result.eventId());
+                        } else if (result != null && RETRYABLE_ERRORS.contains(result.errorCode())
+                                && attempt < maxAttempts) {
+                            retry.add(entry);
+                        } else {
+                            rejected.increment();
+                            entry.fail(new IllegalStateException("EventBridge rejected event: code="
+                                    + (result != null ? result.errorCode() : "missing result")
+                                    + ", message=" + (result != null ? result.errorMessage() : null)));
+                        }
+                    }
+                    if (retry.isEmpty()) {
+                        return Mono.empty();
+                    }
+
+                    retried.increment(retry.size());
+                    logger.warn("Retrying {} of {} EventBridge entries: eventBus={}, attempt={}",
+                            retry.size(), entries.size(), eventBusName, attempt);
+                    return Mono.delay(backoff(attempt)).then(putBatch(retry, attempt + 1));
+                });
+    }
+
+    /** Exponential backoff with full jitter. */
+    private static Duration backoff(int attempt) {
+        long cap = Math.min(1000L, 25L << Math.min(attempt, 10));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+
+    /** Entry size as EventBridge counts it against the 256 KB request limit. */
+    private int entrySize(String detailType, String detail) {
+        return 14 // Time
+                + SOURCE.length()
+                + detailType.getBytes(StandardCharsets.UTF_8).length
+                + detail.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static Counter entryCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("workflow.eventbridge.entries")
+                .description("EventBridge entries by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,68 @@
+package solanceworkflowplatform.services.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Turns a DynamoDB {@code LastEvaluatedKey} into an opaque, URL-safe cursor and back.
+ * Key attributes are always strings or numbers, so only those two types are carried.
+ */
+@Component
+public class EventCursorCodec {
+
+    private static final TypeReference<Map<String, Map<String, String>>> CURSOR_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper mapper;
+
+    public EventCursorCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /** @return the cursor, or {@code null} if there is no further page */
+    public String encode(Map<String, AttributeValue> lastEvaluatedKey) {
+        if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+            return null;
+        }
+        Map<String, Map<String, String>> key = new LinkedHashMap<>();
+        lastEvaluatedKey.forEach((name, value) -> key.put(name,
+                value.n() != null ? Map.of("N", value.n()) : Map.of("S", value.s())));
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(mapper.writeValueAsBytes(key));
+        } catch (Exception ex) {
+            throw new IllegalStateException("Failed to encode cursor", ex);
+        }
+    }
+
+    /**
+     * @return the exclusive start key, or {@code null} for a blank cursor
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode}
+     */
+    public Map<String, AttributeValue> decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            Map<String, Map<String, String>> key = mapper.readValue(Base64.getUrlDecoder().decode(cursor), CURSOR_TYPE);
+            Map<String, AttributeValue> startKey = new LinkedHashMap<>();
+            key.forEach((name, value) -> {
+                if (value.containsKey("N")) {
+                    startKey.put(name, AttributeValue.builder().n(value.get("N")).build());
+                } else if (value.containsKey("S")) {
+                    startKey.put(name, AttributeValue.builder().s(value.get("S")).build());
+                } else {
+                    throw new IllegalArgumentException("Unsupported key attribute type: " + name);
+                }
+            });
+            return startKey;
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("Invalid cursor", ex);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package solanceworkflowplatform.services.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import solanceworkflowplatform.services.model.DepositRequest;
+import solanceworkflowplatform.services.model.OpenAccountRequest;
+import solanceworkflowplatform.services.model.PaymentInstructionRequest;
+import solanceworkflowplatform.services.model.RegisterRequest;
+
+import java.util.Map;
+
+/**
+ * Hands a submitted event to the worker, either straight onto the SQS queue
+ * or through the EventBridge bus ({@code workflow.use-direct-sqs}). Either way
+ * the worker receives the same envelope. Encoding is separate from sending so
+ * the body can be stored (outbox) and sent later.
+ */
+@Component
+public class EventDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(EventDispatcher.class);
+
+    private final EventBridgePublisher ebPublisher;
+    private final SqsSendBatcher sqsBatcher;
+    private final WorkflowEventEncoder encoder;
+    private final String eventBusName;
+    private final String queueName;
+    private final boolean useDirectSqs;
+
+    public EventDispatcher(
+            EventBridgePublisher ebPublisher,
+            SqsSendBatcher sqsBatcher,
+            WorkflowEventEncoder encoder,
+            @Value("${EVENT_BUS:workflow-bus}") String eventBusName,
+            @Value("${sqs.queue.workflow.name}") String queueName,
+            @Value("${workflow.use-direct-sqs:true}") boolean useDirectSqs
+    ) {
+        this.ebPublisher = ebPublisher;
+        this.sqsBatcher = sqsBatcher;
+        this.encoder = encoder;
+        this.eventBusName = eventBusName;
+        this.queueName = queueName;
+        this.useDirectSqs = useDirectSqs;
+    }
+
+    /**
+     * Encodes the envelope the worker consumes. The same body is sent to SQS
+     * and, as the event detail, to EventBridge.
+     */
+    public WorkflowEventEncoder.Encoded encode(String eventId, String type, Object payload) {
+        return encoder.encode(eventId, type, payload);
+    }
+
+    /**
+     * The key events must stay ordered by: money movements by account,
+     * customer and account set-up by user. {@code null} when the event has
+     * no ordering constraint.
+     */
+    public static String orderingKey(Object payload) {
+        if (payload instanceof DepositRequest d) {
+            return d.accountId();
+        }
+        if (payload instanceof PaymentInstructionRequest p) {
+            return p.accountId();
+        }
+        if (payload instanceof RegisterRequest r) {
+            return r.userId();
+        }
+        if (payload instanceof OpenAccountRequest o) {
+            return o.userId();
+        }
+        return null;
+    }
+
+    /**
+     * Sends a body produced by {@link #encode}; completes once the transport has accepted it.
+     * {@code receivedAt} (epoch millis) travels as a message attribute on the SQS path.
+     * On a FIFO queue events with the same {@code orderingKey} share a message group and are
+     * delivered in the order they were sent; EventBridge targets cannot set a per-event
+     * group, so ordering only holds end to end with {@code workflow.use-direct-sqs}.
+     */
+    public Mono<Void> send(String eventId, String type, String body, String orderingKey, long receivedAt) {
+        return useDirectSqs
+                ? sendToSqs(eventId, type, body, orderingKey, receivedAt)
+                : publishToEventBridge(eventId, type, body);
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private Mono<Void> sendToSqs(String eventId, String type, String message, String orderingKey, long receivedAt) {
+        logger.info("Sending message directly to SQS: queue={}, eventId={}", queueName, eventId);
+        // Without a key the event is its own group: no ordering, no head-of-line blocking
+        String messageGroupId = orderingKey != null ? orderingKey : eventId;
+        return sqsBatcher.send(message, Map.of(
+                        "eventId", MessageAttributeValue.builder()
+                                .dataType("String").stringValue(eventId).build(),
+                        "type", MessageAttributeValue.builder()
+                                .dataType("String").stringValue(type).build(),
+                        // Lets the worker measure queue wait and end-to-end latency
+                        "receivedAt", MessageAttributeValue.builder()
+                                .dataType("Number").stringValue(Long.toString(receivedAt)).build()
+                ), messageGroupId, eventId)
+                .doOnNext(messageId -> logger.info("Successfully sent message to SQS: eventId={}, messageId={}",
+                        eventId, messageId))
+                .then();
+    }
+
+    private Mono<Void> publishToEventBridge(String eventId, String type, String detailJson) {
+        logger.info("Publishing event to EventBridge: eventBus={}, eventId={}", eventBusName, eventId);
+        return ebPublisher.publish(type, detailJson)
+                .doOnNext(ebEventId -> logger.info("Successfully published event to EventBridge: eventId={}, ebEventId={}",
+                        eventId, ebEventId))
+                .then();
+    }
+}
@@ -0,0 +1,186 @@
+package solanceworkflowplatform.services.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import solanceworkflowplatform.services.model.ExportResult;
+import solanceworkflowplatform.services.model.WorkflowEventRecord;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Full-table reads for reconciliation. Runs a DynamoDB parallel scan
+ * ({@code Segment}/{@code TotalSegments}) with one reader per segment and merges
+ * the segment streams into a single backpressured Flux. All readers of an
+ * export share one {@link ReadCapacityLimiter} so an export cannot starve live
+ * traffic of read capacity.
+ */
+@Service
+public class EventExportService {
+    private static final Logger logger = LoggerFactory.getLogger(EventExportService.class);
+
+    private static final DateTimeFormatter FILE_TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final DynamoDbAsyncClient dynamo;
+    private final ObjectMapper mapper;
+    private final String tableName;
+    private final int pageSize;
+    private final int maxSegments;
+    private final double readCapacityPerSecond;
+    private final Path exportDir;
+    private final Duration awsTimeout;
+
+    public EventExportService(
+            DynamoDbAsyncClient dynamo,
+            ObjectMapper mapper,
+            @Value("${DDB_TABLE:solance-workflow}") String tableName,
+            @Value("${workflow.events.page-size:500}") int pageSize,
+            @Value("${workflow.export.max-segments:32}") int maxSegments,
+            @Value("${workflow.export.read-capacity-per-second:100}") double readCapacityPerSecond,
+            @Value("${workflow.export.dir:${java.io.tmpdir}/workflow-exports}") String exportDir,
+            @Value("${workflow.aws.timeout-ms:5000}") long awsTimeoutMs
+    ) {
+        this.dynamo = dynamo;
+        this.mapper = mapper;
+        this.tableName = tableName;
+        this.pageSize = Math.max(1, pageSize);
+        this.maxSegments = Math.max(1, maxSegments);
+        this.readCapacityPerSecond = readCapacityPerSecond;
+        this.exportDir = Paths.get(exportDir);
+        this.awsTimeout = Duration.ofMillis(awsTimeoutMs);
+    }
+
+    /**
+     * Streams every row of the table using {@code segments} parallel readers.
+     * Rows arrive in no particular order.
+     */
+    public Flux<WorkflowEventRecord> exportAll(int segments) {
+        int total = Math.min(Math.max(1, segments), maxSegments);
+        ReadCapacityLimiter limiter = new ReadCapacityLimiter(readCapacityPerSecond);
+        logger.info("Starting parallel scan export: table={}, segments={}, rcuPerSecond={}",
+                tableName, total, readCapacityPerSecond);
+
+        return Flux.merge(
+                        Flux.range(0, total).map(segment -> scanSegment(segment, total, limiter)),
+                        total,
+                        pageSize)
+                .map(WorkflowEventRecord::fromDynamo);
+    }
+
+    /**
+     * Writes a full export as gzip-compressed NDJSON into {@code workflow.export.dir}.
+     * The file only appears under its final name once the export has succeeded.
+     */
+    public Mono<ExportResult> exportToFile(int segments) {
+        long started = System.nanoTime();
+        Path target = exportDir.resolve("workflow-events-" + FILE_TIMESTAMP.format(Instant.now()) + ".ndjson.gz");
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+
+        return Mono.using(
+                        () -> openGzipWriter(partial),
+                        writer -> exportAll(segments)
+                                .publishOn(Schedulers.boundedElastic(), pageSize)
+                                .doOnNext(record -> writeLine(writer, record))
+                                .count()
+                                .map(count -> {
+                                    // Close first so the gzip trailer is on disk before the file is published
+                                    try {
+                                        writer.close();
+                                        Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+                                    } catch (IOException ex) {
+                                        throw new UncheckedIOException(ex);
+                                    }
+                                    long durationMs = Duration.ofNanos(System.nanoTime() - started).toMillis();
+                                    logger.info("Export written: file={}, events={}, durationMs={}", target, count, durationMs);
+                                    return new ExportResult(target.toString(), count, durationMs);
+                                }),
+                        this::closeQuietly)
+                .doOnError(ex -> {
+                    logger.error("Export failed: file={}", target, ex);
+                    try {
+                        Files.deleteIfExists(partial);
+                    } catch (IOException ignored) {
+                        // best effort
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private Flux<Map<String, AttributeValue>> scanSegment(int segment, int total, ReadCapacityLimiter limiter) {
+        return scanPage(segment, total, null)
+                .expand(resp -> {
+                    if (!resp.hasLastEvaluatedKey() || resp.lastEvaluatedKey().isEmpty()) {
+                        return Mono.empty();
+                    }
+                    double consumed = resp.consumedCapacity() != null && resp.consumedCapacity().capacityUnits() != null
+                            ? resp.consumedCapacity().capacityUnits()
+                            : 0;
+                    return limiter.consumed(consumed).then(scanPage(segment, total, resp.lastEvaluatedKey()));
+                })
+                .doOnComplete(() -> logger.debug("Export segment {} of {} complete", segment, total))
+                .concatMapIterable(ScanResponse::items);
+    }
+
+    private Mono<ScanResponse> scanPage(int segment, int total, Map<String, AttributeValue> startKey) {
+        return Mono.fromFuture(() -> dynamo.scan(ScanRequest.builder()
+                        .tableName(tableName)
+                        .segment(segment)
+                        .totalSegments(total)
+                        .limit(pageSize)
+                        .exclusiveStartKey(startKey)
+                        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                        .build()))
+                .timeout(awsTimeout);
+    }
+
+    private Writer openGzipWriter(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        return new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024), StandardCharsets.UTF_8));
+    }
+
+    private void writeLine(Writer writer, WorkflowEventRecord record) {
+        try {
+            writer.write(mapper.writeValueAsString(record));
+            writer.write('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void closeQuietly(Writer writer) {
+        try {
+            writer.close();
+        } catch (IOException ex) {
+            logger.warn("Failed to close export file: {}", ex.getMessage());
+        }
+    }
+}
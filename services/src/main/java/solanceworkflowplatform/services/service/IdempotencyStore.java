@@ -0,0 +1,288 @@
+package solanceworkflowplatform.services.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Claims {@code Idempotency-Key}s so a retried submission resolves to the
+ * eventId of the first one. The claim is a conditional put on the idempotency
+ * table, made {@code PENDING} and only marked {@code COMPLETED} once the event
+ * has been accepted: until then a retry gets {@link ClaimPendingException}
+ * rather than an eventId that may never be persisted. A pending claim whose
+ * owner has not finished within {@code workflow.idempotency.pending-timeout-ms}
+ * (it crashed, or could not record the outcome) may be taken over, but only
+ * under the eventId it already holds, so the event is resumed rather than
+ * submitted a second time. A bounded
+ * LRU of recent completed claims sits in front of the table so hot retries
+ * are answered without a DynamoDB round trip. Claims expire after
+ * {@code workflow.idempotency.ttl-hours} (the table's TTL attribute is
+ * {@code expiresAt}).
+ */
+@Component
+public class IdempotencyStore {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    /**
+     * Outcome of a claim: {@code replay} means the key was already used and
+     * {@code eventId} is the original. {@code resumed} means a stale pending
+     * claim was taken over: {@code eventId} is the one its owner claimed, and
+     * that event may or may not have been accepted.
+     */
+    public record Claim(String eventId, boolean replay, boolean resumed) {
+    }
+
+    private record CachedClaim(String eventId, String requestHash, long expiresAtSeconds) {
+    }
+
+    static final String PENDING = "PENDING";
+    static final String COMPLETED = "COMPLETED";
+
+    private static final int COMPLETE_RETRIES = 3;
+
+    /** Thrown when the first submission with a key is still being accepted. */
+    public static class ClaimPendingException extends IllegalStateException {
+        public ClaimPendingException(String key) {
+            super("A request with Idempotency-Key " + key + " is still in progress");
+        }
+    }
+
+    /** Thrown when a key is reused with a different request body. */
+    public static class KeyReuseException extends IllegalStateException {
+        public KeyReuseException(String key) {
+            super("Idempotency-Key " + key + " was already used for a different request");
+        }
+    }
+
+    private final DynamoDbAsyncClient dynamo;
+    private final String tableName;
+    private final Duration ttl;
+    private final Duration awsTimeout;
+    private final long pendingTimeoutMs;
+    private final Map<String, CachedClaim> recent;
+    private final Counter cacheHits;
+    private final Counter replays;
+    private final Counter takeovers;
+
+    public IdempotencyStore(
+            DynamoDbAsyncClient dynamo,
+            MeterRegistry meterRegistry,
+            @Value("${IDEMPOTENCY_TABLE:solance-workflow-idempotency}") String tableName,
+            @Value("${workflow.idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${workflow.idempotency.cache-size:10000}") int cacheSize,
+            @Value("${workflow.idempotency.pending-timeout-ms:30000}") long pendingTimeoutMs,
+            @Value("${workflow.aws.timeout-ms:5000}") long awsTimeoutMs
+    ) {
+        this.dynamo = dynamo;
+        this.tableName = tableName;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.awsTimeout = Duration.ofMillis(awsTimeoutMs);
+        this.pendingTimeoutMs = pendingTimeoutMs;
+        int maxCached = Math.max(1, cacheSize);
+        this.recent = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedClaim> eldest) {
+                return size() > maxCached;
+            }
+        };
+        this.cacheHits = Counter.builder("workflow.idempotency.cache.hits")
+                .description("Idempotent replays answered from the local cache")
+                .register(meterRegistry);
+        this.replays = Counter.builder("workflow.idempotency.replays")
+                .description("Submissions resolved to an earlier eventId")
+                .register(meterRegistry);
+        this.takeovers = Counter.builder("workflow.idempotency.takeovers")
+                .description("Stale pending claims taken over to resume their event")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Claims {@code key} for {@code eventId} as PENDING; call {@link #complete}
+     * once the event is accepted, or {@link #release} if it was not. Emits a
+     * replay claim carrying the original eventId if the key is already
+     * completed for the same request, and a resumed claim carrying the stale
+     * owner's eventId if it is pending past its timeout. Fails with
+     * {@link ClaimPendingException} if that request is still in flight, and
+     * with {@link KeyReuseException} if the key was taken by a different one.
+     */
+    public Mono<Claim> claim(String key, String requestHash, String eventId) {
+        return Mono.defer(() -> {
+            long nowSeconds = Instant.now().getEpochSecond();
+            CachedClaim cached = cached(key, nowSeconds);
+            if (cached != null) {
+                cacheHits.increment();
+                return Mono.just(replayOf(key, requestHash, cached));
+            }
+
+            long nowMillis = System.currentTimeMillis();
+            long expiresAt = nowSeconds + ttl.toSeconds();
+            return Mono.fromFuture(() -> dynamo.putItem(PutItemRequest.builder()
+                            .tableName(tableName)
+                            .item(Map.of(
+                                    "idempotencyKey", AttributeValue.fromS(key),
+                                    "eventId", AttributeValue.fromS(eventId),
+                                    "requestHash", AttributeValue.fromS(requestHash),
+                                    "claimState", AttributeValue.fromS(PENDING),
+                                    "pendingUntil", AttributeValue.fromN(Long.toString(nowMillis + pendingTimeoutMs)),
+                                    "expiresAt", AttributeValue.fromN(Long.toString(expiresAt))))
+                            // TTL deletes lazily, so an expired claim may still be there
+                            .conditionExpression("attribute_not_exists(idempotencyKey) OR expiresAt < :now")
+                            .expressionAttributeValues(Map.of(
+                                    ":now", AttributeValue.fromN(Long.toString(nowSeconds))))
+                            .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                            .build()))
+                    .timeout(awsTimeout)
+                    .map(resp -> new Claim(eventId, false, false))
+                    .onErrorResume(ConditionalCheckFailedException.class, ex -> {
+                        Map<String, AttributeValue> existing = ex.item();
+                        if (existing == null || !existing.containsKey("eventId")) {
+                            return Mono.error(new IllegalStateException("Idempotency claim lost without an owner: " + key, ex));
+                        }
+                        CachedClaim original = new CachedClaim(
+                                existing.get("eventId").s(),
+                                existing.containsKey("requestHash") ? existing.get("requestHash").s() : null,
+                                Long.parseLong(existing.get("expiresAt").n()));
+                        // Claims written before claimState existed were only stored once accepted
+                        AttributeValue state = existing.get("claimState");
+                        if (state != null && PENDING.equals(state.s())) {
+                            if (original.requestHash() != null && !original.requestHash().equals(requestHash)) {
+                                return Mono.error(new KeyReuseException(key));
+                            }
+                            AttributeValue pendingUntil = existing.get("pendingUntil");
+                            if (pendingUntil != null && Long.parseLong(pendingUntil.n()) < nowMillis) {
+                                return takeOver(key, original.eventId(), pendingUntil.n(), nowMillis);
+                            }
+                            return Mono.error(new ClaimPendingException(key));
+                        }
+                        remember(key, original);
+                        return Mono.just(replayOf(key, requestHash, original));
+                    });
+        });
+    }
+
+    /**
+     * Marks a claim COMPLETED once its event has been accepted, so retries
+     * replay its eventId. Retried a few times; if it still fails the event
+     * stays accepted and the claim PENDING: retries get
+     * {@link ClaimPendingException} until the pending timeout, and then resume
+     * the same eventId instead of submitting again.
+     */
+    public Mono<Void> complete(String key, String requestHash, String eventId) {
+        return Mono.defer(() -> Mono.fromFuture(() -> dynamo.updateItem(UpdateItemRequest.builder()
+                                .tableName(tableName)
+                                .key(Map.of("idempotencyKey", AttributeValue.fromS(key)))
+                                .updateExpression("SET claimState = :completed REMOVE pendingUntil")
+                                .conditionExpression("eventId = :eventId")
+                                .expressionAttributeValues(Map.of(
+                                        ":completed", AttributeValue.fromS(COMPLETED),
+                                        ":eventId", AttributeValue.fromS(eventId)))
+                                .build()))
+                        .timeout(awsTimeout))
+                // A failed condition means the claim is no longer this event's; trying again will not change that
+                .retryWhen(Retry.backoff(COMPLETE_RETRIES, Duration.ofMillis(100))
+                        .filter(ex -> !(ex instanceof ConditionalCheckFailedException)))
+                .doOnSuccess(resp -> remember(key, new CachedClaim(eventId, requestHash,
+                        Instant.now().getEpochSecond() + ttl.toSeconds())))
+                .then()
+                .doOnError(ex -> logger.error("Failed to complete idempotency key: key={}, eventId={}, error={}",
+                        key, eventId, ex.toString()))
+                .onErrorResume(ex -> Mono.empty());
+    }
+
+    /**
+     * Gives a key back after the submission it guarded failed, so the client's
+     * retry is processed instead of being answered with an eventId that was never sent.
+     */
+    public Mono<Void> release(String key, String eventId) {
+        return Mono.defer(() -> {
+            forget(key);
+            return Mono.fromFuture(() -> dynamo.deleteItem(DeleteItemRequest.builder()
+                            .tableName(tableName)
+                            .key(Map.of("idempotencyKey", AttributeValue.fromS(key)))
+                            .conditionExpression("eventId = :eventId")
+                            .expressionAttributeValues(Map.of(":eventId", AttributeValue.fromS(eventId)))
+                            .build()))
+                    .timeout(awsTimeout)
+                    .onErrorResume(ConditionalCheckFailedException.class, ex -> Mono.empty())
+                    .doOnError(ex -> logger.warn("Failed to release idempotency key: key={}, error={}", key, ex.toString()))
+                    .onErrorResume(ex -> Mono.empty())
+                    .then();
+        });
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    /**
+     * Extends a stale pending claim, keeping its eventId. Conditional on the
+     * deadline that was seen, so of several retries only one takes it over.
+     */
+    private Mono<Claim> takeOver(String key, String eventId, String seenPendingUntil, long nowMillis) {
+        return Mono.fromFuture(() -> dynamo.updateItem(UpdateItemRequest.builder()
+                        .tableName(tableName)
+                        .key(Map.of("idempotencyKey", AttributeValue.fromS(key)))
+                        .updateExpression("SET pendingUntil = :until")
+                        .conditionExpression("claimState = :pending AND pendingUntil = :seen AND eventId = :eventId")
+                        .expressionAttributeValues(Map.of(
+                                ":until", AttributeValue.fromN(Long.toString(nowMillis + pendingTimeoutMs)),
+                                ":pending", AttributeValue.fromS(PENDING),
+                                ":seen", AttributeValue.fromN(seenPendingUntil),
+                                ":eventId", AttributeValue.fromS(eventId)))
+                        .build()))
+                .timeout(awsTimeout)
+                .map(resp -> {
+                    takeovers.increment();
+                    logger.info("Took over stale idempotency claim: key={}, eventId={}", key, eventId);
+                    return new Claim(eventId, false, true);
+                })
+                .onErrorMap(ConditionalCheckFailedException.class, ex -> new ClaimPendingException(key));
+    }
+
+    private Claim replayOf(String key, String requestHash, CachedClaim original) {
+        if (original.requestHash() != null && !original.requestHash().equals(requestHash)) {
+            throw new KeyReuseException(key);
+        }
+        replays.increment();
+        logger.info("Idempotent replay: key={}, eventId={}", key, original.eventId());
+        return new Claim(original.eventId(), true, false);
+    }
+
+    private CachedClaim cached(String key, long nowSeconds) {
+        synchronized (recent) {
+            CachedClaim claim = recent.get(key);
+            if (claim != null && claim.expiresAtSeconds() < nowSeconds) {
+                recent.remove(key);
+                return null;
+            }
+            return claim;
+        }
+    }
+
+    private void remember(String key, CachedClaim claim) {
+        synchronized (recent) {
+            recent.put(key, claim);
+        }
+    }
+
+    private void forget(String key) {
+        synchronized (recent) {
+            recent.remove(key);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package solanceworkflowplatform.services.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transactional outbox for submissions ({@code workflow.outbox.enabled}). The
+ * outbox entry lives on the event item itself ({@code outboxShard},
+ * {@code outboxAt}, {@code outboxBody}), so accepting an event is one write,
+ * and the sparse {@value #OUTBOX_INDEX} index lists only undelivered items.
+ * <p>
+ * The accepting instance relays each entry right after the write. Anything
+ * that is still in the outbox {@code workflow.outbox.sweep-after-ms} later
+ * (send failed, instance died) is picked up by the periodic sweep, which
+ * first leases the entry with a conditional update so that several API
+ * instances do not all send it. Delivery is at-least-once: the worker may
+ * see an event twice if the entry could not be cleared after sending.
+ * <p>
+ * The sweep runs every {@code workflow.outbox.sweep-interval-ms} on its own
+ * timer thread and never blocks it: the queries and sends are asynchronous,
+ * and the next sweep is only scheduled once the previous one has finished.
+ */
+@Component
+public class OutboxRelay {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    static final String OUTBOX_INDEX = "outbox-index";
+
+    private final DynamoDbAsyncClient dynamo;
+    private final EventDispatcher dispatcher;
+    private final String tableName;
+    private final boolean enabled;
+    private final int shards;
+    private final long sweepAfterMs;
+    private final Duration sweepInterval;
+    private final long leaseMs;
+    private final int batchSize;
+    private final Duration awsTimeout;
+    private final Timer lag;
+    private final Counter relayed;
+    private final Counter swept;
+    private final Counter failures;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong oldestPendingMs = new AtomicLong();
+    private final Scheduler sweeper = Schedulers.newSingle("outbox-sweeper", true);
+
+    private volatile Disposable sweeping;
+
+    public OutboxRelay(
+            DynamoDbAsyncClient dynamo,
+            EventDispatcher dispatcher,
+            MeterRegistry meterRegistry,
+            @Value("${DDB_TABLE:solance-workflow}") String tableName,
+            @Value("${workflow.outbox.enabled:false}") boolean enabled,
+            @Value("${workflow.outbox.shards:8}") int shards,
+            @Value("${workflow.outbox.sweep-after-ms:5000}") long sweepAfterMs,
+            @Value("${workflow.outbox.sweep-interval-ms:1000}") long sweepIntervalMs,
+            @Value("${workflow.outbox.lease-ms:30000}") long leaseMs,
+            @Value("${workflow.outbox.batch-size:100}") int batchSize,
+            @Value("${workflow.aws.timeout-ms:5000}") long awsTimeoutMs
+    ) {
+        this.dynamo = dynamo;
+        this.dispatcher = dispatcher;
+        this.tableName = tableName;
+        this.enabled = enabled;
+        this.shards = Math.max(1, shards);
+        this.sweepAfterMs = sweepAfterMs;
+        this.sweepInterval = Duration.ofMillis(Math.max(1, sweepIntervalMs));
+        this.leaseMs = leaseMs;
+        this.batchSize = Math.max(1, batchSize);
+        this.awsTimeout = Duration.ofMillis(awsTimeoutMs);
+        this.lag = Timer.builder("workflow.outbox.lag")
+                .description("Time from accepting an event to handing it to the transport")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.relayed = Counter.builder("workflow.outbox.relayed")
+                .tag("path", "immediate")
+                .register(meterRegistry);
+        this.swept = Counter.builder("workflow.outbox.relayed")
+                .tag("path", "sweep")
+                .register(meterRegistry);
+        this.failures = Counter.builder("workflow.outbox.failures")
+                .description("Outbox sends that failed and were left for the sweep")
+                .register(meterRegistry);
+        Gauge.builder("workflow.outbox.pending", pending, AtomicLong::get)
+                .description("Overdue outbox entries found by the last sweep")
+                .register(meterRegistry);
+        Gauge.builder("workflow.outbox.oldest.age", oldestPendingMs, AtomicLong::get)
+                .description("Age of the oldest overdue outbox entry at the last sweep")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+
+        logger.info("OutboxRelay initialized: enabled={}, shards={}, sweepAfterMs={}", enabled, this.shards, sweepAfterMs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Adds the outbox attributes to an item about to be written; returns the staging timestamp. */
+    public long stage(Map<String, AttributeValue> item, String body) {
+        long now = System.currentTimeMillis();
+        String eventId = item.get("eventId").s();
+        item.put("outboxShard", AttributeValue.fromS(Integer.toString(Math.floorMod(eventId.hashCode(), shards))));
+        item.put("outboxAt", AttributeValue.fromN(Long.toString(now)));
+        item.put("outboxBody", AttributeValue.fromS(body));
+        return now;
+    }
+
+    /** Relays a just-written entry without waiting for the sweep. Failures are left to the sweep. */
+    public void relayNow(String eventId, String type, String body, String orderingKey, long stagedAt) {
+        deliver(eventId, type, body, orderingKey, stagedAt, stagedAt)
+                .subscribe(v -> { }, ex -> {
+                    failures.increment();
+                    logger.warn("Outbox relay failed, leaving event for the sweep: eventId={}, error={}",
+                            eventId, ex.toString());
+                }, relayed::increment);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // Fixed delay: the next sweep is timed from the end of the previous one
+        sweeping = Mono.delay(sweepInterval, sweeper)
+                .then(Mono.defer(this::sweep))
+                .repeat()
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeping != null) {
+            sweeping.dispose();
+        }
+        sweeper.dispose();
+    }
+
+    /** Re-sends entries that stayed in the outbox past {@code workflow.outbox.sweep-after-ms}. */
+    public Mono<Void> sweep() {
+        long now = System.currentTimeMillis();
+        long cutoff = now - sweepAfterMs;
+        return Flux.range(0, shards)
+                .flatMap(shard -> overdue(shard, cutoff))
+                .collectList()
+                .flatMap(overdue -> {
+                    pending.set(overdue.size());
+                    oldestPendingMs.set(overdue.stream()
+                            .mapToLong(item -> now - Long.parseLong(item.get("outboxAt").n()))
+                            .max()
+                            .orElse(0));
+                    if (overdue.isEmpty()) {
+                        return Mono.<Void>empty();
+                    }
+                    logger.info("Sweeping overdue outbox entries: count={}, oldestMs={}",
+                            overdue.size(), oldestPendingMs.get());
+                    return Flux.fromIterable(overdue)
+                            .flatMap(this::leaseAndDeliver, 16)
+                            .then();
+                })
+                .timeout(awsTimeout.multipliedBy(6))
+                .onErrorResume(ex -> {
+                    logger.warn("Outbox sweep failed: error={}", ex.toString());
+                    return Mono.empty();
+                });
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private Flux<Map<String, AttributeValue>> overdue(int shard, long cutoff) {
+        return Mono.fromFuture(() -> dynamo.query(QueryRequest.builder()
+                        .tableName(tableName)
+                        .indexName(OUTBOX_INDEX)
+                        .keyConditionExpression("outboxShard = :shard AND outboxAt < :cutoff")
+                        .expressionAttributeValues(Map.of(
+                                ":shard", AttributeValue.fromS(Integer.toString(shard)),
+                                ":cutoff", AttributeValue.fromN(Long.toString(cutoff))))
+                        .limit(batchSize)
+                        .build()))
+                .timeout(awsTimeout)
+                .flatMapIterable(QueryResponse::items);
+    }
+
+    private Mono<Void> leaseAndDeliver(Map<String, AttributeValue> item) {
+        String eventId = item.get("eventId").s();
+        long stagedAt = Long.parseLong(item.get("outboxAt").n());
+        // outboxAt moves with every lease; receivedAt is when the event was actually accepted
+        long acceptedAt = item.containsKey("receivedAt") ? Long.parseLong(item.get("receivedAt").n()) : stagedAt;
+        long leasedUntil = System.currentTimeMillis() + leaseMs;
+        return update(eventId, stagedAt, "SET outboxAt = :lease",
+                Map.of(":lease", AttributeValue.fromN(Long.toString(leasedUntil))))
+                // A swept entry is already out of order with later events, so it is sent ungrouped
+                .then(deliver(eventId, item.get("type").s(), item.get("outboxBody").s(), null, acceptedAt, leasedUntil)
+                        .doOnSuccess(v -> swept.increment()))
+                .onErrorResume(ConditionalCheckFailedException.class, ex -> {
+                    // Another instance leased or delivered it first
+                    logger.debug("Outbox entry already taken: eventId={}", eventId);
+                    return Mono.empty();
+                })
+                .onErrorResume(ex -> {
+                    failures.increment();
+                    logger.warn("Outbox sweep failed to relay event: eventId={}, error={}", eventId, ex.toString());
+                    return Mono.empty();
+                });
+    }
+
+    /** Sends, then clears the entry as long as nobody has leased it since {@code outboxAt}. */
+    private Mono<Void> deliver(String eventId, String type, String body, String orderingKey,
+                               long acceptedAt, long outboxAt) {
+        // The entry was staged in the same write as the RECEIVED record, so acceptedAt is its receivedAt
+        return dispatcher.send(eventId, type, body, orderingKey, acceptedAt)
+                .doOnSuccess(v -> lag.record(Math.max(0, System.currentTimeMillis() - acceptedAt), TimeUnit.MILLISECONDS))
+                .then(update(eventId, outboxAt, "REMOVE outboxShard, outboxAt, outboxBody", Map.of())
+                        .onErrorResume(ConditionalCheckFailedException.class, ex -> Mono.empty()));
+    }
+
+    private Mono<Void> update(String eventId, long expectedOutboxAt, String expression,
+                              Map<String, AttributeValue> values) {
+        Map<String, AttributeValue> allValues = new HashMap<>(values);
+        allValues.put(":expected", AttributeValue.fromN(Long.toString(expectedOutboxAt)));
+        return Mono.fromFuture(() -> dynamo.updateItem(UpdateItemRequest.builder()
+                        .tableName(tableName)
+                        .key(Map.of("eventId", AttributeValue.fromS(eventId)))
+                        .updateExpression(expression)
+                        .conditionExpression("outboxAt = :expected")
+                        .expressionAttributeValues(allValues)
+                        .build()))
+                .timeout(awsTimeout)
+                .then();
+    }
+}
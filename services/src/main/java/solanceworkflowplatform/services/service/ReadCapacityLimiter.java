@@ -0,0 +1,41 @@
+package solanceworkflowplatform.services.service;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces a set of readers to an average number of DynamoDB read capacity units
+ * per second. Readers report what each page actually consumed and are then
+ * delayed until that capacity has "refilled", so bursts are paid back before
+ * the next page is requested. Shared by all segments of one export.
+ */
+public class ReadCapacityLimiter {
+
+    private final double unitsPerSecond;
+    private long nextFreeNanos = System.nanoTime();
+
+    /** @param unitsPerSecond target rate; zero or negative disables limiting */
+    public ReadCapacityLimiter(double unitsPerSecond) {
+        this.unitsPerSecond = unitsPerSecond;
+    }
+
+    /** Records consumed capacity and completes once the caller may read again. */
+    public Mono<Void> consumed(double units) {
+        if (unitsPerSecond <= 0 || units <= 0) {
+            return Mono.empty();
+        }
+        long waitNanos = reserve(units);
+        return waitNanos > 0
+                ? Mono.delay(Duration.ofNanos(waitNanos)).then()
+                : Mono.empty();
+    }
+
+    private synchronized long reserve(double units) {
+        long now = System.nanoTime();
+        nextFreeNanos = Math.max(nextFreeNanos, now)
+                + (long) (units / unitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+        return nextFreeNanos - now;
+    }
+}
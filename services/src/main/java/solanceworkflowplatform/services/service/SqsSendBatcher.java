@@ -0,0 +1,180 @@
+package solanceworkflowplatform.services.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coalesces SQS sends from concurrent requests into {@code SendMessageBatch}
+ * calls of up to 10 entries. Entries SQS reports as failed through no fault of
+ * the sender are retried with backoff; each caller sees only its own outcome.
+ * <p>
+ * With {@code workflow.sqs.fifo} every entry carries a {@code MessageGroupId}
+ * and a {@code MessageDeduplicationId}. Entries keep their submission order
+ * within a batch, so a group stays ordered unless an entry has to be retried
+ * after a later entry of the same group was already accepted.
+ */
+@Component
+public class SqsSendBatcher {
+    private static final Logger logger = LoggerFactory.getLogger(SqsSendBatcher.class);
+
+    /** Hard limit imposed by the SendMessageBatch API. */
+    static final int SQS_MAX_BATCH_ENTRIES = 10;
+
+    private final SqsAsyncClient sqs;
+    private final String queueName;
+    private final boolean fifo;
+    private final int maxAttempts;
+    private final Duration awsTimeout;
+    private final Mono<String> queueUrl;
+    private final CoalescingBatcher<SendMessageBatchRequestEntry, String> batcher;
+
+    public SqsSendBatcher(
+            SqsAsyncClient sqs,
+            MeterRegistry meterRegistry,
+            @Value("${sqs.queue.workflow.name}") String queueName,
+            @Value("${workflow.sqs.batch.max-entries:10}") int maxEntries,
+            @Value("${workflow.sqs.batch.max-bytes:262144}") long maxBytes,
+            @Value("${workflow.sqs.batch.linger-ms:5}") long lingerMs,
+            @Value("${workflow.sqs.batch.max-attempts:3}") int maxAttempts,
+            @Value("${workflow.sqs.fifo:false}") boolean fifo,
+            @Value("${workflow.aws.timeout-ms:5000}") long awsTimeoutMs
+    ) {
+        this.sqs = sqs;
+        this.queueName = queueName;
+        this.fifo = fifo;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.awsTimeout = Duration.ofMillis(awsTimeoutMs);
+        this.queueUrl = resolveQueueUrl();
+        this.batcher = new CoalescingBatcher<>(
+                "sqs-send",
+                Math.min(Math.max(1, maxEntries), SQS_MAX_BATCH_ENTRIES),
+                maxBytes,
+                Duration.ofMillis(lingerMs),
+                this::sendBatch,
+                Schedulers.parallel(),
+                meterRegistry);
+
+        logger.info("SqsSendBatcher initialized: queue={}, fifo={}, maxEntries={}, maxBytes={}, lingerMs={}",
+                queueName, fifo, maxEntries, maxBytes, lingerMs);
+    }
+
+    /**
+     * Queues a message for the next batch. The group and deduplication ids are
+     * only sent to FIFO queues.
+     *
+     * @return the SQS message id once this message has been accepted
+     */
+    public Mono<String> send(String body, Map<String, MessageAttributeValue> attributes,
+                             String messageGroupId, String deduplicationId) {
+        SendMessageBatchRequestEntry.Builder entry = SendMessageBatchRequestEntry.builder()
+                .messageBody(body)
+                .messageAttributes(attributes);
+        if (fifo) {
+            entry.messageGroupId(messageGroupId)
+                    .messageDeduplicationId(deduplicationId);
+        }
+        return batcher.submit(entry.build(), messageSize(body, attributes));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batcher.flush();
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    /** Resolved once and cached; failures are not cached so the next send retries. */
+    private Mono<String> resolveQueueUrl() {
+        return Mono.fromFuture(() -> sqs.getQueueUrl(GetQueueUrlRequest.builder()
+                        .queueName(queueName)
+                        .build()))
+                .timeout(awsTimeout)
+                .map(GetQueueUrlResponse::queueUrl)
+                .doOnNext(url -> logger.info("Resolved SQS queue URL: queue={}, url={}", queueName, url))
+                .cache(url -> Duration.ofMillis(Long.MAX_VALUE), err -> Duration.ZERO, () -> Duration.ZERO);
+    }
+
+    private Mono<Void> sendBatch(List<CoalescingBatcher.Entry<SendMessageBatchRequestEntry, String>> batch) {
+        return queueUrl.flatMap(url -> sendBatch(url, batch, 1));
+    }
+
+    private Mono<Void> sendBatch(String url,
+                                 List<CoalescingBatcher.Entry<SendMessageBatchRequestEntry, String>> batch,
+                                 int attempt) {
+        // Batch entry ids only need to be unique within a single request
+        Map<String, CoalescingBatcher.Entry<SendMessageBatchRequestEntry, String>> byId = new HashMap<>();
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            String id = Integer.toString(i);
+            byId.put(id, batch.get(i));
+            entries.add(batch.get(i).item().toBuilder().id(id).build());
+        }
+
+        logger.debug("Sending SQS batch: queue={}, entries={}, attempt={}", queueName, entries.size(), attempt);
+        return Mono.fromFuture(() -> sqs.sendMessageBatch(SendMessageBatchRequest.builder()
+                        .queueUrl(url)
+                        .entries(entries)
+                        .build()))
+                .timeout(awsTimeout)
+                .flatMap(resp -> {
+                    for (SendMessageBatchResultEntry ok : resp.successful()) {
+                        byId.get(ok.id()).complete(ok.messageId());
+                    }
+
+                    List<CoalescingBatcher.Entry<SendMessageBatchRequestEntry, String>> retry = new ArrayList<>();
+                    for (BatchResultErrorEntry failed : resp.failed()) {
+                        CoalescingBatcher.Entry<SendMessageBatchRequestEntry, String> entry = byId.get(failed.id());
+                        if (Boolean.TRUE.equals(failed.senderFault()) || attempt >= maxAttempts) {
+                            entry.fail(new IllegalStateException("SQS rejected message: code="
+                                    + failed.code() + ", message=" + failed.message()));
+                        } else {
+                            retry.add(entry);
+                        }
+                    }
+                    if (retry.isEmpty()) {
+                        return Mono.empty();
+                    }
+
+                    logger.warn("Retrying {} of {} SQS batch entries: queue={}, attempt={}",
+                            retry.size(), entries.size(), queueName, attempt);
+                    return Mono.delay(backoff(attempt)).then(sendBatch(url, retry, attempt + 1));
+                });
+    }
+
+    private static Duration backoff(int attempt) {
+        return Duration.ofMillis(Math.min(1000L, 25L << Math.min(attempt, 10)));
+    }
+
+    /** Approximates the size SQS counts against the batch payload limit. */
+    private static int messageSize(String body, Map<String, MessageAttributeValue> attributes) {
+        int size = body.getBytes(StandardCharsets.UTF_8).length;
+        for (Map.Entry<String, MessageAttributeValue> attr : attributes.entrySet()) {
+            size += attr.getKey().length() + attr.getValue().dataType().length();
+            if (attr.getValue().stringValue() != null) {
+                size += attr.getValue().stringValue().getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        return size;
+    }
+}
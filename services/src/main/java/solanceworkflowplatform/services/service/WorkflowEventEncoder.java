@@ -0,0 +1,124 @@
+package solanceworkflowplatform.services.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes the {@code {"eventId", "detailType", "detail"}} envelope the worker
+ * consumes in a single streaming pass: the payload is written straight into
+ * the envelope by an {@link ObjectWriter} cached per payload class, without
+ * building a JSON tree or an intermediate string. Output buffers are reused
+ * per thread. The same bytes go to SQS and, as the event detail, to
+ * EventBridge.
+ */
+@Component
+public class WorkflowEventEncoder {
+
+    /** Buffers that grew beyond this are not kept for reuse. */
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    /** An encoded envelope; {@code [detailStart, detailEnd)} is the payload's JSON within {@code json}. */
+    public record Encoded(byte[] json, int detailStart, int detailEnd) {
+
+        public String body() {
+            return new String(json, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class ReusableBuffer extends ByteArrayOutputStream {
+        ReusableBuffer() {
+            super(1024);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        boolean oversized() {
+            return buf.length > MAX_RETAINED_BUFFER;
+        }
+    }
+
+    private record TypeMeters(Timer time, DistributionSummary bytes) {
+    }
+
+    private final ObjectMapper mapper;
+    private final MeterRegistry meterRegistry;
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private final Map<String, TypeMeters> meters = new ConcurrentHashMap<>();
+    private final ThreadLocal<ReusableBuffer> buffers = ThreadLocal.withInitial(ReusableBuffer::new);
+
+    public WorkflowEventEncoder(ObjectMapper mapper, MeterRegistry meterRegistry) {
+        this.mapper = mapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Encoded encode(String eventId, String detailType, Object payload) {
+        long started = System.nanoTime();
+        ReusableBuffer out = buffers.get();
+        out.reset();
+        try {
+            int detailStart;
+            try (JsonGenerator gen = mapper.getFactory().createGenerator(out)) {
+                gen.writeStartObject();
+                gen.writeStringField("eventId", eventId);
+                gen.writeStringField("detailType", detailType);
+                gen.writeFieldName("detail");
+                gen.flush();
+                detailStart = out.size() + 1; // the ':' separator is written with the value
+                writerFor(payload).writeValue(gen, payload);
+                gen.flush();
+                int detailEnd = out.size();
+                gen.writeEndObject();
+                gen.flush();
+
+                Encoded encoded = new Encoded(Arrays.copyOf(out.array(), out.size()), detailStart, detailEnd);
+                TypeMeters m = metersFor(detailType);
+                m.time().record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                m.bytes().record(encoded.json().length);
+                return encoded;
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to encode event " + eventId, ex);
+        } finally {
+            if (out.oversized()) {
+                buffers.remove();
+            }
+        }
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private ObjectWriter writerFor(Object payload) {
+        if (payload == null) {
+            return mapper.writer();
+        }
+        return writers.computeIfAbsent(payload.getClass(), mapper::writerFor);
+    }
+
+    private TypeMeters metersFor(String detailType) {
+        return meters.computeIfAbsent(detailType, type -> new TypeMeters(
+                Timer.builder("workflow.encode.time")
+                        .description("Time to encode an event envelope")
+                        .tag("type", type)
+                        .register(meterRegistry),
+                DistributionSummary.builder("workflow.encode.bytes")
+                        .description("Encoded event envelope size")
+                        .baseUnit("bytes")
+                        .tag("type", type)
+                        .register(meterRegistry)));
+    }
+}
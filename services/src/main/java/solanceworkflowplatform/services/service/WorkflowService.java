@@ -8,182 +8,362 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
-import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
-import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
-import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
-import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
-import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
-import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
-import solanceworkflowplatform.services.model.WorkflowEvent;
+import solanceworkflowplatform.services.model.BulkSubmitRequest;
+import solanceworkflowplatform.services.model.BulkSubmitResult;
+import solanceworkflowplatform.services.model.EventPage;
 import solanceworkflowplatform.services.model.WorkflowEventRecord;
+import solanceworkflowplatform.services.model.WorkflowTypes;
+import solanceworkflowplatform.services.view.EventStatusView;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
 public class WorkflowService {
     private static final Logger logger = LoggerFactory.getLogger(WorkflowService.class);
 
-    private final DynamoDbClient dynamo;
-    private final EventBridgeClient eb;
-    private final SqsClient sqs;
+    /** GSIs on the workflow table: status (+ type) and type (+ status). */
+    static final String STATUS_INDEX = "status-type-index";
+    static final String TYPE_INDEX = "type-status-index";
+
+    private final DynamoDbAsyncClient dynamo;
+    private final DynamoWriteBatcher writeBatcher;
+    private final EventCursorCodec cursorCodec;
+    private final EventDispatcher dispatcher;
+    private final OutboxRelay outbox;
     private final ObjectMapper mapper;
+    private final EventStatusView statusView;
+    private final IdempotencyStore idempotency;
     private final String tableName;
-    private final String eventBusName;
-    private final String queueName;
-    private final boolean useDirectSqs;
+    private final Duration awsTimeout;
+    private final int bulkConcurrency;
+    private final int scanPageSize;
 
     public WorkflowService(
-            DynamoDbClient dynamo,
-            EventBridgeClient eb,
-            SqsClient sqs,
+            DynamoDbAsyncClient dynamo,
+            DynamoWriteBatcher writeBatcher,
+            EventCursorCodec cursorCodec,
+            EventDispatcher dispatcher,
+            OutboxRelay outbox,
             ObjectMapper mapper,
+            EventStatusView statusView,
+            IdempotencyStore idempotency,
             @Value("${DDB_TABLE:solance-workflow}") String tableName,
-            @Value("${EVENT_BUS:workflow-bus}") String eventBusName,
-            @Value("${sqs.queue.workflow.name}") String queueName,
-            @Value("${workflow.use-direct-sqs:true}") boolean useDirectSqs
+            @Value("${workflow.aws.timeout-ms:5000}") long awsTimeoutMs,
+            @Value("${workflow.bulk.concurrency:64}") int bulkConcurrency,
+            @Value("${workflow.events.page-size:500}") int scanPageSize
     ) {
         this.dynamo = dynamo;
-        this.eb = eb;
-        this.sqs = sqs;
+        this.writeBatcher = writeBatcher;
+        this.cursorCodec = cursorCodec;
+        this.dispatcher = dispatcher;
+        this.outbox = outbox;
         this.mapper = mapper;
+        this.statusView = statusView;
+        this.idempotency = idempotency;
         this.tableName = tableName;
-        this.eventBusName = eventBusName;
-        this.queueName = queueName;
-        this.useDirectSqs = useDirectSqs;
+        this.awsTimeout = Duration.ofMillis(awsTimeoutMs);
+        this.bulkConcurrency = Math.max(1, bulkConcurrency);
+        this.scanPageSize = Math.max(1, scanPageSize);
 
-        logger.info("WorkflowService initialized with useDirectSqs={}", useDirectSqs);
+        logger.info("WorkflowService initialized with outbox={}, awsTimeout={}", outbox.isEnabled(), awsTimeout);
     }
 
+    /**
+     * Persists the RECEIVED record and dispatches the event. Every AWS call is
+     * made through the async clients, so nothing here blocks the event loop.
+     * In outbox mode the dispatch is deferred to the {@link OutboxRelay} and
+     * the only work on the request path is the single DynamoDB write.
+     */
     public Mono<String> submit(String type, Object payload) {
-        String eventId = UUID.randomUUID().toString();
+        return submit(type, payload, null);
+    }
+
+    /**
+     * Submits an event under a client-supplied {@code Idempotency-Key}. A retry
+     * with the same key and body resolves to the original eventId without
+     * writing or dispatching anything again; the same key with a different
+     * body fails with {@link IdempotencyStore.KeyReuseException}, and a retry
+     * that arrives while the first submission is still being accepted fails
+     * with {@link IdempotencyStore.ClaimPendingException}. A retry after that
+     * submission stalled past the pending timeout resumes it under its eventId.
+     */
+    public Mono<String> submit(String type, Object payload, String idempotencyKey) {
+        return Mono.defer(() -> {
+            String eventId = UUID.randomUUID().toString();
+            WorkflowEventEncoder.Encoded encoded = dispatcher.encode(eventId, type, payload);
+            String orderingKey = EventDispatcher.orderingKey(payload);
+            if (idempotencyKey == null) {
+                return dispatch(eventId, type, encoded, orderingKey);
+            }
+            String requestHash = requestHash(type, encoded);
+            return idempotency.claim(idempotencyKey, requestHash, eventId)
+                    .flatMap(claim -> {
+                        if (claim.replay()) {
+                            return Mono.just(claim.eventId());
+                        }
+                        Mono<String> accepted = claim.resumed()
+                                ? resume(claim.eventId(), type, payload, orderingKey)
+                                : dispatch(eventId, type, encoded, orderingKey);
+                        return accepted
+                                .onErrorResume(ex -> idempotency.release(idempotencyKey, claim.eventId())
+                                        .then(Mono.error(ex)))
+                                .flatMap(id -> idempotency.complete(idempotencyKey, requestHash, id)
+                                        .thenReturn(id));
+                    });
+        });
+    }
+
+    /**
+     * Finishes a submission whose first attempt claimed its key and then
+     * stalled: if its RECEIVED record exists the event was accepted and its
+     * eventId is replayed, otherwise it is submitted now under that eventId.
+     */
+    private Mono<String> resume(String eventId, String type, Object payload, String orderingKey) {
+        return Mono.fromFuture(() -> dynamo.getItem(GetItemRequest.builder()
+                        .tableName(tableName)
+                        .key(Map.of("eventId", AttributeValue.fromS(eventId)))
+                        .consistentRead(true)
+                        .build()))
+                .timeout(awsTimeout)
+                .flatMap(resp -> {
+                    if (resp.hasItem() && !resp.item().isEmpty()) {
+                        logger.info("Resumed submission was already accepted: eventId={}", eventId);
+                        return Mono.just(eventId);
+                    }
+                    return dispatch(eventId, type, dispatcher.encode(eventId, type, payload), orderingKey);
+                });
+    }
+
+    private Mono<String> dispatch(String eventId, String type, WorkflowEventEncoder.Encoded encoded,
+                                  String orderingKey) {
         logger.info("Submitting new workflow event: type={}, eventId={}", type, eventId);
-        logger.debug("Workflow payload: {}", payload);
 
-        // 1. Persist a “RECEIVED” record
-        try {
-            writeInitialRecord(eventId, type);
-        } catch (Exception ex) {
-            return Mono.error(ex);
+        String body = encoded.body();
+        long receivedAt = System.currentTimeMillis();
+        if (outbox.isEnabled()) {
+            // RECEIVED record and outbox entry in one write; the relay sends it
+            Map<String, AttributeValue> item = initialRecord(eventId, type, receivedAt);
+            long stagedAt = outbox.stage(item, body);
+            return writeBatcher.put(item)
+                    .doOnSuccess(v -> {
+                        logger.info("Accepted workflow event into outbox: eventId={}", eventId);
+                        outbox.relayNow(eventId, type, body, orderingKey, stagedAt);
+                    })
+                    .doOnError(ex -> logger.error("Failed to submit workflow event: eventId={}", eventId, ex))
+                    .thenReturn(eventId);
         }
 
-        // 2. Serialise payload once (needed for EB path)
-        String detailJson;
-        try {
-            detailJson = serializePayload(payload, eventId);
-        } catch (Exception ex) {
-            return Mono.error(ex);
-        }
+        // 1. Persist a “RECEIVED” record, 2. then dispatch
+        return writeBatcher.put(initialRecord(eventId, type, receivedAt))
+                .then(dispatcher.send(eventId, type, body, orderingKey, receivedAt))
+                .doOnSuccess(v -> logger.info("Successfully submitted workflow event: eventId={}", eventId))
+                .doOnError(ex -> logger.error("Failed to submit workflow event: eventId={}", eventId, ex))
+                .thenReturn(eventId);
+    }
 
-        // 3. Dispatch
+    /**
+     * Fingerprint of a submission, so a reused key with a different body is
+     * detected. Hashes the already-encoded detail rather than serializing again.
+     */
+    private static String requestHash(String type, WorkflowEventEncoder.Encoded encoded) {
         try {
-            if (useDirectSqs) {
-                sendToSqs(eventId, type, payload);
-            } else {
-                publishToEventBridge(eventId, type, detailJson);
-            }
-        } catch (Exception ex) {
-            return Mono.error(ex);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(type.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(encoded.json(), encoded.detailStart(), encoded.detailEnd() - encoded.detailStart());
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Failed to fingerprint request", ex);
         }
+    }
+
+    /**
+     * Submits a stream of NDJSON lines, each a {@link BulkSubmitRequest}. Lines are
+     * pulled only as fast as submissions complete, with at most
+     * {@code workflow.bulk.concurrency} in flight, and results are emitted in
+     * line order. A bad line yields an error result without failing the stream.
+     */
+    public Flux<BulkSubmitResult> submitBulk(Flux<String> lines) {
+        return lines
+                .index((i, line) -> new IndexedLine(i + 1, line))
+                .filter(l -> !l.json().isBlank())
+                .flatMapSequential(this::submitLine, bulkConcurrency, 1);
+    }
+
+    private record IndexedLine(long line, String json) {
+    }
+
+    private record DecodedLine(String detailType, Object payload) {
+    }
 
-        logger.info("Successfully submitted workflow event: eventId={}", eventId);
-        return Mono.just(eventId);
+    private Mono<BulkSubmitResult> submitLine(IndexedLine l) {
+        return Mono.fromCallable(() -> decodeLine(l.json()))
+                .flatMap(d -> submit(d.detailType(), d.payload()))
+                .map(eventId -> BulkSubmitResult.accepted(l.line(), eventId))
+                .onErrorResume(ex -> {
+                    logger.warn("Rejected bulk line {}: {}", l.line(), ex.getMessage());
+                    return Mono.just(BulkSubmitResult.rejected(l.line(), ex.getMessage()));
+                });
     }
 
     /* --------------------------------------------------------------------- */
     /* Private helpers                                                       */
     /* --------------------------------------------------------------------- */
 
-    private void writeInitialRecord(String eventId, String type) {
-        Map<String, AttributeValue> item = Map.of(
-                "eventId", AttributeValue.builder().s(eventId).build(),
-                "type",    AttributeValue.builder().s(type).build(),
-                "status",  AttributeValue.builder().s("RECEIVED").build()
-        );
+    private DecodedLine decodeLine(String json) throws JsonProcessingException {
+        BulkSubmitRequest req = mapper.readValue(json, BulkSubmitRequest.class);
+        Class<?> payloadType = WorkflowTypes.payloadType(req.detailType());
+        if (payloadType == null) {
+            throw new IllegalArgumentException("Unsupported detailType: " + req.detailType());
+        }
+        if (req.detail() == null || !req.detail().isObject()) {
+            throw new IllegalArgumentException("Missing detail object");
+        }
+        return new DecodedLine(req.detailType(), mapper.treeToValue(req.detail(), payloadType));
+    }
 
-        logger.debug("Writing initial record to DynamoDB: table={}, eventId={}", tableName, eventId);
-        dynamo.putItem(PutItemRequest.builder()
-                .tableName(tableName)
-                .item(item)
-                .build()
-        );
-    }
-
-    private String serializePayload(Object payload, String eventId) throws JsonProcessingException {
-        String json = mapper.writeValueAsString(payload);
-        logger.info("Serialized payload for event: eventId={}", eventId);
-        return json;
-    }
-
-    private void sendToSqs(String eventId, String type, Object payload) throws Exception {
-        String queueUrl = sqs.getQueueUrl(GetQueueUrlRequest.builder()
-                .queueName(queueName)
-                .build()).queueUrl();
-
-        WorkflowEvent workflowEvent = new WorkflowEvent(
-                eventId,
-                type,
-                mapper.valueToTree(payload) // to JsonNode
-        );
-        String message = mapper.writeValueAsString(workflowEvent);
-
-        logger.info("Sending message directly to SQS: queue={}, eventId={}", queueName, eventId);
-        sqs.sendMessage(SendMessageRequest.builder()
-                .queueUrl(queueUrl)
-                .messageBody(message)
-                .messageAttributes(Map.of(
-                        "eventId", software.amazon.awssdk.services.sqs.model.MessageAttributeValue.builder()
-                                .dataType("String").stringValue(eventId).build(),
-                        "type", software.amazon.awssdk.services.sqs.model.MessageAttributeValue.builder()
-                                .dataType("String").stringValue(type).build()
-                ))
-                .build());
-        logger.info("Successfully sent message to SQS: eventId={}", eventId);
-    }
-
-    private void publishToEventBridge(String eventId, String type, String detailJson) {
-        PutEventsRequestEntry entry = PutEventsRequestEntry.builder()
-                .eventBusName(eventBusName)
-                .source("com.solance.workflow")
-                .detailType(type)
-                .detail(detailJson)
-                .build();
+    private Map<String, AttributeValue> initialRecord(String eventId, String type, long receivedAt) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("eventId", AttributeValue.builder().s(eventId).build());
+        item.put("type",    AttributeValue.builder().s(type).build());
+        item.put("status",  AttributeValue.builder().s("RECEIVED").build());
+        item.put("receivedAt", AttributeValue.builder().n(Long.toString(receivedAt)).build());
+        return item;
+    }
 
-        logger.info("Publishing event to EventBridge: eventBus={}, eventId={}", eventBusName, eventId);
-        eb.putEvents(PutEventsRequest.builder()
-                .entries(entry)
-                .build());
-        logger.info("Successfully published event to EventBridge: eventId={}", eventId);
+    /**
+     * Streams every workflow event matching the optional {@code status} and
+     * {@code type} filters. Unfiltered reads scan the table; filtered reads
+     * query the matching index, so they cost O(matches) rather than O(table).
+     * Pages of {@code workflow.events.page-size} items are fetched lazily as
+     * the subscriber requests more, so memory stays flat regardless of size.
+     * While the in-memory {@link EventStatusView} is current, it serves the
+     * unfiltered listing instead of the scan; filtered reads always go to the
+     * index, which is already O(matches).
+     */
+    public Flux<WorkflowEventRecord> listEvents(String status, String type) {
+        if (status == null && type == null) {
+            if (statusView.isReady()) {
+                logger.debug("Serving workflow events from status view");
+                return statusView.list(null, null);
+            }
+            logger.info("Streaming all workflow events: table={}, pageSize={}", tableName, scanPageSize);
+            return Flux.from(dynamo.scanPaginator(ScanRequest.builder()
+                                    .tableName(tableName)
+                                    .limit(scanPageSize)
+                                    .build())
+                            .items())
+                    .doOnError(e -> logger.error("Failed to scan DynamoDB table: {}", tableName, e))
+                    .map(this::toRecord);
+        }
+
+        QueryRequest query = filteredQuery(status, type).limit(scanPageSize).build();
+        logger.info("Streaming workflow events from index: index={}, status={}, type={}", query.indexName(), status, type);
+        return Flux.from(dynamo.queryPaginator(query).items())
+                .doOnError(e -> logger.error("Failed to query DynamoDB index: {}", query.indexName(), e))
+                .map(this::toRecord);
     }
 
-    public Flux<WorkflowEventRecord> listEvents() {
-        logger.info("Listing all workflow events");
+    /**
+     * Reads a single page of at most {@code limit} events, optionally filtered
+     * by {@code status} and/or {@code type}, starting after the given cursor.
+     *
+     * @throws IllegalArgumentException (as an error signal) for a malformed cursor
+     */
+    public Mono<EventPage> listEventsPage(int limit, String cursor, String status, String type) {
+        return Mono.fromCallable(() -> cursorCodec.decode(cursor))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(startKey -> status == null && type == null
+                        ? scanPage(limit, startKey.orElse(null))
+                        : queryPage(limit, startKey.orElse(null), status, type))
+                .timeout(awsTimeout)
+                .map(page -> {
+                    logger.debug("Retrieved {} workflow events from DynamoDB", page.items().size());
+                    return page;
+                });
+    }
 
-        return Flux.defer(() -> {
-            logger.debug("Scanning DynamoDB table: {}", tableName);
-            try {
-                ScanResponse resp = dynamo.scan(ScanRequest.builder()
-                        .tableName(tableName)
-                        .build());
-
-                logger.debug("Retrieved {} workflow events from DynamoDB", resp.items().size());
-                return Flux.fromIterable(resp.items())
-                        .map(item -> {
-                            WorkflowEventRecord record = WorkflowEventRecord.fromDynamo(item);
-                            logger.trace("Mapped DynamoDB item to WorkflowEventRecord: eventId={}, detailType={}, status={}", 
-                                    record.eventId(), record.detailType(), record.status());
-                            return record;
-                        });
-            } catch (Exception e) {
-                logger.error("Failed to scan DynamoDB table: {}", tableName, e);
-                return Flux.error(e);
+    private Mono<EventPage> scanPage(int limit, Map<String, AttributeValue> startKey) {
+        return Mono.fromFuture(() -> {
+                    logger.debug("Scanning DynamoDB table page: table={}, limit={}", tableName, limit);
+                    return dynamo.scan(ScanRequest.builder()
+                            .tableName(tableName)
+                            .limit(limit)
+                            .exclusiveStartKey(startKey)
+                            .build());
+                })
+                .doOnError(e -> logger.error("Failed to scan DynamoDB table: {}", tableName, e))
+                .map(resp -> new EventPage(
+                        resp.items().stream().map(this::toRecord).toList(),
+                        resp.hasLastEvaluatedKey() ? cursorCodec.encode(resp.lastEvaluatedKey()) : null));
+    }
+
+    private Mono<EventPage> queryPage(int limit, Map<String, AttributeValue> startKey, String status, String type) {
+        QueryRequest query = filteredQuery(status, type)
+                .limit(limit)
+                .exclusiveStartKey(startKey)
+                .build();
+        return Mono.fromFuture(() -> {
+                    logger.debug("Querying DynamoDB index page: index={}, limit={}", query.indexName(), limit);
+                    return dynamo.query(query);
+                })
+                .doOnError(e -> logger.error("Failed to query DynamoDB index: {}", query.indexName(), e))
+                .map(resp -> new EventPage(
+                        resp.items().stream().map(this::toRecord).toList(),
+                        resp.hasLastEvaluatedKey() ? cursorCodec.encode(resp.lastEvaluatedKey()) : null));
+    }
+
+    /**
+     * Picks the index whose key covers the filter: the status index when a
+     * status is given (with type as its sort key), otherwise the type index.
+     */
+    private QueryRequest.Builder filteredQuery(String status, String type) {
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        String index;
+        String condition;
+        if (status != null) {
+            index = STATUS_INDEX;
+            condition = "#st = :st";
+            names.put("#st", "status");
+            values.put(":st", AttributeValue.builder().s(status).build());
+            if (type != null) {
+                condition += " AND #ty = :ty";
+                names.put("#ty", "type");
+                values.put(":ty", AttributeValue.builder().s(type).build());
             }
-        });
+        } else {
+            index = TYPE_INDEX;
+            condition = "#ty = :ty";
+            names.put("#ty", "type");
+            values.put(":ty", AttributeValue.builder().s(type).build());
+        }
+        return QueryRequest.builder()
+                .tableName(tableName)
+                .indexName(index)
+                .keyConditionExpression(condition)
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values);
+    }
+
+    private WorkflowEventRecord toRecord(Map<String, AttributeValue> item) {
+        WorkflowEventRecord record = WorkflowEventRecord.fromDynamo(item);
+        logger.trace("Mapped DynamoDB item to WorkflowEventRecord: eventId={}, detailType={}, status={}",
+                record.eventId(), record.detailType(), record.status());
+        return record;
     }
 }
@@ -0,0 +1,224 @@
+package solanceworkflowplatform.services.view;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DescribeStreamRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.ExpiredIteratorException;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetShardIteratorRequest;
+import software.amazon.awssdk.services.dynamodb.model.OperationType;
+import software.amazon.awssdk.services.dynamodb.model.Record;
+import software.amazon.awssdk.services.dynamodb.model.Shard;
+import software.amazon.awssdk.services.dynamodb.model.ShardIteratorType;
+import software.amazon.awssdk.services.dynamodb.model.StreamDescription;
+import software.amazon.awssdk.services.dynamodb.model.TrimmedDataAccessException;
+import software.amazon.awssdk.services.dynamodb.streams.DynamoDbStreamsClient;
+import solanceworkflowplatform.services.model.EventChange;
+import solanceworkflowplatform.services.model.WorkflowEventRecord;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Change feed backed by the workflow table's DynamoDB stream (NEW_IMAGE).
+ * A single poller thread walks the open shards, following shard splits: shards
+ * present at start are read from LATEST, shards that appear later from
+ * TRIM_HORIZON, and a child shard is only read once its parent is drained.
+ * <p>
+ * Opt-in ({@code workflow.view.change-feed=dynamodb-streams}): every task that
+ * enables it polls every shard, and DynamoDB Streams throttles GetRecords above
+ * about two readers per shard. Enable it on at most two API tasks; the others
+ * serve {@code /events} from the table.
+ */
+@Component
+@ConditionalOnProperty(name = "workflow.view.change-feed", havingValue = "dynamodb-streams")
+public class DynamoStreamsChangeFeed implements EventChangeFeed {
+    private static final Logger logger = LoggerFactory.getLogger(DynamoStreamsChangeFeed.class);
+
+    private final DynamoDbClient dynamo;
+    private final DynamoDbStreamsClient streams;
+    private final String tableName;
+    private final long pollIntervalMs;
+    private final long shardRefreshMs;
+    private final Scheduler poller = Schedulers.newSingle("ddb-stream-poller", true);
+
+    private volatile Instant lastSyncedAt = Instant.EPOCH;
+
+    public DynamoStreamsChangeFeed(
+            DynamoDbClient dynamo,
+            DynamoDbStreamsClient streams,
+            @Value("${DDB_TABLE:solance-workflow}") String tableName,
+            @Value("${workflow.view.stream.poll-interval-ms:1000}") long pollIntervalMs,
+            @Value("${workflow.view.stream.shard-refresh-ms:30000}") long shardRefreshMs
+    ) {
+        this.dynamo = dynamo;
+        this.streams = streams;
+        this.tableName = tableName;
+        this.pollIntervalMs = pollIntervalMs;
+        this.shardRefreshMs = shardRefreshMs;
+    }
+
+    @Override
+    public Flux<EventChange> changes() {
+        return Flux.create(sink -> {
+            StreamState state = new StreamState();
+            Disposable task = poller.schedulePeriodically(
+                    () -> poll(state, sink), 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+            sink.onDispose(task);
+        });
+    }
+
+    @Override
+    public Instant lastSyncedAt() {
+        return lastSyncedAt;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.dispose();
+    }
+
+    /* ---------- polling ---------------------------------------------------- */
+
+    /** Per-subscription position in the stream; only touched by the poller thread. */
+    private static final class StreamState {
+        String streamArn;
+        boolean initial = true;
+        long lastShardRefresh;
+        final Map<String, String> iterators = new HashMap<>();
+        final Set<String> drained = new HashSet<>();
+    }
+
+    private void poll(StreamState state, FluxSink<EventChange> sink) {
+        try {
+            if (state.streamArn == null) {
+                state.streamArn = dynamo.describeTable(DescribeTableRequest.builder()
+                        .tableName(tableName)
+                        .build()).table().latestStreamArn();
+                if (state.streamArn == null) {
+                    throw new IllegalStateException("DynamoDB streams are not enabled on table " + tableName);
+                }
+                logger.info("Following DynamoDB stream: table={}, stream={}", tableName, state.streamArn);
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - state.lastShardRefresh >= shardRefreshMs) {
+                refreshShards(state);
+                state.lastShardRefresh = now;
+            }
+
+            for (String shardId : new ArrayList<>(state.iterators.keySet())) {
+                readShard(state, shardId, sink);
+            }
+            lastSyncedAt = Instant.now();
+        } catch (Exception ex) {
+            logger.warn("DynamoDB stream poll failed: table={}, error={}", tableName, ex.toString());
+        }
+    }
+
+    private void refreshShards(StreamState state) {
+        List<Shard> shards = new ArrayList<>();
+        String startShardId = null;
+        do {
+            StreamDescription description = streams.describeStream(DescribeStreamRequest.builder()
+                    .streamArn(state.streamArn)
+                    .exclusiveStartShardId(startShardId)
+                    .build()).streamDescription();
+            shards.addAll(description.shards());
+            startShardId = description.lastEvaluatedShardId();
+        } while (startShardId != null);
+
+        Set<String> present = new HashSet<>();
+        for (Shard shard : shards) {
+            String shardId = shard.shardId();
+            present.add(shardId);
+            if (state.iterators.containsKey(shardId) || state.drained.contains(shardId)) {
+                continue;
+            }
+            boolean closed = shard.sequenceNumberRange() != null
+                    && shard.sequenceNumberRange().endingSequenceNumber() != null;
+            if (state.initial && closed) {
+                // History from before we started is covered by the bootstrap scan
+                state.drained.add(shardId);
+                continue;
+            }
+            if (shard.parentShardId() != null && state.iterators.containsKey(shard.parentShardId())) {
+                continue; // keep per-item order: finish the parent first
+            }
+            openShard(state, shardId, state.initial ? ShardIteratorType.LATEST : ShardIteratorType.TRIM_HORIZON);
+        }
+        state.drained.retainAll(present);
+        state.initial = false;
+    }
+
+    private void openShard(StreamState state, String shardId, ShardIteratorType type) {
+        String iterator = streams.getShardIterator(GetShardIteratorRequest.builder()
+                .streamArn(state.streamArn)
+                .shardId(shardId)
+                .shardIteratorType(type)
+                .build()).shardIterator();
+        state.iterators.put(shardId, iterator);
+        logger.debug("Reading stream shard: shard={}, from={}", shardId, type);
+    }
+
+    private void readShard(StreamState state, String shardId, FluxSink<EventChange> sink) {
+        GetRecordsResponse resp;
+        try {
+            resp = streams.getRecords(GetRecordsRequest.builder()
+                    .shardIterator(state.iterators.get(shardId))
+                    .limit(1000)
+                    .build());
+        } catch (ExpiredIteratorException | TrimmedDataAccessException ex) {
+            // Re-acquired on the next shard refresh
+            logger.warn("Lost position in stream shard, re-reading it: shard={}, error={}", shardId, ex.toString());
+            state.iterators.remove(shardId);
+            state.lastShardRefresh = 0;
+            return;
+        }
+
+        for (Record record : resp.records()) {
+            sink.next(toChange(record));
+        }
+
+        if (resp.nextShardIterator() == null) {
+            // Shard closed after a split; its children become readable now
+            state.iterators.remove(shardId);
+            state.drained.add(shardId);
+            state.lastShardRefresh = 0;
+        } else {
+            state.iterators.put(shardId, resp.nextShardIterator());
+        }
+    }
+
+    private static EventChange toChange(Record record) {
+        Instant at = record.dynamodb().approximateCreationDateTime() != null
+                ? record.dynamodb().approximateCreationDateTime()
+                : Instant.now();
+        String eventId = record.dynamodb().keys().get("eventId").s();
+        if (record.eventName() == OperationType.REMOVE) {
+            return EventChange.removal(eventId, at);
+        }
+        Map<String, AttributeValue> image = new HashMap<>(record.dynamodb().newImage());
+        image.putIfAbsent("eventId", AttributeValue.fromS(eventId));
+        return EventChange.upsert(WorkflowEventRecord.fromDynamo(image), at);
+    }
+}
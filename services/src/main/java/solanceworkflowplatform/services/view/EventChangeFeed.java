@@ -0,0 +1,18 @@
+package solanceworkflowplatform.services.view;
+
+import reactor.core.publisher.Flux;
+import solanceworkflowplatform.services.model.EventChange;
+
+import java.time.Instant;
+
+/**
+ * Source of changes to the workflow table, used to keep {@link EventStatusView} current.
+ */
+public interface EventChangeFeed {
+
+    /** Changes made from (about) the moment of subscription onwards, in per-event order. */
+    Flux<EventChange> changes();
+
+    /** When the feed last confirmed it had delivered every change it knows of. */
+    Instant lastSyncedAt();
+}
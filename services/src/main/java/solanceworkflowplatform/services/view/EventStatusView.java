@@ -0,0 +1,291 @@
+package solanceworkflowplatform.services.view;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import solanceworkflowplatform.services.model.EventChange;
+import solanceworkflowplatform.services.model.WorkflowEventRecord;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process materialized view of {@code eventId -> (type, status, timestamps)}.
+ * Bootstrapped once with a table scan and then kept current from an
+ * {@link EventChangeFeed}, so listing events does not touch DynamoDB.
+ * <p>
+ * Size is bounded by {@code workflow.view.max-entries}: events that reached a
+ * terminal status are evicted oldest-first once the view is full or once they
+ * are older than {@code workflow.view.terminal-retention-ms}. The view reports
+ * itself not {@link #isReady() ready} until the bootstrap has finished, or
+ * while the feed is more than {@code workflow.view.max-staleness-ms} behind.
+ * Without a change feed ({@code workflow.view.change-feed=none}, the default)
+ * the view stays disabled.
+ */
+@Component
+public class EventStatusView {
+    private static final Logger logger = LoggerFactory.getLogger(EventStatusView.class);
+
+    /**
+     * Compact per-event state; the type and status strings are shared constants.
+     * Lifecycle timestamps are epoch millis, {@code 0} if not reached;
+     * {@code updatedAtMillis} is when the view last changed the entry.
+     */
+    static final class Entry {
+        final String type;
+        final String status;
+        final long receivedAtMillis;
+        final long dequeuedAtMillis;
+        final long startedAtMillis;
+        final long completedAtMillis;
+        final long updatedAtMillis;
+
+        Entry(String type, String status, long receivedAtMillis, long dequeuedAtMillis, long startedAtMillis,
+              long completedAtMillis, long updatedAtMillis) {
+            this.type = type;
+            this.status = status;
+            this.receivedAtMillis = receivedAtMillis;
+            this.dequeuedAtMillis = dequeuedAtMillis;
+            this.startedAtMillis = startedAtMillis;
+            this.completedAtMillis = completedAtMillis;
+            this.updatedAtMillis = updatedAtMillis;
+        }
+
+        WorkflowEventRecord toRecord(String eventId) {
+            return new WorkflowEventRecord(eventId, type, status, instant(receivedAtMillis),
+                    instant(dequeuedAtMillis), instant(startedAtMillis), instant(completedAtMillis));
+        }
+
+        boolean isTerminal() {
+            return isTerminal(status);
+        }
+
+        static boolean isTerminal(String status) {
+            return "COMPLETED".equals(status) || "FAILED".equals(status);
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> terminalOrder = new ConcurrentLinkedQueue<>();
+    private final Map<String, String> canonical = new ConcurrentHashMap<>();
+
+    private final DynamoDbAsyncClient dynamo;
+    private final EventChangeFeed feed;
+    private final EventStreamBroadcaster broadcaster;
+    private final String tableName;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long terminalRetentionMs;
+    private final long maxStalenessMs;
+    private final int pageSize;
+    private final Counter evictions;
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    private volatile boolean bootstrapped;
+
+    public EventStatusView(
+            DynamoDbAsyncClient dynamo,
+            ObjectProvider<EventChangeFeed> feeds,
+            EventStreamBroadcaster broadcaster,
+            MeterRegistry meterRegistry,
+            @Value("${DDB_TABLE:solance-workflow}") String tableName,
+            @Value("${workflow.view.enabled:true}") boolean enabled,
+            @Value("${workflow.view.max-entries:200000}") int maxEntries,
+            @Value("${workflow.view.terminal-retention-ms:3600000}") long terminalRetentionMs,
+            @Value("${workflow.view.max-staleness-ms:30000}") long maxStalenessMs,
+            @Value("${workflow.events.page-size:500}") int pageSize
+    ) {
+        this.dynamo = dynamo;
+        this.feed = feeds.getIfAvailable();
+        this.broadcaster = broadcaster;
+        this.tableName = tableName;
+        this.enabled = enabled && feed != null;
+        this.maxEntries = maxEntries;
+        this.terminalRetentionMs = terminalRetentionMs;
+        this.maxStalenessMs = maxStalenessMs;
+        this.pageSize = pageSize;
+        this.evictions = Counter.builder("workflow.view.evictions")
+                .description("Terminal events evicted from the status view")
+                .register(meterRegistry);
+        Gauge.builder("workflow.view.size", entries, Map::size)
+                .description("Events held in the status view")
+                .register(meterRegistry);
+        Gauge.builder("workflow.view.staleness", this, EventStatusView::stalenessSeconds)
+                .description("Seconds since the change feed last confirmed the view was current")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("Event status view disabled (or no change feed configured); /events is served from DynamoDB");
+            return;
+        }
+        // Follow the feed first so nothing written during the scan is missed
+        subscriptions.add(feed.changes()
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(this::apply, ex -> logger.error("Event status view lost its change feed", ex)));
+        subscriptions.add(bootstrap());
+        subscriptions.add(Schedulers.parallel().schedulePeriodically(this::evict, 5, 5, TimeUnit.SECONDS));
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscriptions.dispose();
+    }
+
+    /** True once bootstrapped and while the change feed is keeping up. */
+    public boolean isReady() {
+        return enabled && bootstrapped && stalenessSeconds() * 1000 <= maxStalenessMs;
+    }
+
+    /** Events currently in the view, optionally filtered; iterates live without copying. */
+    public Flux<WorkflowEventRecord> list(String status, String type) {
+        return Flux.fromStream(() -> entries.entrySet().stream()
+                .filter(e -> status == null || status.equals(e.getValue().status))
+                .filter(e -> type == null || type.equals(e.getValue().type))
+                .map(e -> e.getValue().toRecord(e.getKey())));
+    }
+
+    /**
+     * Applies one change; feed changes are per-event ordered, so the latest always wins.
+     * Status changes are handed to the {@link EventStreamBroadcaster}.
+     */
+    public void apply(EventChange change) {
+        if (change.removed()) {
+            entries.remove(change.eventId());
+            return;
+        }
+        long at = change.changedAt().toEpochMilli();
+        Entry previous = entries.get(change.eventId());
+        Entry next = new Entry(
+                canonical(change.detailType() != null ? change.detailType() : previous != null ? previous.type : null),
+                canonical(change.status()),
+                millis(change.receivedAt(), previous != null ? previous.receivedAtMillis : 0),
+                millis(change.dequeuedAt(), previous != null ? previous.dequeuedAtMillis : 0),
+                millis(change.startedAt(), previous != null ? previous.startedAtMillis : 0),
+                millis(change.completedAt(), previous != null ? previous.completedAtMillis : 0),
+                at);
+        entries.put(change.eventId(), next);
+        if (previous == null || !Objects.equals(previous.status, next.status)) {
+            broadcaster.publish(change.eventId(), next.type, previous != null ? previous.status : null,
+                    next.status, change.changedAt());
+        }
+        if (next.isTerminal() && (previous == null || !previous.isTerminal())) {
+            terminalOrder.add(change.eventId());
+        }
+        if (entries.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private Disposable bootstrap() {
+        long started = System.currentTimeMillis();
+        return Flux.defer(() -> Flux.from(dynamo.scanPaginator(ScanRequest.builder()
+                                .tableName(tableName)
+                                .limit(pageSize)
+                                .build())
+                        .items()))
+                .map(WorkflowEventRecord::fromDynamo)
+                .doOnNext(r -> merge(r, started))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(s -> logger.warn("Event status view bootstrap failed, retrying: {}",
+                                s.failure().toString())))
+                .count()
+                .subscribe(count -> {
+                    bootstrapped = true;
+                    logger.info("Event status view bootstrapped: events={}, durationMs={}",
+                            count, System.currentTimeMillis() - started);
+                });
+    }
+
+    /**
+     * Folds a scanned row in without overwriting newer state from the feed:
+     * statuses only move forward, so a scanned row only wins if it is further along.
+     */
+    private void merge(WorkflowEventRecord record, long scannedAt) {
+        entries.compute(record.eventId(), (id, existing) -> {
+            if (existing != null && rank(existing.status) >= rank(record.status())) {
+                return existing;
+            }
+            if (Entry.isTerminal(record.status())) {
+                terminalOrder.add(id);
+            }
+            return new Entry(canonical(record.detailType()), canonical(record.status()),
+                    millis(record.receivedAt(), 0), millis(record.dequeuedAt(), 0), millis(record.startedAt(), 0),
+                    millis(record.completedAt(), 0), scannedAt);
+        });
+    }
+
+    private static int rank(String status) {
+        if (status == null) {
+            return -1;
+        }
+        return switch (status) {
+            case "RECEIVED" -> 0;
+            case "PROCESSING" -> 1;
+            case "COMPLETED", "FAILED" -> 2;
+            default -> -1;
+        };
+    }
+
+    /** Evicts terminal events, oldest first, while over capacity or past retention. */
+    private synchronized void evict() {
+        long cutoff = System.currentTimeMillis() - terminalRetentionMs;
+        String eventId;
+        while ((eventId = terminalOrder.peek()) != null) {
+            Entry entry = entries.get(eventId);
+            if (entry == null || !entry.isTerminal()) {
+                terminalOrder.poll();
+                continue;
+            }
+            if (entries.size() <= maxEntries && entry.updatedAtMillis >= cutoff) {
+                break;
+            }
+            entries.remove(eventId, entry);
+            terminalOrder.poll();
+            evictions.increment();
+        }
+    }
+
+    private double stalenessSeconds() {
+        if (feed == null) {
+            return 0;
+        }
+        return Math.max(0, Duration.between(feed.lastSyncedAt(), Instant.now()).toMillis()) / 1000.0;
+    }
+
+    private static long millis(Instant at, long otherwise) {
+        return at != null ? at.toEpochMilli() : otherwise;
+    }
+
+    private static Instant instant(long millis) {
+        return millis != 0 ? Instant.ofEpochMilli(millis) : null;
+    }
+
+    private String canonical(String value) {
+        return value == null ? null : canonical.computeIfAbsent(value, v -> v);
+    }
+}
@@ -0,0 +1,172 @@
+package solanceworkflowplatform.services.view;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import solanceworkflowplatform.services.model.StatusTransition;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans status transitions out to SSE subscribers. Every subscriber shares the
+ * single upstream of {@link EventStatusView}; the last
+ * {@code workflow.sse.replay-size} transitions are retained so a reconnecting
+ * client can resume from its {@code Last-Event-ID}.
+ * <p>
+ * Each subscriber gets its own buffer of {@code workflow.sse.buffer-size}.
+ * When a client cannot keep up, {@code workflow.sse.slow-consumer} decides
+ * what happens: {@code drop-oldest} discards the oldest buffered transitions
+ * (the client sees a gap in ids), {@code disconnect} ends the response so the
+ * client reconnects and resumes from the replay buffer.
+ */
+@Component
+public class EventStreamBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(EventStreamBroadcaster.class);
+
+    /** SSE event name telling the client to reload {@code GET /events}: it missed transitions we no longer hold. */
+    static final String RESET_EVENT = "reset";
+
+    private final Sinks.Many<StatusTransition> sink;
+    private final int replaySize;
+    private final int bufferSize;
+    private final boolean disconnectSlowConsumers;
+    private final Duration heartbeat;
+    private final Counter dropped;
+    private final Counter disconnected;
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    /** Distinguishes ids issued by this process from those of a previous instance. */
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private long sequence;
+
+    public EventStreamBroadcaster(
+            MeterRegistry meterRegistry,
+            @Value("${workflow.sse.replay-size:1024}") int replaySize,
+            @Value("${workflow.sse.buffer-size:256}") int bufferSize,
+            @Value("${workflow.sse.slow-consumer:drop-oldest}") String slowConsumer,
+            @Value("${workflow.sse.heartbeat-ms:15000}") long heartbeatMs
+    ) {
+        if (!"drop-oldest".equals(slowConsumer) && !"disconnect".equals(slowConsumer)) {
+            throw new IllegalArgumentException("workflow.sse.slow-consumer must be drop-oldest or disconnect: " + slowConsumer);
+        }
+        this.replaySize = Math.max(1, replaySize);
+        this.bufferSize = Math.max(1, bufferSize);
+        this.disconnectSlowConsumers = "disconnect".equals(slowConsumer);
+        this.heartbeat = Duration.ofMillis(heartbeatMs);
+        this.sink = Sinks.many().replay().limit(this.replaySize);
+        this.dropped = Counter.builder("workflow.sse.dropped")
+                .description("Transitions dropped for slow SSE subscribers")
+                .register(meterRegistry);
+        this.disconnected = Counter.builder("workflow.sse.disconnected")
+                .description("SSE subscribers disconnected for falling behind")
+                .register(meterRegistry);
+        Gauge.builder("workflow.sse.subscribers", subscribers, AtomicInteger::get)
+                .description("Open SSE subscriptions")
+                .register(meterRegistry);
+    }
+
+    /** Records one transition; called by the view in feed order. */
+    synchronized void publish(String eventId, String detailType, String previousStatus, String status, Instant at) {
+        StatusTransition transition = new StatusTransition(++sequence, eventId, detailType, previousStatus, status, at);
+        Sinks.EmitResult result = sink.tryEmitNext(transition);
+        if (result.isFailure()) {
+            logger.warn("Failed to broadcast status transition: eventId={}, result={}", eventId, result);
+        }
+    }
+
+    /**
+     * Live transitions for one client. With a {@code lastEventId} from this
+     * instance that is still in the replay buffer, everything after it is
+     * replayed first; otherwise a {@value #RESET_EVENT} event is sent before
+     * the live stream.
+     */
+    public Flux<ServerSentEvent<StatusTransition>> subscribe(String lastEventId) {
+        return Flux.defer(() -> {
+            long current;
+            synchronized (this) {
+                current = sequence;
+            }
+            long resumeAfter = current;
+            boolean reset = false;
+            if (lastEventId != null) {
+                long requested = parseSequence(lastEventId);
+                if (requested >= 0 && requested >= current - replaySize && requested <= current) {
+                    resumeAfter = requested;
+                } else {
+                    reset = true;
+                }
+            }
+
+            long after = resumeAfter;
+            Flux<ServerSentEvent<StatusTransition>> events = Flux.merge(
+                    sink.asFlux()
+                            .filter(t -> t.seq() > after)
+                            .map(this::toEvent),
+                    Flux.interval(heartbeat)
+                            .map(tick -> ServerSentEvent.<StatusTransition>builder().comment("keepalive").build()));
+            if (reset) {
+                events = events.startWith(ServerSentEvent.<StatusTransition>builder()
+                        .event(RESET_EVENT)
+                        .id(id(current))
+                        // EventSource only dispatches events that carry data
+                        .data(new StatusTransition(current, null, null, null, null, Instant.now()))
+                        .build());
+            }
+            return withBuffer(events)
+                    .doOnSubscribe(s -> subscribers.incrementAndGet())
+                    .doFinally(signal -> subscribers.decrementAndGet());
+        });
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private Flux<ServerSentEvent<StatusTransition>> withBuffer(Flux<ServerSentEvent<StatusTransition>> events) {
+        if (!disconnectSlowConsumers) {
+            return events.onBackpressureBuffer(bufferSize, evicted -> dropped.increment(),
+                    BufferOverflowStrategy.DROP_OLDEST);
+        }
+        return events.onBackpressureBuffer(bufferSize, evicted -> { }, BufferOverflowStrategy.ERROR)
+                .onErrorResume(Exceptions::isOverflow, ex -> {
+                    // Ending the response lets EventSource reconnect with Last-Event-ID
+                    disconnected.increment();
+                    logger.info("Disconnecting slow SSE subscriber: bufferSize={}", bufferSize);
+                    return Flux.empty();
+                });
+    }
+
+    private ServerSentEvent<StatusTransition> toEvent(StatusTransition transition) {
+        return ServerSentEvent.<StatusTransition>builder()
+                .id(id(transition.seq()))
+                .event("status")
+                .data(transition)
+                .build();
+    }
+
+    private String id(long seq) {
+        return epoch + "-" + seq;
+    }
+
+    /** Sequence of an id issued by this instance, or -1 for ids we cannot resume from. */
+    private long parseSequence(String lastEventId) {
+        int dash = lastEventId.lastIndexOf('-');
+        if (dash <= 0 || !epoch.equals(lastEventId.substring(0, dash))) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(dash + 1));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+}
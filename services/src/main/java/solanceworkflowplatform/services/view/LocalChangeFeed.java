@@ -0,0 +1,37 @@
+package solanceworkflowplatform.services.view;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import solanceworkflowplatform.services.model.EventChange;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * In-process stand-in for the DynamoDB stream, for tests and local runs without
+ * streams support ({@code workflow.view.change-feed=local}). Changes are pushed
+ * in with {@link #publish}.
+ */
+@Component
+@ConditionalOnProperty(name = "workflow.view.change-feed", havingValue = "local")
+public class LocalChangeFeed implements EventChangeFeed {
+
+    private final Sinks.Many<EventChange> sink = Sinks.many().multicast().onBackpressureBuffer();
+
+    public void publish(EventChange change) {
+        sink.emitNext(change, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+    }
+
+    @Override
+    public Flux<EventChange> changes() {
+        return sink.asFlux();
+    }
+
+    @Override
+    public Instant lastSyncedAt() {
+        // Everything published has already been delivered
+        return Instant.now();
+    }
+}
@@ -0,0 +1,58 @@
+package solanceworkflowplatform.services.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit) {
+        return new AdaptiveConcurrencyLimiter(new SimpleMeterRegistry(),
+                initialLimit, 1, 100, 2.0, 0.2, 0.9, 30_000, 0);
+    }
+
+    @Test
+    void rejectsOnceTheLimitIsInUse() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            permits.add(assertNotNullAndReturn(limiter.tryAcquire()));
+        }
+
+        assertNull(limiter.tryAcquire());
+        permits.get(0).ignore();
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    void failuresBackOffMultiplicatively() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+
+        limiter.tryAcquire().failure();
+        assertEquals(9, limiter.getLimit());
+        limiter.tryAcquire().failure();
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void releasingTwiceIsHarmless() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+
+        permit.failure();
+        permit.failure();
+        assertEquals(0, limiter.getInflight());
+        assertEquals(9, limiter.getLimit());
+    }
+
+    private static AdaptiveConcurrencyLimiter.Permit assertNotNullAndReturn(AdaptiveConcurrencyLimiter.Permit permit) {
+        assertNotNull(permit);
+        return permit;
+    }
+}
@@ -0,0 +1,82 @@
+package solanceworkflowplatform.services.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoalescingBatcherTest {
+
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    private CoalescingBatcher<String, String> batcher(int maxEntries, long maxBytes, Duration linger) {
+        return new CoalescingBatcher<>("test", maxEntries, maxBytes, linger, batch -> {
+            batchSizes.add(batch.size());
+            batch.forEach(e -> {
+                if (e.item().startsWith("bad")) {
+                    e.fail(new IllegalStateException("rejected " + e.item()));
+                } else {
+                    e.complete(e.item().toUpperCase());
+                }
+            });
+            return Mono.empty();
+        }, Schedulers.parallel(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void concurrentSubmitsAreCoalescedUpToMaxEntries() {
+        CoalescingBatcher<String, String> batcher = batcher(10, 1024, Duration.ofMillis(50));
+
+        List<String> results = Flux.range(0, 25)
+                .flatMap(i -> batcher.submit("m" + i, 1))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(25, results.size());
+        assertEquals(List.of(10, 10, 5), batchSizes);
+    }
+
+    @Test
+    void byteCapClosesTheBatchEarly() {
+        CoalescingBatcher<String, String> batcher = batcher(10, 100, Duration.ofMillis(50));
+
+        Flux.range(0, 4)
+                .flatMap(i -> batcher.submit("m" + i, 40))
+                .blockLast(Duration.ofSeconds(5));
+
+        assertEquals(List.of(2, 2), batchSizes);
+    }
+
+    @Test
+    void eachCallerSeesOnlyItsOwnOutcome() {
+        CoalescingBatcher<String, String> batcher = batcher(10, 1024, Duration.ofMillis(20));
+
+        Mono<String> good = batcher.submit("good", 1).cache();
+        Mono<String> bad = batcher.submit("bad", 1).cache();
+        good.subscribe(v -> { }, e -> { });
+        bad.subscribe(v -> { }, e -> { });
+
+        assertEquals("GOOD", good.block(Duration.ofSeconds(5)));
+        assertThrows(IllegalStateException.class, () -> bad.block(Duration.ofSeconds(5)));
+        assertEquals(List.of(2), batchSizes);
+    }
+
+    @Test
+    void entriesLeftOpenBySenderAreFailed() {
+        CoalescingBatcher<String, String> batcher = new CoalescingBatcher<>("test", 10, 1024, Duration.ZERO,
+                batch -> Mono.empty(), Schedulers.parallel(), new SimpleMeterRegistry());
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> batcher.submit("x", 1).block(Duration.ofSeconds(5)));
+        assertTrue(ex.getMessage().contains("without a result"));
+    }
+}
@@ -0,0 +1,28 @@
+package solanceworkflowplatform.services.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DeadLetterRedriverTest {
+
+    private static DeadLetterRedriver redriver(double defaultRate, double maxRate) {
+        // Rejections happen before any queue is touched
+        return new DeadLetterRedriver(null, "workflow", "workflow-dlq", false, 100, defaultRate, maxRate, 5000);
+    }
+
+    @Test
+    void nonPositiveRatesAreRejected() {
+        DeadLetterRedriver redriver = redriver(10, 100);
+
+        assertThrows(IllegalArgumentException.class, () -> redriver.redrive(10, 0.0).block());
+        assertThrows(IllegalArgumentException.class, () -> redriver.redrive(10, -5.0).block());
+        assertThrows(IllegalArgumentException.class, () -> redriver.redrive(10, Double.NaN).block());
+    }
+
+    @Test
+    void nonPositiveConfiguredRatesFailAtStartup() {
+        assertThrows(IllegalArgumentException.class, () -> redriver(0, 100));
+        assertThrows(IllegalArgumentException.class, () -> redriver(10, -1));
+    }
+}
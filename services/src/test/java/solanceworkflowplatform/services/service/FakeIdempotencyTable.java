@@ -0,0 +1,129 @@
+package solanceworkflowplatform.services.service;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory idempotency table that understands the conditions
+ * {@link IdempotencyStore} writes: the claim put, the takeover and complete
+ * updates, and the release delete. Updates can be made to fail
+ * ({@link #failUpdates}) as if DynamoDB could not be reached.
+ */
+class FakeIdempotencyTable implements DynamoDbAsyncClient {
+
+    final Map<String, Map<String, AttributeValue>> items = new ConcurrentHashMap<>();
+    final AtomicInteger puts = new AtomicInteger();
+    final AtomicInteger updates = new AtomicInteger();
+    private final AtomicInteger failingUpdates = new AtomicInteger();
+
+    void failUpdates(int times) {
+        failingUpdates.set(times);
+    }
+
+    void seedPending(String key, String eventId, String requestHash, long pendingUntilMillis) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("idempotencyKey", AttributeValue.fromS(key));
+        item.put("eventId", AttributeValue.fromS(eventId));
+        item.put("requestHash", AttributeValue.fromS(requestHash));
+        item.put("claimState", AttributeValue.fromS(IdempotencyStore.PENDING));
+        item.put("pendingUntil", AttributeValue.fromN(Long.toString(pendingUntilMillis)));
+        item.put("expiresAt", AttributeValue.fromN(Long.toString(System.currentTimeMillis() / 1000 + 3600)));
+        items.put(key, item);
+    }
+
+    String state(String key) {
+        return items.get(key).get("claimState").s();
+    }
+
+    String eventId(String key) {
+        return items.get(key).get("eventId").s();
+    }
+
+    long pendingUntil(String key) {
+        return Long.parseLong(items.get(key).get("pendingUntil").n());
+    }
+
+    @Override
+    public String serviceName() {
+        return "dynamodb";
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public synchronized CompletableFuture<PutItemResponse> putItem(PutItemRequest request) {
+        puts.incrementAndGet();
+        String key = request.item().get("idempotencyKey").s();
+        Map<String, AttributeValue> existing = items.get(key);
+        long now = Long.parseLong(request.expressionAttributeValues().get(":now").n());
+        if (existing != null && Long.parseLong(existing.get("expiresAt").n()) >= now) {
+            return CompletableFuture.failedFuture(conditionFailed(existing));
+        }
+        items.put(key, new HashMap<>(request.item()));
+        return CompletableFuture.completedFuture(PutItemResponse.builder().build());
+    }
+
+    @Override
+    public synchronized CompletableFuture<UpdateItemResponse> updateItem(UpdateItemRequest request) {
+        updates.incrementAndGet();
+        if (failingUpdates.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            return CompletableFuture.failedFuture(SdkClientException.create("Unable to reach DynamoDB"));
+        }
+        String key = request.key().get("idempotencyKey").s();
+        Map<String, AttributeValue> existing = items.get(key);
+        Map<String, AttributeValue> values = request.expressionAttributeValues();
+        if (existing == null || !existing.get("eventId").equals(values.get(":eventId"))) {
+            return CompletableFuture.failedFuture(conditionFailed(null));
+        }
+        Map<String, AttributeValue> next = new HashMap<>(existing);
+        if (values.containsKey(":seen")) {
+            // Takeover: still pending, and still at the deadline the caller saw
+            if (!IdempotencyStore.PENDING.equals(existing.get("claimState").s())
+                    || !existing.get("pendingUntil").equals(values.get(":seen"))) {
+                return CompletableFuture.failedFuture(conditionFailed(null));
+            }
+            next.put("pendingUntil", values.get(":until"));
+        } else {
+            next.put("claimState", values.get(":completed"));
+            next.remove("pendingUntil");
+        }
+        items.put(key, next);
+        return CompletableFuture.completedFuture(UpdateItemResponse.builder().build());
+    }
+
+    @Override
+    public synchronized CompletableFuture<DeleteItemResponse> deleteItem(DeleteItemRequest request) {
+        String key = request.key().get("idempotencyKey").s();
+        Map<String, AttributeValue> existing = items.get(key);
+        if (existing == null || !existing.get("eventId").equals(request.expressionAttributeValues().get(":eventId"))) {
+            return CompletableFuture.failedFuture(conditionFailed(null));
+        }
+        items.remove(key);
+        return CompletableFuture.completedFuture(DeleteItemResponse.builder().build());
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private static ConditionalCheckFailedException conditionFailed(Map<String, AttributeValue> item) {
+        return ConditionalCheckFailedException.builder()
+                .item(item != null ? new HashMap<>(item) : null)
+                .message("The conditional request failed")
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package solanceworkflowplatform.services.service;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory workflow table that understands what {@link OutboxRelay} does
+ * with it: the query on {@value OutboxRelay#OUTBOX_INDEX}, and the lease and
+ * clear updates conditional on {@code outboxAt}.
+ */
+class FakeOutboxTable implements DynamoDbAsyncClient {
+
+    final Map<String, Map<String, AttributeValue>> items = new ConcurrentHashMap<>();
+
+    void put(Map<String, AttributeValue> item) {
+        items.put(item.get("eventId").s(), new HashMap<>(item));
+    }
+
+    boolean inOutbox(String eventId) {
+        return items.get(eventId).containsKey("outboxShard");
+    }
+
+    long outboxAt(String eventId) {
+        return Long.parseLong(items.get(eventId).get("outboxAt").n());
+    }
+
+    @Override
+    public String serviceName() {
+        return "dynamodb";
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public CompletableFuture<QueryResponse> query(QueryRequest request) {
+        String shard = request.expressionAttributeValues().get(":shard").s();
+        long cutoff = Long.parseLong(request.expressionAttributeValues().get(":cutoff").n());
+        List<Map<String, AttributeValue>> found = items.values().stream()
+                .filter(item -> item.containsKey("outboxShard") && item.get("outboxShard").s().equals(shard))
+                .filter(item -> Long.parseLong(item.get("outboxAt").n()) < cutoff)
+                .limit(request.limit())
+                .map(item -> (Map<String, AttributeValue>) new HashMap<>(item))
+                .toList();
+        return CompletableFuture.completedFuture(QueryResponse.builder().items(found).build());
+    }
+
+    @Override
+    public synchronized CompletableFuture<UpdateItemResponse> updateItem(UpdateItemRequest request) {
+        Map<String, AttributeValue> item = items.get(request.key().get("eventId").s());
+        Map<String, AttributeValue> values = request.expressionAttributeValues();
+        if (item == null || !values.get(":expected").equals(item.get("outboxAt"))) {
+            return CompletableFuture.failedFuture(ConditionalCheckFailedException.builder()
+                    .message("The conditional request failed")
+                    .build());
+        }
+        if (request.updateExpression().startsWith("REMOVE")) {
+            item.remove("outboxShard");
+            item.remove("outboxAt");
+            item.remove("outboxBody");
+        } else {
+            item.put("outboxAt", values.get(":lease"));
+        }
+        return CompletableFuture.completedFuture(UpdateItemResponse.builder().build());
+    }
+}
@@ -0,0 +1,111 @@
+package solanceworkflowplatform.services.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyStoreTest {
+
+    private final FakeIdempotencyTable table = new FakeIdempotencyTable();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final IdempotencyStore store = store();
+
+    private IdempotencyStore store() {
+        return new IdempotencyStore(table, meterRegistry, "idempotency", 24, 100, 30_000, 1000);
+    }
+
+    @Test
+    void firstClaimIsPendingUntilCompleted() {
+        IdempotencyStore.Claim claim = store.claim("k1", "hash", "e1").block();
+
+        assertEquals("e1", claim.eventId());
+        assertFalse(claim.replay());
+        assertFalse(claim.resumed());
+        assertEquals(IdempotencyStore.PENDING, table.state("k1"));
+
+        store.complete("k1", "hash", "e1").block();
+
+        assertEquals(IdempotencyStore.COMPLETED, table.state("k1"));
+    }
+
+    @Test
+    void completedKeyReplaysTheOriginalEventId() {
+        store.claim("k1", "hash", "e1").block();
+        store.complete("k1", "hash", "e1").block();
+
+        IdempotencyStore.Claim cached = store.claim("k1", "hash", "e2").block();
+        IdempotencyStore.Claim stored = store().claim("k1", "hash", "e3").block();
+
+        assertTrue(cached.replay());
+        assertEquals("e1", cached.eventId());
+        assertTrue(stored.replay());
+        assertEquals("e1", stored.eventId());
+        // The first replay came from the local cache, the second from the table
+        assertEquals(2, table.puts.get());
+        assertEquals(1.0, meterRegistry.get("workflow.idempotency.cache.hits").counter().count(), 0);
+    }
+
+    @Test
+    void completedKeyWithADifferentBodyIsReuse() {
+        store.claim("k1", "hash", "e1").block();
+        store.complete("k1", "hash", "e1").block();
+
+        assertThrows(IdempotencyStore.KeyReuseException.class,
+                () -> store.claim("k1", "other-hash", "e2").block());
+    }
+
+    @Test
+    void pendingKeyIsAConflict() {
+        store.claim("k1", "hash", "e1").block();
+
+        assertThrows(IdempotencyStore.ClaimPendingException.class,
+                () -> store.claim("k1", "hash", "e2").block());
+        assertThrows(IdempotencyStore.KeyReuseException.class,
+                () -> store.claim("k1", "other-hash", "e3").block());
+        assertEquals("e1", table.eventId("k1"));
+    }
+
+    @Test
+    void stalePendingClaimIsTakenOverUnderItsOwnEventId() {
+        long stale = System.currentTimeMillis() - 1000;
+        table.seedPending("k1", "e1", "hash", stale);
+
+        IdempotencyStore.Claim claim = store.claim("k1", "hash", "e2").block();
+
+        assertEquals("e1", claim.eventId());
+        assertTrue(claim.resumed());
+        assertFalse(claim.replay());
+        assertEquals("e1", table.eventId("k1"));
+        assertTrue(table.pendingUntil("k1") > System.currentTimeMillis());
+        // The takeover is pending again, so a concurrent retry does not also take it
+        assertThrows(IdempotencyStore.ClaimPendingException.class,
+                () -> store.claim("k1", "hash", "e3").block());
+        assertEquals(1.0, meterRegistry.get("workflow.idempotency.takeovers").counter().count(), 0);
+    }
+
+    @Test
+    void completeIsRetried() {
+        store.claim("k1", "hash", "e1").block();
+        table.failUpdates(2);
+
+        store.complete("k1", "hash", "e1").block();
+
+        assertEquals(IdempotencyStore.COMPLETED, table.state("k1"));
+        assertEquals(3, table.updates.get());
+    }
+
+    @Test
+    void releasedKeyCanBeClaimedAgain() {
+        store.claim("k1", "hash", "e1").block();
+        store.release("k1", "e1").block();
+
+        IdempotencyStore.Claim claim = store.claim("k1", "hash", "e2").block();
+
+        assertEquals("e2", claim.eventId());
+        assertFalse(claim.replay());
+    }
+}
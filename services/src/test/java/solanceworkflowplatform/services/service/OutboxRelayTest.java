@@ -0,0 +1,147 @@
+package solanceworkflowplatform.services.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboxRelayTest {
+
+    private final FakeOutboxTable table = new FakeOutboxTable();
+    private final RecordingDispatcher dispatcher = new RecordingDispatcher();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Entries are overdue at once and leases run out at once, so a second sweep retries
+    private final OutboxRelay relay = new OutboxRelay(table, dispatcher, meterRegistry, "workflow",
+            true, 4, 0, 1000, 0, 100, 5000);
+
+    @AfterEach
+    void stop() {
+        relay.stop();
+    }
+
+    @Test
+    void sweepRelaysOverdueEntriesAndClearsThem() throws InterruptedException {
+        stage("evt-1", "{\"n\":1}", 10_000);
+        stage("evt-2", "{\"n\":2}", 20_000);
+        stage("evt-3", "{\"n\":3}", 30_000);
+
+        relay.sweep().block();
+
+        assertEquals(Set.of("evt-1", "evt-2", "evt-3"), Set.copyOf(dispatcher.sent));
+        assertEquals("{\"n\":2}", dispatcher.bodies.get("evt-2"));
+        assertFalse(table.inOutbox("evt-1"));
+        assertFalse(table.inOutbox("evt-2"));
+        assertFalse(table.inOutbox("evt-3"));
+        assertEquals(3.0, relayed("sweep"), 0);
+        assertEquals(3.0, meterRegistry.get("workflow.outbox.pending").gauge().value(), 0);
+        assertTrue(meterRegistry.get("workflow.outbox.oldest.age").gauge().value() >= 30_000);
+
+        Thread.sleep(2);
+        relay.sweep().block();
+
+        assertEquals(3, dispatcher.sent.size());
+        assertEquals(0.0, meterRegistry.get("workflow.outbox.pending").gauge().value(), 0);
+    }
+
+    @Test
+    void sweepSurvivesAFailedSend() throws InterruptedException {
+        stage("evt-1", "{}", 10_000);
+        stage("evt-2", "{}", 10_000);
+        dispatcher.failing.add("evt-1");
+
+        relay.sweep().block();
+
+        assertEquals(List.of("evt-2"), dispatcher.sent);
+        assertFalse(table.inOutbox("evt-2"));
+        // Still leased, and left for the next sweep
+        assertTrue(table.inOutbox("evt-1"));
+        assertEquals(1.0, meterRegistry.get("workflow.outbox.failures").counter().count(), 0);
+
+        dispatcher.failing.clear();
+        Thread.sleep(2);
+        relay.sweep().block();
+
+        assertEquals(List.of("evt-2", "evt-1"), dispatcher.sent);
+        assertFalse(table.inOutbox("evt-1"));
+        assertEquals(2.0, relayed("sweep"), 0);
+    }
+
+    @Test
+    void relayNowSendsInOrderAndClearsTheEntry() {
+        long stagedAt = stage("evt-1", "{}", 0);
+
+        relay.relayNow("evt-1", "Deposit", "{}", "acc-1", stagedAt);
+
+        assertEquals(List.of("evt-1"), dispatcher.sent);
+        assertEquals("acc-1", dispatcher.orderingKeys.get("evt-1"));
+        assertFalse(table.inOutbox("evt-1"));
+        assertEquals(1.0, relayed("immediate"), 0);
+    }
+
+    @Test
+    void failedRelayNowIsLeftForTheSweep() {
+        long stagedAt = stage("evt-1", "{}", 0);
+        dispatcher.failing.add("evt-1");
+
+        relay.relayNow("evt-1", "Deposit", "{}", "acc-1", stagedAt);
+
+        assertTrue(table.inOutbox("evt-1"));
+        assertEquals(stagedAt, table.outboxAt("evt-1"));
+        assertEquals(1.0, meterRegistry.get("workflow.outbox.failures").counter().count(), 0);
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    /** Writes an accepted event with its outbox entry, staged {@code ageMs} ago. */
+    private long stage(String eventId, String body, long ageMs) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("eventId", AttributeValue.fromS(eventId));
+        item.put("type", AttributeValue.fromS("Deposit"));
+        long stagedAt = relay.stage(item, body) - ageMs;
+        item.put("outboxAt", AttributeValue.fromN(Long.toString(stagedAt)));
+        item.put("receivedAt", AttributeValue.fromN(Long.toString(stagedAt)));
+        table.put(item);
+        return stagedAt;
+    }
+
+    private double relayed(String path) {
+        return meterRegistry.get("workflow.outbox.relayed").tag("path", path).counter().count();
+    }
+
+    /** Records what would have been sent; events in {@link #failing} fail to send. */
+    private static final class RecordingDispatcher extends EventDispatcher {
+        final List<String> sent = new CopyOnWriteArrayList<>();
+        final Map<String, String> bodies = new ConcurrentHashMap<>();
+        final Map<String, String> orderingKeys = new ConcurrentHashMap<>();
+        final Set<String> failing = ConcurrentHashMap.newKeySet();
+
+        RecordingDispatcher() {
+            super(null, null, null, "workflow-bus", "workflow", true);
+        }
+
+        @Override
+        public Mono<Void> send(String eventId, String type, String body, String orderingKey, long receivedAt) {
+            if (failing.contains(eventId)) {
+                return Mono.error(new IllegalStateException("transport unavailable"));
+            }
+            sent.add(eventId);
+            bodies.put(eventId, body);
+            if (orderingKey != null) {
+                orderingKeys.put(eventId, orderingKey);
+            }
+            return Mono.empty();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package solanceworkflowplatform.services.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import solanceworkflowplatform.services.model.PaymentInstructionRequest;
+import solanceworkflowplatform.services.model.RegisterRequest;
+import solanceworkflowplatform.services.model.WorkflowEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WorkflowEventEncoderTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    private final WorkflowEventEncoder encoder = new WorkflowEventEncoder(mapper, new SimpleMeterRegistry());
+
+    private final PaymentInstructionRequest payout = new PaymentInstructionRequest("alice1", "acct-001", "EUR",
+            100.0, Instant.parse("2025-05-06T11:00:00Z"), "DE89370400440532013000", "invoice-123", "subscription fee");
+
+    @Test
+    void matchesTheTreeBasedEnvelope() throws Exception {
+        WorkflowEventEncoder.Encoded encoded = encoder.encode("evt-1", PaymentInstructionRequest.EVENT_TYPE, payout);
+
+        String expected = mapper.writeValueAsString(
+                new WorkflowEvent("evt-1", PaymentInstructionRequest.EVENT_TYPE, mapper.valueToTree(payout)));
+        assertEquals(mapper.readTree(expected), mapper.readTree(encoded.body()));
+    }
+
+    @Test
+    void detailRangeIsExactlyThePayload() throws Exception {
+        WorkflowEventEncoder.Encoded encoded = encoder.encode("evt-1", PaymentInstructionRequest.EVENT_TYPE, payout);
+
+        String detail = new String(encoded.json(), encoded.detailStart(),
+                encoded.detailEnd() - encoded.detailStart(), StandardCharsets.UTF_8);
+        assertEquals(mapper.writeValueAsString(payout), detail);
+    }
+
+    @Test
+    void reusedBufferDoesNotLeakIntoEarlierResults() throws Exception {
+        WorkflowEventEncoder.Encoded first = encoder.encode("evt-1", PaymentInstructionRequest.EVENT_TYPE, payout);
+        String firstBody = first.body();
+        encoder.encode("evt-2", RegisterRequest.EVENT_TYPE, new RegisterRequest("bob", "Bob", "bob@example.com"));
+
+        assertEquals(firstBody, first.body());
+        assertEquals("evt-1", mapper.readTree(first.body()).get("eventId").asText());
+    }
+}
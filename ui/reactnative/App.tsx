@@ -30,11 +30,31 @@ export default function App(): React.JSX.Element {
     const [loading, setLoading] = useState(true);
 
     useEffect(() => {
-        fetch(`http://${API_HOST}/api/v1/events`)
-            .then(r => r.json())
-            .then((data: WorkflowEvent[]) => setEvents(data))
-            .catch(console.error)
-            .finally(() => setLoading(false));
+        const load = () =>
+            fetch(`http://${API_HOST}/api/v1/events`)
+                .then(r => r.json())
+                .then((data: WorkflowEvent[]) => setEvents(data))
+                .catch(console.error)
+                .finally(() => setLoading(false));
+        load();
+
+        // Status changes are pushed over SSE where EventSource exists (web);
+        // it reconnects on its own and resumes from the last event id.
+        if (typeof EventSource === 'undefined') {
+            return;
+        }
+        const source = new EventSource(`http://${API_HOST}/api/v1/events/stream`);
+        source.addEventListener('status', (e: MessageEvent) => {
+            const t = JSON.parse(e.data);
+            setEvents(prev => {
+                const updated = { eventId: t.eventId, detailType: t.detailType, status: t.status };
+                const i = prev.findIndex(ev => ev.eventId === t.eventId);
+                return i < 0 ? [...prev, updated] : prev.map((ev, j) => (j === i ? updated : ev));
+            });
+        });
+        // Sent when the server no longer holds what we missed
+        source.addEventListener('reset', () => load());
+        return () => source.close();
     }, []);
 
     // header displayed above list items
@@ -1,10 +1,12 @@
 package services.model;
 
 /**
- * Represents an open account request.
+ * Represents an open account request. {@code accountId} is optional; without
+ * one, the account is identified by the eventId of the request.
  */
 public record OpenAccountRequest(
     String userId,
+    String accountId,
     String accountType,
     String currency
 ) {
@@ -9,6 +9,7 @@ import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClientBuilder;
@@ -34,6 +35,10 @@ public class AwsConfig {
     @Value("${spring.cloud.aws.credentials.secret-key:}")
     private String secretKey;
 
+    // The SDK default of 50 connections would cap handlers in flight well below max-concurrent-messages
+    @Value("${workflow.worker.dynamodb.max-connections:256}")
+    private int dynamoMaxConnections;
+
     private <T extends AwsClientBuilder<?,?>>
     T configureEndpoint(T builder) {
         if (!awsEndpoint.isBlank()) {
@@ -58,7 +63,9 @@ public class AwsConfig {
     public DynamoDbClient dynamoDbClient() {
         DynamoDbClientBuilder b = DynamoDbClient.builder()
                 .region(Region.of(awsRegion))
-                .credentialsProvider(credentialsProvider());
+                .credentialsProvider(credentialsProvider())
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(dynamoMaxConnections));
         return configureEndpoint(b).build();
     }
 
@@ -0,0 +1,146 @@
+package solanceworkflowplatform.worker;
+
+import io.awspring.cloud.sqs.MessageHeaderUtils;
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Moves messages the worker has given up on to the workflow dead-letter
+ * queue, with the original body and message attributes plus why and when
+ * they were quarantined, so they can be inspected and redriven later. The
+ * queue's own redrive policy is only a backstop for messages the worker
+ * never got to (crashes, poison messages that kill the process).
+ */
+@Component
+public class DeadLetterQueue {
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterQueue.class);
+
+    public static final String REASON_ATTRIBUTE = "quarantineReason";
+    public static final String QUARANTINED_AT_ATTRIBUTE = "quarantinedAt";
+    public static final String SOURCE_MESSAGE_ID_ATTRIBUTE = "sourceMessageId";
+
+    /** SQS caps a string attribute far higher, but a reason only needs to be readable. */
+    private static final int MAX_REASON_LENGTH = 256;
+
+    private final SqsAsyncClient sqs;
+    private final String queueName;
+    private final boolean fifo;
+    private final MeterRegistry meterRegistry;
+    private volatile CompletableFuture<String> queueUrl;
+
+    public DeadLetterQueue(
+            SqsAsyncClient sqs,
+            MeterRegistry meterRegistry,
+            @Value("${sqs.queue.workflow.dlq-name:${sqs.queue.workflow.name}-dlq}") String queueName) {
+        this.sqs = sqs;
+        this.queueName = queueName;
+        this.fifo = queueName.endsWith(".fifo");
+        this.meterRegistry = meterRegistry;
+    }
+
+    public String getQueueName() {
+        return queueName;
+    }
+
+    /**
+     * Sends a copy of {@code message} to the dead-letter queue. The original
+     * may only be deleted once the returned future has completed normally.
+     *
+     * @param reason short machine-friendly cause, also used as a metric tag
+     */
+    public CompletableFuture<Void> quarantine(Message<String> message, String reason, Throwable cause) {
+        String messageId = MessageHeaderUtils.getId(message);
+        Map<String, MessageAttributeValue> attributes = new HashMap<>(originalAttributes(message));
+        attributes.put(REASON_ATTRIBUTE, stringAttribute(describe(reason, cause)));
+        attributes.put(QUARANTINED_AT_ATTRIBUTE, MessageAttributeValue.builder()
+                .dataType("Number").stringValue(Long.toString(System.currentTimeMillis())).build());
+        attributes.put(SOURCE_MESSAGE_ID_ATTRIBUTE, stringAttribute(messageId));
+
+        return resolveQueueUrl()
+                .thenCompose(url -> {
+                    SendMessageRequest.Builder request = SendMessageRequest.builder()
+                            .queueUrl(url)
+                            .messageBody(message.getPayload())
+                            .messageAttributes(attributes);
+                    if (fifo) {
+                        request.messageGroupId(messageGroupId(message, messageId))
+                                .messageDeduplicationId(messageId);
+                    }
+                    return sqs.sendMessage(request.build());
+                })
+                .thenAccept(resp -> {
+                    counter(reason).increment();
+                    logger.warn("Moved message to dead-letter queue: queue={}, messageId={}, reason={}",
+                            queueName, messageId, reason);
+                })
+                .whenComplete((v, ex) -> {
+                    if (ex != null) {
+                        logger.error("Failed to move message to dead-letter queue: queue={}, messageId={}",
+                                queueName, messageId, ex);
+                    }
+                });
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private CompletableFuture<String> resolveQueueUrl() {
+        CompletableFuture<String> url = queueUrl;
+        if (url == null || url.isCompletedExceptionally()) {
+            url = sqs.getQueueUrl(GetQueueUrlRequest.builder().queueName(queueName).build())
+                    .thenApply(GetQueueUrlResponse::queueUrl);
+            queueUrl = url;
+        }
+        return url;
+    }
+
+    /** The attributes the message arrived with (eventId, type, receivedAt on the direct path). */
+    private static Map<String, MessageAttributeValue> originalAttributes(Message<String> message) {
+        Object source = message.getHeaders().get(SqsHeaders.SQS_SOURCE_DATA_HEADER);
+        return source instanceof software.amazon.awssdk.services.sqs.model.Message sqsMessage
+                ? sqsMessage.messageAttributes()
+                : Map.of();
+    }
+
+    private static String messageGroupId(Message<String> message, String fallback) {
+        Object source = message.getHeaders().get(SqsHeaders.SQS_SOURCE_DATA_HEADER);
+        if (source instanceof software.amazon.awssdk.services.sqs.model.Message sqsMessage) {
+            String group = sqsMessage.attributes().get(MessageSystemAttributeName.MESSAGE_GROUP_ID);
+            if (group != null) {
+                return group;
+            }
+        }
+        return fallback;
+    }
+
+    private static String describe(String reason, Throwable cause) {
+        String text = cause == null ? reason : reason + ": " + FailureClassifier.unwrap(cause);
+        return text.length() > MAX_REASON_LENGTH ? text.substring(0, MAX_REASON_LENGTH) : text;
+    }
+
+    private static MessageAttributeValue stringAttribute(String value) {
+        return MessageAttributeValue.builder().dataType("String").stringValue(value).build();
+    }
+
+    private Counter counter(String reason) {
+        return Counter.builder("workflow.worker.dead-lettered")
+                .description("Messages moved to the dead-letter queue, by reason")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
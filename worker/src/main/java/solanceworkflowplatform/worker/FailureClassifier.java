@@ -0,0 +1,45 @@
+package solanceworkflowplatform.worker;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import solanceworkflowplatform.worker.handler.TransientFailureException;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tells failures worth retrying later from failures that will happen again
+ * on every attempt. Transient: throttling, 5xx and client-side (network)
+ * errors from AWS, timeouts, I/O errors, and {@link TransientFailureException}.
+ * Everything else, including malformed JSON and rejected requests, is permanent.
+ */
+public final class FailureClassifier {
+
+    private FailureClassifier() {
+    }
+
+    public static boolean isTransient(Throwable failure) {
+        Throwable ex = unwrap(failure);
+        if (ex instanceof TransientFailureException
+                || ex instanceof SdkClientException
+                || ex instanceof TimeoutException) {
+            return true;
+        }
+        if (ex instanceof AwsServiceException ase) {
+            return ase.isThrottlingException() || ase.isClockSkewException() || ase.statusCode() >= 500;
+        }
+        return ex instanceof IOException && !(ex instanceof JsonProcessingException);
+    }
+
+    /** The failure itself, without the wrappers added by futures. */
+    public static Throwable unwrap(Throwable failure) {
+        Throwable ex = failure;
+        while ((ex instanceof CompletionException || ex instanceof ExecutionException) && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return ex;
+    }
+}
@@ -0,0 +1,258 @@
+package solanceworkflowplatform.worker;
+
+import io.awspring.cloud.sqs.MessageHeaderUtils;
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps messages that are still being worked on invisible to other
+ * consumers. Every message is tracked from receipt (including while it waits
+ * in its lane) until its outcome is known. A single heartbeat, every
+ * {@code workflow.worker.visibility.heartbeat-seconds}, extends every message
+ * that would otherwise reappear before the next beat, with one
+ * {@code ChangeMessageVisibilityBatch} call per 10 messages. A message still
+ * in flight {@code workflow.worker.visibility.max-in-flight-seconds} after
+ * receipt is no longer extended: it is redelivered once its visibility runs
+ * out, and the status claim decides whether that delivery may run. For that
+ * to keep a live handler's claim, {@code workflow.worker.status.claim-timeout-ms}
+ * must be longer than the deadline plus one extension; startup fails otherwise.
+ * <p>
+ * Untracking a message waits for an extension of it that is already under
+ * way, so a visibility the caller sets afterwards (a retry backoff) is never
+ * overwritten by a late extension.
+ */
+@Component
+public class InFlightMessages {
+    private static final Logger logger = LoggerFactory.getLogger(InFlightMessages.class);
+
+    /** Hard limit imposed by the ChangeMessageVisibilityBatch API. */
+    private static final int SQS_MAX_BATCH_ENTRIES = 10;
+
+    private static final class InFlight {
+        final String messageId;
+        final String queueUrl;
+        final String receiptHandle;
+        final long deadline;
+        volatile long visibleUntil;
+        /** The latest extension that may include this message; completes once its call has returned. */
+        volatile CompletableFuture<Void> extension;
+
+        InFlight(String messageId, String queueUrl, String receiptHandle, long deadline, long visibleUntil) {
+            this.messageId = messageId;
+            this.queueUrl = queueUrl;
+            this.receiptHandle = receiptHandle;
+            this.deadline = deadline;
+            this.visibleUntil = visibleUntil;
+        }
+    }
+
+    private final SqsAsyncClient sqs;
+    private final long visibilityTimeoutMs;
+    private final long heartbeatMs;
+    private final int extensionSeconds;
+    private final long maxInFlightMs;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeat;
+    private final Counter extended;
+    private final Counter failed;
+    private final Counter abandoned;
+
+    public InFlightMessages(
+            SqsAsyncClient sqs,
+            WorkerThreads threads,
+            MeterRegistry meterRegistry,
+            @Value("${workflow.worker.visibility.timeout-seconds:60}") int visibilityTimeoutSeconds,
+            @Value("${workflow.worker.visibility.heartbeat-seconds:15}") int heartbeatSeconds,
+            @Value("${workflow.worker.visibility.extension-seconds:60}") int extensionSeconds,
+            @Value("${workflow.worker.visibility.max-in-flight-seconds:900}") int maxInFlightSeconds,
+            @Value("${workflow.worker.status.claim-timeout-ms:1200000}") long claimTimeoutMs
+    ) {
+        this.sqs = sqs;
+        this.visibilityTimeoutMs = TimeUnit.SECONDS.toMillis(visibilityTimeoutSeconds);
+        this.heartbeatMs = TimeUnit.SECONDS.toMillis(Math.max(1, heartbeatSeconds));
+        // An extension has to outlast the gap until the next beat, or messages reappear in between
+        this.extensionSeconds = Math.max(extensionSeconds, 2 * Math.max(1, heartbeatSeconds));
+        this.maxInFlightMs = TimeUnit.SECONDS.toMillis(maxInFlightSeconds);
+        long lastVisibleMs = maxInFlightMs + TimeUnit.SECONDS.toMillis(this.extensionSeconds);
+        if (claimTimeoutMs <= lastVisibleMs) {
+            // Otherwise the redelivery of a message still being handled takes over its claim
+            throw new IllegalStateException("workflow.worker.status.claim-timeout-ms (" + claimTimeoutMs
+                    + ") must exceed max-in-flight-seconds plus extension-seconds (" + lastVisibleMs + " ms)");
+        }
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(threads.threadFactory("sqs-heartbeat-"));
+        this.heartbeat.scheduleWithFixedDelay(this::beat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+
+        this.extended = outcomeCounter(meterRegistry, "extended");
+        this.failed = outcomeCounter(meterRegistry, "failed");
+        this.abandoned = outcomeCounter(meterRegistry, "abandoned");
+        Gauge.builder("workflow.worker.in-flight", inFlight, Map::size)
+                .description("Messages received and not yet settled")
+                .register(meterRegistry);
+
+        logger.info("InFlightMessages initialized: visibilityTimeoutSeconds={}, heartbeatSeconds={}, "
+                        + "extensionSeconds={}, maxInFlightSeconds={}",
+                visibilityTimeoutSeconds, heartbeatSeconds, this.extensionSeconds, maxInFlightSeconds);
+    }
+
+    /** Starts extending {@code message} until it is {@linkplain #untrack untracked} or its deadline passes. */
+    public void track(Message<?> message) {
+        String queueUrl = message.getHeaders().get(SqsHeaders.SQS_QUEUE_URL_HEADER, String.class);
+        String receiptHandle = message.getHeaders().get(SqsHeaders.SQS_RECEIPT_HANDLE_HEADER, String.class);
+        if (queueUrl == null || receiptHandle == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Object receivedAt = message.getHeaders().get(SqsHeaders.SQS_RECEIVED_AT_HEADER);
+        long received = receivedAt instanceof Instant instant ? instant.toEpochMilli() : now;
+        String messageId = MessageHeaderUtils.getId(message);
+        inFlight.put(messageId, new InFlight(messageId, queueUrl, receiptHandle,
+                received + maxInFlightMs, received + visibilityTimeoutMs));
+    }
+
+    /**
+     * Stops extending; call before the message is deleted or its visibility is
+     * set for a retry, and do either only once the returned future completes:
+     * that is when no extension of these messages is still under way.
+     */
+    public CompletableFuture<Void> untrack(Collection<? extends Message<?>> messages) {
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        for (Message<?> message : messages) {
+            InFlight removed = inFlight.remove(MessageHeaderUtils.getId(message));
+            CompletableFuture<Void> extension = removed != null ? removed.extension : null;
+            if (extension != null && !extension.isDone()) {
+                running.add(extension);
+            }
+        }
+        return running.isEmpty()
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.allOf(running.toArray(CompletableFuture[]::new));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    /** Extends everything that would reappear before the next beat, batched per queue. */
+    void beat() {
+        try {
+            long now = System.currentTimeMillis();
+            // Margin for the call itself and a late beat
+            long horizon = now + 2 * heartbeatMs;
+            Map<String, List<InFlight>> due = new HashMap<>();
+            for (InFlight message : inFlight.values()) {
+                if (message.visibleUntil > horizon) {
+                    continue;
+                }
+                if (now >= message.deadline) {
+                    inFlight.remove(message.messageId, message);
+                    abandoned.increment();
+                    logger.warn("Message in flight past its deadline, no longer extending: messageId={}",
+                            message.messageId);
+                    continue;
+                }
+                due.computeIfAbsent(message.queueUrl, url -> new ArrayList<>()).add(message);
+            }
+            due.forEach((queueUrl, messages) -> {
+                for (int i = 0; i < messages.size(); i += SQS_MAX_BATCH_ENTRIES) {
+                    extend(queueUrl, messages.subList(i, Math.min(i + SQS_MAX_BATCH_ENTRIES, messages.size())), now);
+                }
+            });
+        } catch (Exception ex) {
+            // Never let an exception cancel the heartbeat
+            logger.error("Visibility heartbeat failed", ex);
+        }
+    }
+
+    private void extend(String queueUrl, List<InFlight> batch, long now) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>(batch.size());
+        Map<String, InFlight> byEntryId = new HashMap<>();
+        for (InFlight message : batch) {
+            // Published before the check: untrack either waits for this call, or it is skipped here
+            message.extension = done;
+            if (inFlight.get(message.messageId) != message) {
+                continue;
+            }
+            String id = Integer.toString(entries.size());
+            byEntryId.put(id, message);
+            entries.add(ChangeMessageVisibilityBatchRequestEntry.builder()
+                    .id(id)
+                    .receiptHandle(message.receiptHandle)
+                    .visibilityTimeout(extensionSeconds)
+                    .build());
+        }
+        if (entries.isEmpty()) {
+            done.complete(null);
+            return;
+        }
+
+        long visibleUntil = now + TimeUnit.SECONDS.toMillis(extensionSeconds);
+        CompletableFuture<ChangeMessageVisibilityBatchResponse> call;
+        try {
+            call = sqs.changeMessageVisibilityBatch(ChangeMessageVisibilityBatchRequest.builder()
+                    .queueUrl(queueUrl)
+                    .entries(entries)
+                    .build());
+        } catch (RuntimeException ex) {
+            done.complete(null);
+            throw ex;
+        }
+        call.whenComplete((resp, ex) -> {
+            try {
+                if (ex != null) {
+                    failed.increment(entries.size());
+                    logger.warn("Failed to extend visibility: queue={}, messages={}, error={}",
+                            queueUrl, entries.size(), ex.toString());
+                    return;
+                }
+                resp.successful().forEach(ok -> byEntryId.get(ok.id()).visibleUntil = visibleUntil);
+                extended.increment(resp.successful().size());
+                for (BatchResultErrorEntry error : resp.failed()) {
+                    // Typically the message was deleted or its receipt handle expired: nothing left to extend
+                    InFlight message = byEntryId.get(error.id());
+                    inFlight.remove(message.messageId, message);
+                    failed.increment();
+                    logger.debug("Visibility extension rejected: messageId={}, code={}",
+                            message.messageId, error.code());
+                }
+            } finally {
+                done.complete(null);
+            }
+        });
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("workflow.worker.visibility.extensions")
+                .description("Visibility extensions of in-flight messages, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,19 @@
+package solanceworkflowplatform.worker;
+
+/**
+ * A workflow event as the worker receives it, with the payload already bound
+ * to its handler's record ({@code null} when no handler consumes the type).
+ * {@code receivedAt} (accepted by the API) and {@code dequeuedAt} (received
+ * from SQS) are epoch millis; {@code receivedAt} is {@code null} when the
+ * message did not carry it, as on the EventBridge path.
+ */
+public record InboundEvent(String eventId, String detailType, Object payload, Long receivedAt, Long dequeuedAt) {
+
+    public InboundEvent(String eventId, String detailType, Object payload) {
+        this(eventId, detailType, payload, null, null);
+    }
+
+    public InboundEvent withTimestamps(Long receivedAt, Long dequeuedAt) {
+        return new InboundEvent(eventId, detailType, payload, receivedAt, dequeuedAt);
+    }
+}
@@ -0,0 +1,87 @@
+package solanceworkflowplatform.worker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs tasks that share a key strictly in submission order while tasks with
+ * different keys run in parallel. Keys are hashed onto a fixed set of lanes;
+ * each lane is a {@link SerialDrain} running one task at a time on
+ * {@link WorkerThreads}, so there is no lock shared between lanes. A lane
+ * holds at most {@code workflow.worker.lane-capacity} tasks and
+ * {@link #submit} waits for room rather than dropping or reordering.
+ */
+@Component
+public class LaneScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(LaneScheduler.class);
+
+    private final Lane[] lanes;
+    private final AsyncTaskExecutor executor;
+
+    public LaneScheduler(
+            WorkerThreads threads,
+            @Value("${workflow.worker.lanes:64}") int laneCount,
+            @Value("${workflow.worker.lane-capacity:256}") int laneCapacity
+    ) {
+        this.executor = threads.executor("workflow-lane-");
+        this.lanes = new Lane[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(Math.max(1, laneCapacity));
+        }
+        logger.info("LaneScheduler initialized: lanes={}, laneCapacity={}", lanes.length, laneCapacity);
+    }
+
+    /**
+     * Queues {@code task} behind every task already submitted with the same key.
+     * Must be called in the order the tasks are meant to run.
+     */
+    public <T> CompletableFuture<T> submit(String key, Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            lanes[SerialDrain.slotFor(key, lanes.length)].add(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Throwable ex) {
+                    result.completeExceptionally(ex);
+                }
+            });
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private final class Lane {
+        private final Semaphore capacity;
+        private final SerialDrain<Runnable> tasks;
+
+        Lane(int capacity) {
+            this.capacity = new Semaphore(capacity);
+            this.tasks = new SerialDrain<>(executor, 1, this::run);
+        }
+
+        void add(Runnable task) throws InterruptedException {
+            capacity.acquire();
+            tasks.add(task);
+        }
+
+        /** Tasks never throw: {@link #submit} routes every outcome into the task's future. */
+        private void run(List<Runnable> batch) {
+            for (Runnable task : batch) {
+                task.run();
+                capacity.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package solanceworkflowplatform.worker;
+
+import io.awspring.cloud.sqs.MessageHeaderUtils;
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import io.awspring.cloud.sqs.listener.Visibility;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides what happens to a message whose event could not be processed.
+ * While attempts remain, the message stays on the queue and its visibility
+ * timeout is raised to an exponentially growing, jittered delay, so a
+ * dependency that is browning out is not hammered by immediate redeliveries.
+ * Once {@code workflow.worker.retry.max-attempts} receives have been used up
+ * the message is moved to the {@link DeadLetterQueue}. The attempt count is
+ * SQS's own receive count, so it survives worker restarts.
+ */
+@Component
+public class RetryPolicy {
+    private static final Logger logger = LoggerFactory.getLogger(RetryPolicy.class);
+
+    /** Largest visibility timeout SQS accepts. */
+    private static final int MAX_VISIBILITY_SECONDS = 12 * 60 * 60;
+
+    private final DeadLetterQueue deadLetters;
+    private final int maxAttempts;
+    private final int baseDelaySeconds;
+    private final int maxDelaySeconds;
+    private final Counter retried;
+
+    public RetryPolicy(
+            DeadLetterQueue deadLetters,
+            MeterRegistry meterRegistry,
+            @Value("${workflow.worker.retry.max-attempts:5}") int maxAttempts,
+            @Value("${workflow.worker.retry.base-delay-seconds:5}") int baseDelaySeconds,
+            @Value("${workflow.worker.retry.max-delay-seconds:900}") int maxDelaySeconds) {
+        this.deadLetters = deadLetters;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelaySeconds = Math.max(1, baseDelaySeconds);
+        this.maxDelaySeconds = Math.min(Math.max(this.baseDelaySeconds, maxDelaySeconds), MAX_VISIBILITY_SECONDS);
+        this.retried = Counter.builder("workflow.worker.retries")
+                .description("Messages left on the queue for a delayed retry")
+                .register(meterRegistry);
+
+        logger.info("RetryPolicy initialized: maxAttempts={}, baseDelaySeconds={}, maxDelaySeconds={}, dlq={}",
+                this.maxAttempts, this.baseDelaySeconds, this.maxDelaySeconds, deadLetters.getQueueName());
+    }
+
+    /**
+     * Schedules a retry, or dead-letters the message if it has no attempts left.
+     *
+     * @return {@code true} if the message was dead-lettered and can be deleted,
+     * {@code false} if it will be redelivered
+     */
+    public CompletableFuture<Boolean> retryLater(Message<String> message, Throwable cause) {
+        int attempt = receiveCount(message);
+        if (attempt >= maxAttempts) {
+            return deadLetters.quarantine(message, "retries-exhausted", cause)
+                    .thenApply(v -> true)
+                    // Not deleted: the queue's redrive policy takes it if this keeps failing
+                    .exceptionally(ex -> false);
+        }
+
+        int delay = delaySeconds(attempt);
+        retried.increment();
+        logger.warn("Retrying message later: messageId={}, attempt={}/{}, delaySeconds={}, cause={}",
+                MessageHeaderUtils.getId(message), attempt, maxAttempts, delay,
+                FailureClassifier.unwrap(cause).toString());
+        Visibility visibility = message.getHeaders().get(SqsHeaders.SQS_VISIBILITY_TIMEOUT_HEADER, Visibility.class);
+        if (visibility == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return visibility.changeToAsync(delay)
+                .handle((v, ex) -> {
+                    if (ex != null) {
+                        // The queue's default visibility timeout applies instead
+                        logger.warn("Failed to delay retry: messageId={}, error={}",
+                                MessageHeaderUtils.getId(message), ex.toString());
+                    }
+                    return false;
+                });
+    }
+
+    /** Messages that can never be processed (undecodable) go straight to the dead-letter queue. */
+    public CompletableFuture<Boolean> reject(Message<String> message, Throwable cause) {
+        return deadLetters.quarantine(message, "unparseable", cause)
+                .thenApply(v -> true)
+                .exceptionally(ex -> false);
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    /** Exponential in the attempt number, with "equal jitter": between half and all of the step. */
+    int delaySeconds(int attempt) {
+        long step = Math.min(maxDelaySeconds, (long) baseDelaySeconds << Math.min(Math.max(0, attempt - 1), 20));
+        return (int) Math.max(1, step / 2 + ThreadLocalRandom.current().nextLong(step / 2 + 1));
+    }
+
+    private static int receiveCount(Message<String> message) {
+        Object value = message.getHeaders().get(SqsHeaders.MessageSystemAttributes.SQS_APPROXIMATE_RECEIVE_COUNT);
+        try {
+            return value != null ? Integer.parseInt(value.toString()) : 1;
+        } catch (NumberFormatException ex) {
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package solanceworkflowplatform.worker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Lock-free serial executor over a queue: items added from any thread are
+ * handed to {@code drain} in the order they were added, in batches of at most
+ * {@code maxBatch}, and never by more than one thread at a time. A drain runs
+ * on {@code executor} only while there is something queued, so an idle
+ * queue costs no thread. Used for {@link LaneScheduler}'s lanes and the
+ * ledger's stripes.
+ *
+ * @param <T> queued item
+ */
+public final class SerialDrain<T> {
+    private static final Logger logger = LoggerFactory.getLogger(SerialDrain.class);
+
+    private final Queue<T> items = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Executor executor;
+    private final int maxBatch;
+    private final Consumer<List<T>> drain;
+
+    public SerialDrain(Executor executor, int maxBatch, Consumer<List<T>> drain) {
+        this.executor = executor;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.drain = drain;
+    }
+
+    /** Index of the slot {@code key} belongs to, out of {@code slots}. */
+    public static int slotFor(String key, int slots) {
+        int h = key.hashCode();
+        // Spread the high bits so keys that differ only there don't collide
+        return Math.floorMod(h ^ (h >>> 16), slots);
+    }
+
+    public void add(T item) {
+        items.add(item);
+        // Whoever takes pending from 0 to 1 starts the drain; everyone else just enqueues
+        if (pending.getAndIncrement() == 0) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /** Items added and not yet fully drained. */
+    public int pending() {
+        return pending.get();
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private void drain() {
+        int taken;
+        do {
+            // Never take more than pending counts, so the counter cannot run ahead of the queue
+            List<T> batch = new ArrayList<>(Math.min(maxBatch, pending.get()));
+            while (batch.size() < maxBatch && batch.size() < pending.get()) {
+                batch.add(items.poll());
+            }
+            try {
+                drain.accept(batch);
+            } catch (RuntimeException ex) {
+                // The batch is lost, but the queue behind it must keep moving
+                logger.error("Serial drain failed", ex);
+            }
+            taken = batch.size();
+        } while (pending.addAndGet(-taken) > 0);
+    }
+}
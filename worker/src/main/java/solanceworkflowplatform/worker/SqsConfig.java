@@ -6,7 +6,14 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import io.awspring.cloud.sqs.MessageExecutionThreadFactory;
+import io.awspring.cloud.sqs.config.SqsMessageListenerContainerFactory;
+import io.awspring.cloud.sqs.listener.ListenerMode;
+import io.awspring.cloud.sqs.listener.SqsContainerOptionsBuilder;
+import io.awspring.cloud.sqs.listener.acknowledgement.handler.AcknowledgementMode;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.sqs.model.CreateQueueRequest;
 import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
@@ -16,32 +23,118 @@ import software.amazon.awssdk.services.sqs.model.QueueDoesNotExistException;
 
 import jakarta.annotation.PostConstruct;
 
+import java.time.Duration;
+
 @Configuration
 public class SqsConfig {
     private static final Logger logger = LoggerFactory.getLogger(SqsConfig.class);
 
+    /** Listener container factory used by {@link WorkflowProcessor#onBatch}. */
+    public static final String BATCH_LISTENER_FACTORY = "batchSqsListenerContainerFactory";
+
+    /** SQS returns at most 10 messages per ReceiveMessage call. */
+    private static final int SQS_MAX_MESSAGES_PER_POLL = 10;
+
     private final SqsClient sqsClient;
     private final String queueName;
+    private final String deadLetterQueueName;
+    private final boolean batchMode;
+    private final int maxConcurrentMessages;
+    private final int maxMessagesPerPoll;
+    private final int pollThreads;
+    private final Duration pollTimeout;
 
     public SqsConfig(
             SqsClient sqsClient,
-            @Value("${sqs.queue.workflow.name}") String queueName) {
+            @Value("${sqs.queue.workflow.name}") String queueName,
+            @Value("${sqs.queue.workflow.dlq-name:${sqs.queue.workflow.name}-dlq}") String deadLetterQueueName,
+            @Value("${workflow.worker.listener-mode:batch}") String listenerMode,
+            @Value("${workflow.worker.sqs.max-concurrent-messages:200}") int maxConcurrentMessages,
+            @Value("${workflow.worker.sqs.max-messages-per-poll:10}") int maxMessagesPerPoll,
+            @Value("${workflow.worker.sqs.poll-threads:4}") int pollThreads,
+            @Value("${workflow.worker.sqs.poll-timeout-seconds:10}") int pollTimeoutSeconds) {
         this.sqsClient = sqsClient;
         this.queueName = queueName;
+        this.deadLetterQueueName = deadLetterQueueName;
+        this.batchMode = "batch".equalsIgnoreCase(listenerMode);
+        this.maxMessagesPerPoll = Math.min(Math.max(1, maxMessagesPerPoll), SQS_MAX_MESSAGES_PER_POLL);
+        this.maxConcurrentMessages = Math.max(this.maxMessagesPerPoll, maxConcurrentMessages);
+        this.pollThreads = Math.max(1, pollThreads);
+        this.pollTimeout = Duration.ofSeconds(Math.min(Math.max(1, pollTimeoutSeconds), 20));
+    }
+
+    /**
+     * Container for the one-message-at-a-time {@link WorkflowProcessor#onEvent} listener.
+     * Only started when {@code workflow.worker.listener-mode=single}. Acknowledgement is
+     * manual, as in batch mode, so a message left for a delayed retry is not deleted.
+     */
+    @Bean
+    public SqsMessageListenerContainerFactory<Object> defaultSqsListenerContainerFactory(SqsAsyncClient sqsAsyncClient) {
+        return SqsMessageListenerContainerFactory.builder()
+                .sqsAsyncClient(sqsAsyncClient)
+                .configure(options -> tune(options)
+                        .autoStartup(!batchMode)
+                        .acknowledgementMode(AcknowledgementMode.MANUAL))
+                .build();
+    }
+
+    /**
+     * Container handing each receive batch to {@link WorkflowProcessor#onBatch} in one call.
+     * Acknowledgement is manual so only the messages that were fully handled are deleted,
+     * and is flushed straight away so each batch's successes go out as one DeleteMessageBatch.
+     */
+    @Bean(BATCH_LISTENER_FACTORY)
+    public SqsMessageListenerContainerFactory<Object> batchSqsListenerContainerFactory(SqsAsyncClient sqsAsyncClient) {
+        return SqsMessageListenerContainerFactory.builder()
+                .sqsAsyncClient(sqsAsyncClient)
+                .configure(options -> tune(options)
+                        .autoStartup(batchMode)
+                        .listenerMode(ListenerMode.BATCH)
+                        .acknowledgementMode(AcknowledgementMode.MANUAL)
+                        .acknowledgementInterval(Duration.ZERO)
+                        .acknowledgementThreshold(0))
+                .build();
     }
 
     @PostConstruct
     public void init() {
-        logger.info("Initializing SQS configuration with queue name: {}", queueName);
-        ensureQueueExists();
+        logger.info("Initializing SQS configuration with queue name: {}, listenerMode={}, maxConcurrentMessages={}, "
+                        + "maxMessagesPerPoll={}, pollThreads={}",
+                queueName, batchMode ? "batch" : "single", maxConcurrentMessages, maxMessagesPerPoll, pollThreads);
+        ensureQueueExists(queueName);
+        ensureQueueExists(deadLetterQueueName);
         logger.info("SQS configuration initialized successfully");
     }
 
+    /**
+     * Shared concurrency settings. Listeners hand their work to {@link WorkerThreads}
+     * and return straight away, so the container's own threads only poll and dispatch:
+     * a handful of them keeps {@code maxConcurrentMessages} handlers busy, with up to
+     * {@code maxConcurrentMessages / maxMessagesPerPoll} receives in flight.
+     */
+    private SqsContainerOptionsBuilder tune(SqsContainerOptionsBuilder options) {
+        return options
+                .maxConcurrentMessages(maxConcurrentMessages)
+                .maxMessagesPerPoll(maxMessagesPerPoll)
+                .pollTimeout(pollTimeout)
+                .componentsTaskExecutor(pollingTaskExecutor());
+    }
+
+    /** The container requires its own thread type here, so this stays a small platform pool. */
+    private ThreadPoolTaskExecutor pollingTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadFactory(new MessageExecutionThreadFactory("sqs-poll-"));
+        executor.setCorePoolSize(pollThreads);
+        executor.setMaxPoolSize(pollThreads);
+        executor.initialize();
+        return executor;
+    }
+
     /**
      * Ensures that the SQS queue exists, creating it if necessary.
      * This is particularly important for local development with LocalStack.
      */
-    private void ensureQueueExists() {
+    private void ensureQueueExists(String queueName) {
         try {
             // Try to get the queue URL to check if it exists
             String queueUrl = sqsClient.getQueueUrl(GetQueueUrlRequest.builder()
@@ -95,9 +188,9 @@ public class SqsConfig {
             logger.info("SQS queue '{}' status - URL: {}, Messages available: {}, Messages in flight: {}, Messages delayed: {}",
                     queueName,
                     queueUrl,
-                    attributes.getOrDefault(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES.toString(), "0"),
-                    attributes.getOrDefault(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE.toString(), "0"),
-                    attributes.getOrDefault(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_DELAYED.toString(), "0"));
+                    attributes.getOrDefault(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES, "0"),
+                    attributes.getOrDefault(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE, "0"),
+                    attributes.getOrDefault(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_DELAYED, "0"));
         } catch (Exception e) {
             logger.warn("Failed to check status of SQS queue '{}': {}", queueName, e.getMessage());
         }
@@ -0,0 +1,281 @@
+package solanceworkflowplatform.worker;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import solanceworkflowplatform.worker.handler.TransientFailureException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind status updates for the worker. Transitions are buffered for up
+ * to {@code workflow.worker.status.linger-ms} (or until
+ * {@code workflow.worker.status.max-batch} are waiting) and flushed as one
+ * concurrent round. DynamoDB has no batched conditional update:
+ * TransactWriteItems is all-or-nothing, so one stale duplicate would cancel
+ * the whole batch, and BatchWriteItem cannot carry conditions.
+ * <p>
+ * Every update is conditional on the current status, so only
+ * {@code RECEIVED -> PROCESSING -> COMPLETED | FAILED} can happen. A redelivered
+ * or duplicate message loses the condition check and is dropped without
+ * overwriting a finished event. Each transition also stamps its time
+ * ({@code dequeuedAt} and {@code startedAt} on the claim, {@code completedAt}
+ * on the final status) in epoch millis. A PROCESSING claim older than
+ * {@code workflow.worker.status.claim-timeout-ms} may be taken over, since the
+ * worker that held it is assumed to be gone. A claim can also be released
+ * back to RECEIVED when processing is to be retried later.
+ * <p>
+ * Each claim records a {@code claimId} of its own, and only the attempt
+ * holding it can finish or release the event: an attempt whose claim was
+ * taken over cannot overwrite the outcome of the attempt that took it.
+ */
+@Component
+public class StatusWriter {
+    private static final Logger logger = LoggerFactory.getLogger(StatusWriter.class);
+
+    public static final String RECEIVED = "RECEIVED";
+    public static final String PROCESSING = "PROCESSING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private record Pending(String eventId, String status, String claimId, Long dequeuedAt, long enqueuedNanos,
+                           CompletableFuture<Boolean> result) { }
+
+    private final DynamoDbClient dynamo;
+    private final String tableName;
+    private final int maxBatch;
+    private final long claimTimeoutMs;
+    private final Queue<Pending> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final ScheduledExecutorService flusher;
+    private final AsyncTaskExecutor writers;
+    private final Timer flushLatency;
+    private final DistributionSummary batchSize;
+    private final MeterRegistry meterRegistry;
+
+    public StatusWriter(
+            DynamoDbClient dynamo,
+            WorkerThreads threads,
+            MeterRegistry meterRegistry,
+            @Value("${DDB_TABLE:solance-workflow}") String tableName,
+            @Value("${workflow.worker.status.max-batch:25}") int maxBatch,
+            @Value("${workflow.worker.status.linger-ms:5}") long lingerMs,
+            @Value("${workflow.worker.status.claim-timeout-ms:1200000}") long claimTimeoutMs
+    ) {
+        this.dynamo = dynamo;
+        this.tableName = tableName;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.claimTimeoutMs = claimTimeoutMs;
+        this.meterRegistry = meterRegistry;
+        this.writers = threads.executor("workflow-status-");
+        this.flusher = Executors.newSingleThreadScheduledExecutor(threads.threadFactory("workflow-status-flush-"));
+        this.flusher.scheduleWithFixedDelay(this::flush, lingerMs, Math.max(1, lingerMs), TimeUnit.MILLISECONDS);
+
+        this.flushLatency = Timer.builder("workflow.status.flush.latency")
+                .description("Time from buffering a status transition until its flush round completed")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("workflow.status.flush.size")
+                .description("Status transitions written per flush")
+                .register(meterRegistry);
+
+        logger.info("StatusWriter initialized: table={}, maxBatch={}, lingerMs={}, claimTimeoutMs={}",
+                tableName, this.maxBatch, lingerMs, claimTimeoutMs);
+    }
+
+    /**
+     * RECEIVED -> PROCESSING. Completes with the id of the new claim, or with
+     * {@code null} if the event has finished, and fails with a
+     * {@link TransientFailureException} if it is being processed elsewhere,
+     * since that attempt may still fail.
+     *
+     * @param dequeuedAt when the message was received from SQS, or {@code null} if unknown
+     */
+    public CompletableFuture<String> claim(String eventId, Long dequeuedAt) {
+        String claimId = UUID.randomUUID().toString();
+        return enqueue(eventId, PROCESSING, claimId, dequeuedAt)
+                .thenApply(applied -> applied ? claimId : null);
+    }
+
+    /**
+     * PROCESSING -> COMPLETED or FAILED. Completes with {@code false} if the
+     * event is no longer PROCESSING under {@code claimId} (a stale duplicate,
+     * or a claim that was taken over); fails if the write itself failed.
+     */
+    public CompletableFuture<Boolean> finish(String eventId, String claimId, String status) {
+        if (!COMPLETED.equals(status) && !FAILED.equals(status)) {
+            throw new IllegalArgumentException("Not a terminal status: " + status);
+        }
+        return enqueue(eventId, status, claimId, null);
+    }
+
+    /**
+     * PROCESSING -> RECEIVED, giving up a claim so a later delivery can take
+     * it again. Completes with {@code false} if the event is no longer
+     * PROCESSING under {@code claimId}.
+     */
+    public CompletableFuture<Boolean> release(String eventId, String claimId) {
+        return enqueue(eventId, RECEIVED, claimId, null);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flush();
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private CompletableFuture<Boolean> enqueue(String eventId, String status, String claimId, Long dequeuedAt) {
+        Pending pending = new Pending(eventId, status, claimId, dequeuedAt, System.nanoTime(),
+                new CompletableFuture<>());
+        buffer.add(pending);
+        if (buffered.incrementAndGet() >= maxBatch) {
+            flusher.execute(this::flush);
+        }
+        return pending.result();
+    }
+
+    private void flush() {
+        try {
+            List<Pending> batch;
+            while (!(batch = drain()).isEmpty()) {
+                write(batch);
+            }
+        } catch (Exception ex) {
+            // Never let an exception cancel the periodic flush
+            logger.error("Status flush failed", ex);
+        }
+    }
+
+    private List<Pending> drain() {
+        List<Pending> batch = new ArrayList<>(Math.min(maxBatch, Math.max(0, buffered.get())));
+        Pending pending;
+        while (batch.size() < maxBatch && (pending = buffer.poll()) != null) {
+            buffered.decrementAndGet();
+            batch.add(pending);
+        }
+        return batch;
+    }
+
+    /** One concurrent round of conditional updates; duplicates within the round lose locally. */
+    private void write(List<Pending> batch) {
+        long oldest = batch.get(0).enqueuedNanos();
+        Set<String> seen = new HashSet<>();
+        List<CompletableFuture<Boolean>> writes = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            if (!seen.add(pending.eventId() + '/' + pending.status() + '/' + pending.claimId())) {
+                // The same transition twice in one round: only one can win the condition anyway
+                record(pending.status(), "conflict");
+                pending.result().complete(false);
+                continue;
+            }
+            writes.add(pending.result());
+            writers.execute(() -> {
+                try {
+                    pending.result().complete(update(pending));
+                } catch (Exception ex) {
+                    pending.result().completeExceptionally(ex);
+                }
+            });
+        }
+
+        batchSize.record(writes.size());
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new))
+                .whenComplete((v, ex) -> flushLatency.record(System.nanoTime() - oldest, TimeUnit.NANOSECONDS));
+    }
+
+    /** @return {@code true} if applied, {@code false} if the transition was not allowed */
+    private boolean update(Pending pending) {
+        String eventId = pending.eventId();
+        String status = pending.status();
+        long now = System.currentTimeMillis();
+        Map<String, String> names = Map.of("#st", "status");
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":to", AttributeValue.fromS(status));
+        values.put(":now", AttributeValue.fromN(Long.toString(now)));
+        values.put(":claim", AttributeValue.fromS(pending.claimId()));
+        String update;
+        String condition;
+        if (PROCESSING.equals(status)) {
+            values.put(":received", AttributeValue.fromS(RECEIVED));
+            values.put(":stale", AttributeValue.fromN(Long.toString(now - claimTimeoutMs)));
+            update = "SET #st = :to, startedAt = :now, claimId = :claim";
+            if (pending.dequeuedAt() != null) {
+                values.put(":dequeued", AttributeValue.fromN(Long.toString(pending.dequeuedAt())));
+                update += ", dequeuedAt = :dequeued";
+            }
+            condition = "#st = :received OR (#st = :to AND startedAt < :stale)";
+        } else if (RECEIVED.equals(status)) {
+            values.put(":processing", AttributeValue.fromS(PROCESSING));
+            update = "SET #st = :to REMOVE startedAt, claimId";
+            condition = "#st = :processing AND claimId = :claim";
+        } else {
+            values.put(":processing", AttributeValue.fromS(PROCESSING));
+            update = "SET #st = :to, completedAt = :now";
+            condition = "#st = :processing AND claimId = :claim";
+        }
+
+        try {
+            dynamo.updateItem(UpdateItemRequest.builder()
+                    .tableName(tableName)
+                    .key(Map.of("eventId", AttributeValue.fromS(eventId)))
+                    .updateExpression(update)
+                    .conditionExpression(condition)
+                    .expressionAttributeNames(names)
+                    .expressionAttributeValues(values)
+                    .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                    .build());
+            record(status, "applied");
+            logger.debug("Updated status for eventId={} to status={}", eventId, status);
+            return true;
+        } catch (ConditionalCheckFailedException ex) {
+            record(status, "conflict");
+            AttributeValue current = ex.hasItem() ? ex.item().get("status") : null;
+            if (PROCESSING.equals(status) && current != null && PROCESSING.equals(current.s())) {
+                throw new TransientFailureException("Workflow event is being processed elsewhere: eventId=" + eventId);
+            }
+            logger.info("Dropped status transition: eventId={}, status={} (not allowed from current status)",
+                    eventId, status);
+            return false;
+        } catch (Exception ex) {
+            record(status, "error");
+            logger.error("Failed to update status for eventId={}", eventId, ex);
+            throw ex;
+        }
+    }
+
+    private void record(String status, String outcome) {
+        Counter.builder("workflow.status.transitions")
+                .description("Status transitions by target status and outcome")
+                .tag("status", status)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
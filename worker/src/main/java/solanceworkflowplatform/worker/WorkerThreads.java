@@ -0,0 +1,57 @@
+package solanceworkflowplatform.worker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Where the worker's handler code runs. Handlers spend nearly all their time
+ * waiting on DynamoDB, so with {@code workflow.worker.virtual-threads=true}
+ * (and a Java 21+ runtime) each one gets a virtual thread and hundreds can be
+ * in flight on a small task. Otherwise, or on an older JVM, platform threads
+ * are used.
+ */
+@Component
+public class WorkerThreads {
+    private static final Logger logger = LoggerFactory.getLogger(WorkerThreads.class);
+
+    private final boolean virtual;
+
+    public WorkerThreads(@Value("${workflow.worker.virtual-threads:true}") boolean virtualThreads) {
+        boolean supported = Runtime.version().feature() >= 21;
+        if (virtualThreads && !supported) {
+            logger.warn("Virtual threads requested but not supported on Java {}; using platform threads",
+                    Runtime.version().feature());
+        }
+        this.virtual = virtualThreads && supported;
+        logger.info("Worker handler threads: {}", virtual ? "virtual" : "platform");
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /** Thread-per-task executor; concurrency is bounded by the listener container, not here. */
+    public AsyncTaskExecutor executor(String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(virtual);
+        executor.setTaskTerminationTimeout(10_000);
+        return executor;
+    }
+
+    public ThreadFactory threadFactory(String threadNamePrefix) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(threadNamePrefix).getVirtualThreadFactory();
+        }
+        CustomizableThreadFactory factory = new CustomizableThreadFactory(threadNamePrefix);
+        factory.setDaemon(true);
+        return factory;
+    }
+}
@@ -0,0 +1,131 @@
+package solanceworkflowplatform.worker;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.stereotype.Component;
+import solanceworkflowplatform.worker.handler.WorkflowHandlerRegistry;
+
+import java.io.IOException;
+
+/**
+ * Decodes an SQS message body in one streaming pass. Two shapes arrive:
+ * <ul>
+ *   <li>direct from the API: {@code {"eventId", "detailType", "detail": payload}};</li>
+ *   <li>via EventBridge: the same envelope as the {@code detail} of an EventBridge event.</li>
+ * </ul>
+ * The shape is told apart from the fields seen, and the payload is bound
+ * straight to the handler's record. A payload that arrives before its
+ * {@code detailType} (or before the shape is known) is copied into a token
+ * buffer and bound from there, which still avoids building a tree.
+ */
+@Component
+public class WorkflowEventDecoder {
+
+    private final ObjectMapper mapper;
+    private final WorkflowHandlerRegistry registry;
+
+    public WorkflowEventDecoder(ObjectMapper mapper, WorkflowHandlerRegistry registry) {
+        this.mapper = mapper;
+        this.registry = registry;
+    }
+
+    public InboundEvent decode(String raw) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(raw)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Unsupported event shape");
+            }
+            return readEnvelope(parser, true);
+        }
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    /**
+     * Reads the object the parser is on. With {@code mayBeWrapped} a
+     * {@code detail} field may itself be the envelope (EventBridge shape).
+     */
+    private InboundEvent readEnvelope(JsonParser parser, boolean mayBeWrapped) throws IOException {
+        String eventId = null;
+        String detailType = null;
+        boolean eventBridge = false;
+        Object payload = null;
+        boolean payloadSeen = false;
+        TokenBuffer buffered = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "eventId" -> eventId = parser.getValueAsString();
+                case "detailType" -> detailType = parser.getValueAsString();
+                // Only EventBridge events carry these; the envelope is then in "detail"
+                case "detail-type", "source" -> {
+                    eventBridge = mayBeWrapped;
+                    parser.skipChildren();
+                }
+                case "detail" -> {
+                    if (mayBeWrapped && eventBridge && parser.currentToken() == JsonToken.START_OBJECT) {
+                        return finish(readEnvelope(parser, false), parser);
+                    }
+                    payloadSeen = true;
+                    if (detailType != null) {
+                        payload = bind(parser, detailType);
+                    } else {
+                        // Type (or, at the top level, the shape) not known yet
+                        buffered = buffer(parser);
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (eventId == null || detailType == null) {
+            if (mayBeWrapped && buffered != null) {
+                // The buffered "detail" was the envelope
+                try (JsonParser inner = buffered.asParser(parser.getCodec())) {
+                    if (inner.nextToken() == JsonToken.START_OBJECT) {
+                        return readEnvelope(inner, false);
+                    }
+                }
+            }
+            throw new IllegalArgumentException("Unsupported event shape");
+        }
+        if (buffered != null) {
+            try (JsonParser inner = buffered.asParser(parser.getCodec())) {
+                inner.nextToken();
+                payload = bind(inner, detailType);
+            }
+        } else if (!payloadSeen) {
+            throw new IllegalArgumentException("Workflow event has no detail: eventId=" + eventId);
+        }
+        return new InboundEvent(eventId, detailType, payload);
+    }
+
+    /** Skips what is left of the outer EventBridge object once the envelope has been read. */
+    private static InboundEvent finish(InboundEvent evt, JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            parser.nextToken();
+            parser.skipChildren();
+        }
+        return evt;
+    }
+
+    /** Binds the value the parser is on, or skips it if no handler consumes the type. */
+    private Object bind(JsonParser parser, String detailType) throws IOException {
+        ObjectReader reader = registry.readerFor(detailType);
+        if (reader == null || parser.currentToken() == JsonToken.VALUE_NULL) {
+            parser.skipChildren();
+            return null;
+        }
+        return reader.readValue(parser);
+    }
+
+    private static TokenBuffer buffer(JsonParser parser) throws IOException {
+        TokenBuffer buffer = new TokenBuffer(parser);
+        buffer.copyCurrentStructure(parser);
+        return buffer;
+    }
+}
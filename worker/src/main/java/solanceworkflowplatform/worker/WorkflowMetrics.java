@@ -0,0 +1,65 @@
+package solanceworkflowplatform.worker;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of each stage of a workflow event, per {@code detailType}, as
+ * histograms (exposed on {@code /actuator/prometheus}):
+ * <ul>
+ *   <li>{@code workflow.event.queue.wait}: accepted by the API until received from SQS;</li>
+ *   <li>{@code workflow.event.handler.time}: the handler itself;</li>
+ *   <li>{@code workflow.event.end-to-end}: accepted by the API until the final status was recorded.</li>
+ * </ul>
+ * Stages that start at the API are only measured when the message carried
+ * its {@code receivedAt}. API and worker clocks are compared directly, so
+ * skew between hosts shows up in those two.
+ */
+@Component
+public class WorkflowMetrics {
+
+    /** Types without a handler share one tag, so arbitrary input cannot blow up the series count. */
+    private static final String UNKNOWN_TYPE = "unknown";
+
+    private final MeterRegistry meterRegistry;
+
+    public WorkflowMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void dequeued(InboundEvent evt) {
+        if (evt.receivedAt() != null && evt.dequeuedAt() != null) {
+            timer("workflow.event.queue.wait", "Time from acceptance by the API until received from SQS", evt, null)
+                    .record(Math.max(0, evt.dequeuedAt() - evt.receivedAt()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void handled(InboundEvent evt, long handlerNanos) {
+        timer("workflow.event.handler.time", "Time spent in the workflow handler", evt, null)
+                .record(handlerNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void completed(InboundEvent evt, String status, long completedAt) {
+        if (evt.receivedAt() != null) {
+            timer("workflow.event.end-to-end", "Time from acceptance by the API until the final status was recorded",
+                    evt, status)
+                    .record(Math.max(0, completedAt - evt.receivedAt()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private Timer timer(String name, String description, InboundEvent evt, String status) {
+        Timer.Builder builder = Timer.builder(name)
+                .description(description)
+                .tag("type", evt.payload() != null ? evt.detailType() : UNKNOWN_TYPE)
+                .publishPercentileHistogram();
+        if (status != null) {
+            builder.tag("status", status);
+        }
+        return builder.register(meterRegistry);
+    }
+}
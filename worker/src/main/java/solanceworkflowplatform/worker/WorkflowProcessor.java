@@ -1,154 +1,321 @@
 package solanceworkflowplatform.worker;
 
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.awspring.cloud.sqs.MessageHeaderUtils;
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import io.awspring.cloud.sqs.listener.acknowledgement.Acknowledgement;
+import io.awspring.cloud.sqs.listener.acknowledgement.BatchAcknowledgement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
-import services.model.*;
+import solanceworkflowplatform.worker.handler.WorkflowHandlerRegistry;
 
-import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
-import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 import io.awspring.cloud.sqs.annotation.SqsListener;
 
-
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 public class WorkflowProcessor {
     private static final Logger logger = LoggerFactory.getLogger(WorkflowProcessor.class);
 
-    private final DynamoDbClient dynamo;
-    private final ObjectMapper mapper;
-    private final String tableName;
+    /**
+     * Result of running one event in its lane: the final status to record,
+     * nothing (a duplicate), or a failure to retry later. {@code claimId}
+     * identifies this attempt's PROCESSING claim, {@code null} if it never
+     * claimed the event.
+     */
+    private record Attempt(String status, String claimId, Throwable failure) {
+        static final Attempt DUPLICATE = new Attempt(null, null, null);
+    }
+
+    private final StatusWriter statusWriter;
+    private final WorkflowEventDecoder decoder;
+    private final WorkflowHandlerRegistry registry;
+    private final LaneScheduler lanes;
+    private final WorkflowMetrics metrics;
+    private final RetryPolicy retryPolicy;
+    private final InFlightMessages inFlight;
 
     public WorkflowProcessor(
-            DynamoDbClient dynamo,
-            ObjectMapper mapper,
-            @Value("${DDB_TABLE:solance-workflow}") String tableName
+            StatusWriter statusWriter,
+            WorkflowEventDecoder decoder,
+            WorkflowHandlerRegistry registry,
+            LaneScheduler lanes,
+            WorkflowMetrics metrics,
+            RetryPolicy retryPolicy,
+            InFlightMessages inFlight
     ) {
-        this.dynamo = dynamo;
-        this.mapper = mapper;
-        this.tableName = tableName;
+        this.statusWriter = statusWriter;
+        this.decoder = decoder;
+        this.registry = registry;
+        this.lanes = lanes;
+        this.metrics = metrics;
+        this.retryPolicy = retryPolicy;
+        this.inFlight = inFlight;
     }
 
+    /**
+     * Decodes on the container thread, so events reach their lane in the order
+     * they were received, then starts the handler in that lane (an asynchronous
+     * handler frees the lane once its work is queued). The message is
+     * kept invisible by {@link InFlightMessages} while it waits and runs, and
+     * deleted once its outcome is recorded. A transient failure leaves it on
+     * the queue for a delayed retry (see {@link RetryPolicy}), and a message
+     * that cannot be decoded is moved to the dead-letter queue.
+     */
     @SqsListener("${sqs.queue.workflow.name}")
-    public void onEvent(String raw) {
+    public CompletableFuture<Void> onEvent(Message<String> message, Acknowledgement acknowledgement) {
         logger.info("Received workflow event from SQS");
-        logger.debug("Raw event data: {}", raw);
+        logger.debug("Raw event data: {}", message.getPayload());
 
-        WorkflowEvent evt;
+        InboundEvent evt;
         try {
-            evt = parseWorkflowEvent(raw);
+            evt = decode(message);
         } catch (Exception ex) {
             logger.error("Failed to parse workflow event", ex);
-            return;
+            return retryPolicy.reject(message, ex)
+                    .thenCompose(rejected -> rejected ? acknowledgement.acknowledgeAsync() : done());
         }
 
-        try {
-            routeEvent(evt);
-            updateStatus(evt.eventId(), "COMPLETED");
-            logger.info("Workflow event processed successfully: eventId={}", evt.eventId());
-        } catch (Exception ex) {
-            logger.error("Error while handling workflow event: eventId={}", evt.eventId(), ex);
-            updateStatus(evt.eventId(), "FAILED");
+        inFlight.track(message);
+        return untrack(lanes.submit(laneKey(evt), () -> run(evt)).thenCompose(attempt -> attempt), List.of(message))
+                .thenCompose(attempt -> settle(evt, List.of(message), attempt))
+                .thenCompose(ackable -> ackable.isEmpty() ? done() : acknowledgement.acknowledgeAsync());
+    }
+
+    /**
+     * Batch counterpart of {@link #onEvent}: the whole receive batch is decoded
+     * together and routed through the lanes (in order per account, in parallel
+     * across accounts), its status transitions are flushed together by the
+     * {@link StatusWriter}, and everything that made it through is deleted in
+     * a single acknowledgement. Messages to retry are left unacknowledged with
+     * their visibility timeout raised to the backoff delay.
+     */
+    @SqsListener(value = "${sqs.queue.workflow.name}", factory = SqsConfig.BATCH_LISTENER_FACTORY)
+    public CompletableFuture<Void> onBatch(List<Message<String>> messages, BatchAcknowledgement<String> acknowledgement) {
+        logger.info("Received batch of {} workflow events from SQS", messages.size());
+
+        List<CompletableFuture<List<Message<String>>>> settled = new ArrayList<>();
+        // Keyed by eventId: a redelivered duplicate in the same batch is processed once
+        Map<String, CompletableFuture<Attempt>> attempts = new LinkedHashMap<>();
+        Map<String, InboundEvent> events = new LinkedHashMap<>();
+        Map<String, List<Message<String>>> messagesByEvent = new LinkedHashMap<>();
+        for (Message<String> message : messages) {
+            logger.debug("Raw event data: {}", message.getPayload());
+            InboundEvent evt;
+            try {
+                evt = decode(message);
+            } catch (Exception ex) {
+                logger.error("Failed to parse workflow event: messageId={}", MessageHeaderUtils.getId(message), ex);
+                settled.add(retryPolicy.reject(message, ex)
+                        .thenApply(rejected -> rejected ? List.of(message) : List.of()));
+                continue;
+            }
+            inFlight.track(message);
+            attempts.computeIfAbsent(evt.eventId(),
+                    id -> lanes.submit(laneKey(evt), () -> run(evt)).thenCompose(attempt -> attempt));
+            events.putIfAbsent(evt.eventId(), evt);
+            messagesByEvent.computeIfAbsent(evt.eventId(), id -> new ArrayList<>()).add(message);
         }
+        attempts.forEach((eventId, attempt) -> settled.add(untrack(attempt, messagesByEvent.get(eventId))
+                .thenCompose(a -> settle(events.get(eventId), messagesByEvent.get(eventId), a))));
+
+        return CompletableFuture.allOf(settled.toArray(CompletableFuture[]::new))
+                .thenCompose(v -> {
+                    List<Message<String>> handled = new ArrayList<>(messages.size());
+                    for (CompletableFuture<List<Message<String>>> f : settled) {
+                        handled.addAll(f.join());
+                    }
+                    logger.info("Workflow batch processed: received={}, acknowledged={}",
+                            messages.size(), handled.size());
+                    return handled.isEmpty() ? done() : acknowledgement.acknowledgeAsync(handled);
+                });
     }
 
     /* ---------- helpers ---------------------------------------------------- */
 
-    private WorkflowEvent parseWorkflowEvent(String raw) throws Exception {
-        JsonNode root = mapper.readTree(raw);
+    /** Decodes the body and stamps it with the lifecycle timestamps carried by the message. */
+    private InboundEvent decode(Message<String> message) throws Exception {
+        InboundEvent evt = decoder.decode(message.getPayload())
+                .withTimestamps(receivedAt(message), dequeuedAt(message));
+        metrics.dequeued(evt);
+        return evt;
+    }
 
-        // 1) Direct-to-SQS: payload already matches WorkflowEvent
-        if (root.has("eventId") && root.has("detailType")) {
-            return mapper.treeToValue(root, WorkflowEvent.class);
+    /** Set by the API as a Number message attribute on the direct SQS path only. */
+    private static Long receivedAt(Message<String> message) {
+        Object value = message.getHeaders().get("receivedAt");
+        if (value instanceof Number number) {
+            return number.longValue();
         }
-
-        // 2) EventBridge envelope: unwrap "detail"
-        if (root.has("detail")) {
-            JsonNode inner = root.get("detail");
-            if (inner.has("eventId") && inner.has("detailType")) {
-                return mapper.treeToValue(inner, WorkflowEvent.class);
-            }
+        try {
+            return value != null ? new BigDecimal(value.toString()).longValue() : null;
+        } catch (NumberFormatException ex) {
+            logger.debug("Ignoring malformed receivedAt attribute: {}", value);
+            return null;
         }
-        throw new IllegalArgumentException("Unsupported event shape");
     }
 
-    private void routeEvent(WorkflowEvent evt) {
-        logger.info("Routing workflow event: type={}, eventId={}", evt.detailType(), evt.eventId());
+    private static long dequeuedAt(Message<String> message) {
+        Object value = message.getHeaders().get(SqsHeaders.SQS_RECEIVED_AT_HEADER);
+        return value instanceof Instant instant ? instant.toEpochMilli() : System.currentTimeMillis();
+    }
 
-        switch (evt.detailType()) {
-            case RegisterRequest.EVENT_TYPE -> {
-                logger.debug("Handling RegisterRequest");
-                handleRegister(evt);
-            }
-            case OpenAccountRequest.EVENT_TYPE -> {
-                logger.debug("Handling OpenAccountRequest");
-                handleOpenAccount(evt);
+    /**
+     * Claims the event and starts its handler; runs in the event's lane. Permanent
+     * handler errors end as FAILED, while transient ones (see {@link FailureClassifier})
+     * are returned for a retry. The returned future never fails.
+     */
+    private CompletableFuture<Attempt> run(InboundEvent evt) {
+        String claimId;
+        try {
+            claimId = claim(evt);
+            if (claimId == null) {
+                return CompletableFuture.completedFuture(Attempt.DUPLICATE);
             }
-            case DepositRequest.EVENT_TYPE -> {
-                logger.debug("Handling DepositRequest");
-                handleDeposit(evt);
+        } catch (Exception ex) {
+            return CompletableFuture.completedFuture(new Attempt(null, null, ex));
+        }
+
+        long started = System.nanoTime();
+        CompletableFuture<Void> handled;
+        try {
+            handled = routeEvent(evt);
+        } catch (Exception ex) {
+            handled = CompletableFuture.failedFuture(ex);
+        }
+        return handled.handle((v, failure) -> {
+            metrics.handled(evt, System.nanoTime() - started);
+            if (failure == null) {
+                logger.info("Workflow event processed successfully: eventId={}", evt.eventId());
+                return new Attempt(StatusWriter.COMPLETED, claimId, null);
             }
-            case PaymentInstructionRequest.EVENT_TYPE -> {
-                logger.debug("Handling PaymentInstructionRequest");
-                handlePayout(evt);
+            Throwable ex = FailureClassifier.unwrap(failure);
+            if (FailureClassifier.isTransient(ex)) {
+                logger.warn("Transient failure while handling workflow event: eventId={}, error={}",
+                        evt.eventId(), ex.toString());
+                return new Attempt(null, claimId, ex);
             }
-            default -> logger.warn("Unknown event type: {}, eventId={}", evt.detailType(), evt.eventId());
+            logger.error("Error while handling workflow event: eventId={}", evt.eventId(), ex);
+            return new Attempt(StatusWriter.FAILED, claimId, null);
+        });
+    }
+
+    /** RECEIVED -> PROCESSING; the claim id, or {@code null} for a duplicate of an event that is done. */
+    private String claim(InboundEvent evt) {
+        String claimId = statusWriter.claim(evt.eventId(), evt.dequeuedAt()).join();
+        if (claimId == null) {
+            logger.info("Skipping duplicate workflow event: eventId={}", evt.eventId());
+        }
+        return claimId;
+    }
+
+    /**
+     * Untracks the messages once the attempt is over and passes it on only when
+     * no visibility extension of them is still under way, so one cannot land
+     * after a retry backoff was set.
+     */
+    private CompletableFuture<Attempt> untrack(CompletableFuture<Attempt> attempt, List<Message<String>> messages) {
+        return attempt
+                .handle((a, ex) -> inFlight.untrack(messages)
+                        .thenCompose(v -> ex == null ? CompletableFuture.completedFuture(a)
+                                : CompletableFuture.<Attempt>failedFuture(ex)))
+                .thenCompose(untracked -> untracked);
+    }
+
+    /**
+     * Records the outcome of an attempt. If the attempt, or recording it, failed,
+     * our claim is released so a redelivery can take it, and the messages are
+     * handed to the {@link RetryPolicy}.
+     *
+     * @return the messages that can be acknowledged
+     */
+    private CompletableFuture<List<Message<String>>> settle(InboundEvent evt, List<Message<String>> messages,
+                                                           Attempt attempt) {
+        CompletableFuture<Boolean> recorded;
+        if (attempt.failure() != null) {
+            recorded = CompletableFuture.failedFuture(attempt.failure());
+        } else if (attempt.status() == null) {
+            recorded = CompletableFuture.completedFuture(true);
+        } else {
+            recorded = finish(evt, attempt);
         }
+
+        return recorded
+                .thenApply(v -> messages)
+                .exceptionallyCompose(ex -> release(evt, attempt)
+                        .thenCompose(v -> retryAll(messages, ex)));
     }
 
-    private void handleRegister(WorkflowEvent evt) {
-        logger.debug("Executing registration logic for eventId={}", evt.eventId());
-        // TODO: apply registration logic, e.g., create customer record
-        logger.debug("Registration processing completed for eventId={}", evt.eventId());
+    /** PROCESSING -> {@code status}; end-to-end latency is only recorded when the transition applied. */
+    private CompletableFuture<Boolean> finish(InboundEvent evt, Attempt attempt) {
+        return statusWriter.finish(evt.eventId(), attempt.claimId(), attempt.status())
+                .thenApply(applied -> {
+                    if (applied) {
+                        metrics.completed(evt, attempt.status(), System.currentTimeMillis());
+                    }
+                    return applied;
+                });
     }
 
-    private void handleOpenAccount(WorkflowEvent evt) {
-        logger.debug("Executing account opening logic for eventId={}", evt.eventId());
-        // TODO: apply account opening logic
-        logger.debug("Account opening processing completed for eventId={}", evt.eventId());
+    /** Best effort: if this fails, the claim still expires after the claim timeout. */
+    private CompletableFuture<Void> release(InboundEvent evt, Attempt attempt) {
+        if (attempt.claimId() == null) {
+            return done();
+        }
+        return statusWriter.release(evt.eventId(), attempt.claimId())
+                .handle((released, ex) -> {
+                    if (ex != null) {
+                        logger.warn("Failed to release workflow event for retry: eventId={}, error={}",
+                                evt.eventId(), ex.toString());
+                    }
+                    return null;
+                });
     }
 
-    private void handleDeposit(WorkflowEvent evt) {
-        logger.debug("Executing deposit logic for eventId={}", evt.eventId());
-        // TODO: apply deposit logic
-        logger.debug("Deposit processing completed for eventId={}", evt.eventId());
+    /** @return the messages that were dead-lettered and can be acknowledged */
+    private CompletableFuture<List<Message<String>>> retryAll(List<Message<String>> messages, Throwable cause) {
+        List<CompletableFuture<Boolean>> decisions = new ArrayList<>(messages.size());
+        for (Message<String> message : messages) {
+            decisions.add(retryPolicy.retryLater(message, cause));
+        }
+        return CompletableFuture.allOf(decisions.toArray(CompletableFuture[]::new))
+                .thenApply(v -> {
+                    List<Message<String>> deadLettered = new ArrayList<>(messages.size());
+                    for (int i = 0; i < messages.size(); i++) {
+                        if (decisions.get(i).join()) {
+                            deadLettered.add(messages.get(i));
+                        }
+                    }
+                    return deadLettered;
+                });
     }
 
-    private void handlePayout(WorkflowEvent evt) {
-        logger.debug("Executing payout logic for eventId={}", evt.eventId());
-        // TODO: apply payout logic
-        logger.debug("Payout processing completed for eventId={}", evt.eventId());
+    /** Events for the same account (or user) share a lane; events without a key get their own. */
+    private String laneKey(InboundEvent evt) {
+        String key = registry.orderingKey(evt.detailType(), evt.payload());
+        return key != null ? key : evt.eventId();
     }
 
-    private void updateStatus(String eventId, String status) {
-        logger.debug("Updating status for eventId={} to status={}", eventId, status);
+    private CompletableFuture<Void> routeEvent(InboundEvent evt) throws Exception {
+        logger.info("Routing workflow event: type={}, eventId={}", evt.detailType(), evt.eventId());
 
-        Map<String,AttributeValue> key = Map.of(
-                "eventId", AttributeValue.builder().s(eventId).build()
-        );
-        Map<String,AttributeValue> values = Map.of(
-                ":s", AttributeValue.builder().s(status).build()
-        );
+        return registry.handle(evt.detailType(), evt.eventId(), evt.payload())
+                .thenAccept(handled -> {
+                    if (!handled) {
+                        logger.warn("Unknown event type: {}, eventId={}", evt.detailType(), evt.eventId());
+                    }
+                });
+    }
 
-        try {
-            dynamo.updateItem(UpdateItemRequest.builder()
-                    .tableName(tableName)
-                    .key(key)
-                    .updateExpression("SET #st = :s")
-                    .expressionAttributeNames(Map.of("#st", "status"))
-                    .expressionAttributeValues(values)
-                    .build()
-            );
-            logger.debug("Successfully updated status for eventId={}", eventId);
-        } catch (Exception e) {
-            logger.error("Failed to update status for eventId={}", eventId, e);
-            throw e;
-        }
+    private static CompletableFuture<Void> done() {
+        return CompletableFuture.completedFuture(null);
     }
 }
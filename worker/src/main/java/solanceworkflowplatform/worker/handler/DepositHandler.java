@@ -0,0 +1,54 @@
+package solanceworkflowplatform.worker.handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import services.model.DepositRequest;
+import solanceworkflowplatform.worker.ledger.AccountLedger;
+import solanceworkflowplatform.worker.ledger.MinorUnits;
+import solanceworkflowplatform.worker.registry.CustomerRegistry;
+
+import java.util.concurrent.CompletableFuture;
+
+@Component
+public class DepositHandler implements WorkflowHandler<DepositRequest> {
+    private static final Logger logger = LoggerFactory.getLogger(DepositHandler.class);
+
+    private final CustomerRegistry registry;
+    private final AccountLedger ledger;
+
+    public DepositHandler(CustomerRegistry registry, AccountLedger ledger) {
+        this.registry = registry;
+        this.ledger = ledger;
+    }
+
+    @Override
+    public String detailType() {
+        return DepositRequest.EVENT_TYPE;
+    }
+
+    @Override
+    public Class<DepositRequest> payloadType() {
+        return DepositRequest.class;
+    }
+
+    @Override
+    public String orderingKey(DepositRequest deposit) {
+        return deposit.accountId();
+    }
+
+    @Override
+    public void handle(String eventId, DepositRequest deposit) {
+        handleAsync(eventId, deposit).join();
+    }
+
+    @Override
+    public CompletableFuture<Void> handleAsync(String eventId, DepositRequest deposit) {
+        registry.requireAccount(deposit.userId(), deposit.accountId(), deposit.currency());
+        long amountMinor = MinorUnits.of(deposit.currency(), deposit.amount());
+        logger.debug("Posting deposit for eventId={}, accountId={}, amountMinor={}",
+                eventId, deposit.accountId(), amountMinor);
+        return ledger.credit(deposit.accountId(), deposit.currency(), amountMinor, eventId)
+                .thenRun(() -> logger.debug("Deposit processing completed for eventId={}", eventId));
+    }
+}
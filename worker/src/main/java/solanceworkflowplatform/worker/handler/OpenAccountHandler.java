@@ -0,0 +1,40 @@
+package solanceworkflowplatform.worker.handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import services.model.OpenAccountRequest;
+import solanceworkflowplatform.worker.registry.CustomerRegistry;
+
+@Component
+public class OpenAccountHandler implements WorkflowHandler<OpenAccountRequest> {
+    private static final Logger logger = LoggerFactory.getLogger(OpenAccountHandler.class);
+
+    private final CustomerRegistry registry;
+
+    public OpenAccountHandler(CustomerRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public String detailType() {
+        return OpenAccountRequest.EVENT_TYPE;
+    }
+
+    @Override
+    public Class<OpenAccountRequest> payloadType() {
+        return OpenAccountRequest.class;
+    }
+
+    @Override
+    public String orderingKey(OpenAccountRequest openAccount) {
+        return openAccount.userId();
+    }
+
+    @Override
+    public void handle(String eventId, OpenAccountRequest openAccount) {
+        logger.debug("Executing account opening logic for eventId={}", eventId);
+        registry.openAccount(eventId, openAccount);
+        logger.debug("Account opening processing completed for eventId={}", eventId);
+    }
+}
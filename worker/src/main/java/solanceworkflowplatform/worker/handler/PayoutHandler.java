@@ -0,0 +1,73 @@
+package solanceworkflowplatform.worker.handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import services.model.PaymentInstructionRequest;
+import solanceworkflowplatform.worker.FailureClassifier;
+import solanceworkflowplatform.worker.ledger.AccountLedger;
+import solanceworkflowplatform.worker.ledger.InsufficientFundsException;
+import solanceworkflowplatform.worker.ledger.MinorUnits;
+import solanceworkflowplatform.worker.payout.DuplicatePayoutException;
+import solanceworkflowplatform.worker.payout.DuplicatePayoutGuard;
+import solanceworkflowplatform.worker.registry.CustomerRegistry;
+
+import java.util.concurrent.CompletableFuture;
+
+@Component
+public class PayoutHandler implements WorkflowHandler<PaymentInstructionRequest> {
+    private static final Logger logger = LoggerFactory.getLogger(PayoutHandler.class);
+
+    private final CustomerRegistry registry;
+    private final AccountLedger ledger;
+    private final DuplicatePayoutGuard duplicateGuard;
+
+    public PayoutHandler(CustomerRegistry registry, AccountLedger ledger, DuplicatePayoutGuard duplicateGuard) {
+        this.registry = registry;
+        this.ledger = ledger;
+        this.duplicateGuard = duplicateGuard;
+    }
+
+    @Override
+    public String detailType() {
+        return PaymentInstructionRequest.EVENT_TYPE;
+    }
+
+    @Override
+    public Class<PaymentInstructionRequest> payloadType() {
+        return PaymentInstructionRequest.class;
+    }
+
+    @Override
+    public String orderingKey(PaymentInstructionRequest payout) {
+        return payout.accountId();
+    }
+
+    @Override
+    public void handle(String eventId, PaymentInstructionRequest payout) {
+        handleAsync(eventId, payout).join();
+    }
+
+    /**
+     * Fails with {@link DuplicatePayoutException} if the instruction was already
+     * paid under another eventId, and with {@link InsufficientFundsException}
+     * if the balance would go negative.
+     */
+    @Override
+    public CompletableFuture<Void> handleAsync(String eventId, PaymentInstructionRequest payout) {
+        registry.requireAccount(payout.userId(), payout.accountId(), payout.currency());
+        long amountMinor = MinorUnits.of(payout.currency(), payout.amount());
+        DuplicatePayoutGuard.Claim claim = duplicateGuard.claim(eventId, payout, amountMinor);
+        logger.debug("Posting payout for eventId={}, accountId={}, amountMinor={}",
+                eventId, payout.accountId(), amountMinor);
+        return ledger.debit(payout.accountId(), payout.currency(), amountMinor, eventId,
+                        duplicateGuard.companion(claim))
+                .whenComplete((v, ex) -> {
+                    // A retry reuses the claim; a payout that failed for good must not block its resubmission
+                    if (ex != null && !FailureClassifier.isTransient(ex)) {
+                        duplicateGuard.release(claim);
+                    }
+                })
+                .thenRun(() -> logger.debug("Payout processing completed for eventId={}", eventId));
+    }
+}
@@ -0,0 +1,40 @@
+package solanceworkflowplatform.worker.handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import services.model.RegisterRequest;
+import solanceworkflowplatform.worker.registry.CustomerRegistry;
+
+@Component
+public class RegisterHandler implements WorkflowHandler<RegisterRequest> {
+    private static final Logger logger = LoggerFactory.getLogger(RegisterHandler.class);
+
+    private final CustomerRegistry registry;
+
+    public RegisterHandler(CustomerRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public String detailType() {
+        return RegisterRequest.EVENT_TYPE;
+    }
+
+    @Override
+    public Class<RegisterRequest> payloadType() {
+        return RegisterRequest.class;
+    }
+
+    @Override
+    public String orderingKey(RegisterRequest registration) {
+        return registration.userId();
+    }
+
+    @Override
+    public void handle(String eventId, RegisterRequest registration) {
+        logger.debug("Executing registration logic for eventId={}", eventId);
+        registry.register(eventId, registration);
+        logger.debug("Registration processing completed for eventId={}", eventId);
+    }
+}
@@ -0,0 +1,17 @@
+package solanceworkflowplatform.worker.handler;
+
+/**
+ * Thrown by a {@link WorkflowHandler} for a failure that may succeed if the
+ * event is tried again later (a dependency is unavailable or throttling).
+ * The event is redelivered with backoff instead of being marked FAILED.
+ */
+public class TransientFailureException extends RuntimeException {
+
+    public TransientFailureException(String message) {
+        super(message);
+    }
+
+    public TransientFailureException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
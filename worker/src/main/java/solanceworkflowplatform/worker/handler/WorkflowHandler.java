@@ -0,0 +1,41 @@
+package solanceworkflowplatform.worker.handler;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Handles one workflow type. Implementations are Spring beans and are picked
+ * up by {@link WorkflowHandlerRegistry}; adding a type means adding a handler,
+ * nothing else.
+ *
+ * @param <T> payload record the event detail is bound to
+ */
+public interface WorkflowHandler<T> {
+
+    /** The {@code detailType} this handler consumes. */
+    String detailType();
+
+    /** Record the payload is decoded into, straight from the message bytes. */
+    Class<T> payloadType();
+
+    /**
+     * Key whose events must be applied in order (see the worker's lanes), or
+     * {@code null} if this type has no ordering constraint.
+     */
+    default String orderingKey(T payload) {
+        return null;
+    }
+
+    void handle(String eventId, T payload) throws Exception;
+
+    /**
+     * Called in the event's lane instead of {@link #handle}. The lane moves on
+     * to the next event once this returns, so a handler that queues its work
+     * (in lane order) and finishes it later lets events with the same key
+     * overlap. The event is done when the future completes. By default the
+     * work is done here, by {@link #handle}.
+     */
+    default CompletableFuture<Void> handleAsync(String eventId, T payload) throws Exception {
+        handle(eventId, payload);
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,78 @@
+package solanceworkflowplatform.worker.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * All {@link WorkflowHandler} beans, keyed by {@code detailType}, each with a
+ * reader bound to its payload record so the decoder can bind payloads
+ * without an intermediate tree.
+ */
+@Component
+public class WorkflowHandlerRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(WorkflowHandlerRegistry.class);
+
+    private record Registration(WorkflowHandler<?> handler, ObjectReader reader) { }
+
+    private final Map<String, Registration> byType = new HashMap<>();
+
+    public WorkflowHandlerRegistry(List<WorkflowHandler<?>> handlers, ObjectMapper mapper) {
+        for (WorkflowHandler<?> handler : handlers) {
+            Registration previous = byType.put(handler.detailType(),
+                    new Registration(handler, mapper.readerFor(handler.payloadType())));
+            if (previous != null) {
+                throw new IllegalStateException("Duplicate workflow handlers for type " + handler.detailType()
+                        + ": " + previous.handler().getClass().getName() + ", " + handler.getClass().getName());
+            }
+        }
+        logger.info("Registered workflow handlers: {}", byType.keySet());
+    }
+
+    /** Reader for the payload of {@code detailType}, or {@code null} if no handler consumes it. */
+    public ObjectReader readerFor(String detailType) {
+        Registration registration = byType.get(detailType);
+        return registration != null ? registration.reader() : null;
+    }
+
+    /** Ordering key of a decoded payload, or {@code null} if it has none. */
+    public String orderingKey(String detailType, Object payload) {
+        Registration registration = byType.get(detailType);
+        return registration != null && payload != null ? orderingKey(registration.handler(), payload) : null;
+    }
+
+    /**
+     * Runs the handler for {@code detailType} (see {@link WorkflowHandler#handleAsync}).
+     *
+     * @return completes with {@code false} if no handler is registered for the type
+     */
+    public CompletableFuture<Boolean> handle(String detailType, String eventId, Object payload) throws Exception {
+        Registration registration = byType.get(detailType);
+        if (registration == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return handle(registration.handler(), eventId, payload).thenApply(v -> true);
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    // Payloads are only ever bound through the handler's own reader, so the casts hold
+
+    @SuppressWarnings("unchecked")
+    private static <T> String orderingKey(WorkflowHandler<T> handler, Object payload) {
+        return handler.orderingKey((T) payload);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> CompletableFuture<Void> handle(WorkflowHandler<T> handler, String eventId, Object payload)
+            throws Exception {
+        return handler.handleAsync(eventId, (T) payload);
+    }
+}
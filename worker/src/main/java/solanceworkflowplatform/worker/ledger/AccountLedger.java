@@ -0,0 +1,592 @@
+package solanceworkflowplatform.worker.ledger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.Update;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import solanceworkflowplatform.worker.SerialDrain;
+import solanceworkflowplatform.worker.WorkerThreads;
+import solanceworkflowplatform.worker.handler.TransientFailureException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Account balances, in minor units, kept in the ledger table
+ * ({@code LEDGER_TABLE}) with an in-memory copy per account.
+ * <p>
+ * Accounts are hashed onto {@code workflow.worker.ledger.stripes} stripes,
+ * each a {@link SerialDrain} with a single writer, so postings to one
+ * account never race each other in this worker. The writer folds every
+ * posting it finds queued for an account (up to
+ * {@code workflow.worker.ledger.max-fold}) into one UpdateItem, conditional
+ * on the version it last saw: a busy account costs one write per drain rather
+ * than one per posting. Another worker writing the same account makes the
+ * condition fail; the current row comes back with the failure and the fold is
+ * redone on it, up to {@code workflow.worker.ledger.max-conflict-retries}
+ * times before the postings fail as transient.
+ * <p>
+ * Payouts that would take the balance below zero fail with
+ * {@link InsufficientFundsException} and leave the balance as it was; other
+ * postings in the same fold still apply.
+ * <p>
+ * Every posting writes a marker item ({@code posting#<eventId>}) in the same
+ * transaction as the balance update, on condition that it does not exist yet,
+ * so an event retried or redelivered after its posting was written is never
+ * applied twice, however long ago that was. The ids of the last
+ * {@code workflow.worker.ledger.recent-postings} events applied are also kept
+ * on the row, so a prompt retry is caught without cancelling a transaction.
+ * <p>
+ * A posting may carry a {@link Companion}: a conditional put that commits in
+ * one TransactWriteItems with the balance update, so the posting is applied
+ * only if the put's condition holds, at no extra round trip. A posting whose
+ * companion fails its condition is rejected and the fold is redone without it.
+ * <p>
+ * Queues are not bounded here: every posting belongs to a message the
+ * listener container has not yet deleted, so they are bounded by
+ * {@code workflow.worker.sqs.max-concurrent-messages}.
+ */
+@Component
+public class AccountLedger {
+    private static final Logger logger = LoggerFactory.getLogger(AccountLedger.class);
+
+    /** Accounts beyond {@code max-tagged-accounts} share one tag, so the series count stays bounded. */
+    private static final String OTHER_ACCOUNT = "other";
+
+    /** A transaction holds at most 100 items: the balance update and this many markers and companions. */
+    private static final int MAX_GUARDS = 99;
+
+    private static final String MARKER_PREFIX = "posting#";
+
+    private static final String CONDITIONAL_CHECK_FAILED = "ConditionalCheckFailed";
+
+    /**
+     * A conditional put committed atomically with the balance update of its
+     * posting. If its condition fails, the posting is rejected with what
+     * {@code onConflict} makes of the item that was in the way (ALL_OLD, may
+     * be empty).
+     */
+    public record Companion(Put put, Function<Map<String, AttributeValue>, RuntimeException> onConflict) { }
+
+    private record Posting(String accountId, String currency, long amountMinor, String eventId,
+                           Companion companion, CompletableFuture<Void> result) {
+
+        /** Items this posting adds to the transaction: its marker and its companion. */
+        int guards() {
+            return (eventId != null ? 1 : 0) + (companion != null ? 1 : 0);
+        }
+    }
+
+    /** One conditional put in a transaction: the posting's marker, or else its companion. */
+    private record Guard(Posting posting, boolean marker) { }
+
+    /** Durable state of an account as last read or written; version 0 means there is no row yet. */
+    private record Balance(String currency, long balanceMinor, long version, List<String> recentPostings) {
+        static final Balance NONE = new Balance(null, 0, 0, List.of());
+    }
+
+    /** What a fold does to each posting; nothing is completed until the write has succeeded. */
+    private static final class Fold {
+        final List<Posting> applied = new ArrayList<>();
+        final List<Posting> duplicates = new ArrayList<>();
+        final Map<Posting, RuntimeException> rejected = new LinkedHashMap<>();
+        boolean insufficientFunds;
+        Balance next;
+    }
+
+    private final DynamoDbClient dynamo;
+    private final String tableName;
+    private final int maxFold;
+    private final int maxConflictRetries;
+    private final int recentPostings;
+    private final int maxTaggedAccounts;
+    private final int cachedAccountsPerStripe;
+    private final Stripe[] stripes;
+    private final AsyncTaskExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final Set<String> taggedAccounts = ConcurrentHashMap.newKeySet();
+    private final Counter applied;
+    private final Counter duplicate;
+    private final Counter rejected;
+    private final DistributionSummary foldSize;
+    private final Timer writeLatency;
+
+    public AccountLedger(
+            DynamoDbClient dynamo,
+            WorkerThreads threads,
+            MeterRegistry meterRegistry,
+            @Value("${LEDGER_TABLE:solance-workflow-ledger}") String tableName,
+            @Value("${workflow.worker.ledger.stripes:16}") int stripeCount,
+            @Value("${workflow.worker.ledger.max-fold:100}") int maxFold,
+            @Value("${workflow.worker.ledger.max-conflict-retries:3}") int maxConflictRetries,
+            @Value("${workflow.worker.ledger.recent-postings:32}") int recentPostings,
+            @Value("${workflow.worker.ledger.cached-accounts:100000}") int cachedAccounts,
+            @Value("${workflow.worker.ledger.max-tagged-accounts:100}") int maxTaggedAccounts
+    ) {
+        this.dynamo = dynamo;
+        this.tableName = tableName;
+        this.maxFold = Math.max(1, maxFold);
+        this.maxConflictRetries = Math.max(0, maxConflictRetries);
+        this.recentPostings = Math.max(1, recentPostings);
+        this.maxTaggedAccounts = Math.max(0, maxTaggedAccounts);
+        this.meterRegistry = meterRegistry;
+        this.executor = threads.executor("workflow-ledger-");
+        this.stripes = new Stripe[Math.max(1, stripeCount)];
+        this.cachedAccountsPerStripe = Math.max(1, cachedAccounts / stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+
+        this.applied = outcomeCounter(meterRegistry, "applied");
+        this.duplicate = outcomeCounter(meterRegistry, "duplicate");
+        this.rejected = outcomeCounter(meterRegistry, "rejected");
+        this.foldSize = DistributionSummary.builder("workflow.ledger.fold.size")
+                .description("Postings folded into one conditional balance update")
+                .register(meterRegistry);
+        this.writeLatency = Timer.builder("workflow.ledger.write.latency")
+                .description("Time taken by one conditional balance update")
+                .register(meterRegistry);
+        Gauge.builder("workflow.ledger.pending", this, AccountLedger::pending)
+                .description("Postings queued and not yet written")
+                .register(meterRegistry);
+
+        logger.info("AccountLedger initialized: table={}, stripes={}, maxFold={}, maxConflictRetries={}, "
+                        + "recentPostings={}, cachedAccounts={}",
+                tableName, stripes.length, this.maxFold, this.maxConflictRetries, this.recentPostings, cachedAccounts);
+    }
+
+    /**
+     * Adds {@code amountMinor} to the account, opening it in {@code currency}
+     * if it has no balance yet. Must be called in the order the postings are
+     * meant to apply. Completes once the new balance is durable.
+     */
+    public CompletableFuture<Void> credit(String accountId, String currency, long amountMinor, String eventId) {
+        return post(accountId, currency, amountMinor, eventId, null);
+    }
+
+    /**
+     * Takes {@code amountMinor} from the account. Fails with
+     * {@link InsufficientFundsException} if the balance would go below zero.
+     */
+    public CompletableFuture<Void> debit(String accountId, String currency, long amountMinor, String eventId) {
+        return post(accountId, currency, -amountMinor, eventId, null);
+    }
+
+    /**
+     * As {@link #debit(String, String, long, String)}, applied only if
+     * {@code companion} (may be {@code null}) commits with it.
+     */
+    public CompletableFuture<Void> debit(String accountId, String currency, long amountMinor, String eventId,
+                                         Companion companion) {
+        return post(accountId, currency, -amountMinor, eventId, companion);
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private CompletableFuture<Void> post(String accountId, String currency, long amountMinor, String eventId,
+                                         Companion companion) {
+        if (accountId == null || accountId.isBlank()) {
+            throw new IllegalArgumentException("Account is required");
+        }
+        if (amountMinor == 0 || amountMinor == Long.MIN_VALUE) {
+            throw new IllegalArgumentException("Not a postable amount: " + amountMinor);
+        }
+        Posting posting = new Posting(accountId, currency, amountMinor, eventId, companion, new CompletableFuture<>());
+        stripes[SerialDrain.slotFor(accountId, stripes.length)].postings.add(posting);
+        return posting.result();
+    }
+
+    private double pending() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.postings.pending();
+        }
+        return total;
+    }
+
+    private final class Stripe {
+        private final SerialDrain<Posting> postings = new SerialDrain<>(executor, maxFold, this::apply);
+        // Only touched by the stripe's writer, one drain at a time
+        private final Map<String, Balance> balances = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Balance> eldest) {
+                return size() > cachedAccountsPerStripe;
+            }
+        };
+
+        /** Postings for one account keep their order; accounts are independent of each other. */
+        private void apply(List<Posting> batch) {
+            try {
+                applyByAccount(batch);
+            } catch (RuntimeException ex) {
+                logger.error("Ledger drain failed", ex);
+                fail(batch, ex);
+            }
+        }
+
+        private void applyByAccount(List<Posting> batch) {
+            Map<String, List<Posting>> byAccount = new LinkedHashMap<>();
+            for (Posting posting : batch) {
+                byAccount.computeIfAbsent(posting.accountId(), id -> new ArrayList<>()).add(posting);
+            }
+            byAccount.forEach((accountId, postings) -> {
+                int from = 0;
+                int guards = 0;
+                for (int i = 0; i < postings.size(); i++) {
+                    int needed = postings.get(i).guards();
+                    if (guards + needed > MAX_GUARDS) {
+                        write(accountId, postings.subList(from, i));
+                        from = i;
+                        guards = 0;
+                    }
+                    guards += needed;
+                }
+                write(accountId, postings.subList(from, postings.size()));
+            });
+        }
+
+        private void write(String accountId, List<Posting> batch) {
+            foldSize.record(batch.size());
+            if (batch.size() > 1) {
+                accountCounter("workflow.ledger.account.folded",
+                        "Postings that queued behind another posting to the same account", accountId)
+                        .increment(batch.size() - 1);
+            }
+
+            List<Posting> postings = new ArrayList<>(batch);
+            Balance current = balances.get(accountId);
+            boolean fresh = false;
+            int conflicts = 0;
+            while (true) {
+                Fold fold = null;
+                try {
+                    if (current == null) {
+                        current = load(accountId);
+                        fresh = true;
+                    }
+                    fold = fold(accountId, current, postings);
+                    if (fold.insufficientFunds && !fresh) {
+                        // The cached balance may predate a credit made by another worker
+                        current = null;
+                        continue;
+                    }
+                    if (!fold.applied.isEmpty()) {
+                        update(accountId, current, fold);
+                        balances.put(accountId, fold.next);
+                    }
+                    complete(fold);
+                    return;
+                } catch (ConditionalCheckFailedException ex) {
+                    if (!retryAfterConflict(accountId, postings, ++conflicts, ex)) {
+                        return;
+                    }
+                    current = ex.hasItem() ? balanceOf(ex.item()) : Balance.NONE;
+                    fresh = true;
+                } catch (TransactionCanceledException ex) {
+                    List<CancellationReason> reasons = ex.hasCancellationReasons()
+                            ? ex.cancellationReasons() : List.of();
+                    // Reasons come in item order: the balance update, then each posting's marker and companion.
+                    // A posting whose marker is there was applied before, whatever its companion says.
+                    List<Guard> guards = guards(fold.applied);
+                    boolean guardFailed = false;
+                    for (int i = 0; i < guards.size() && i + 1 < reasons.size(); i++) {
+                        CancellationReason reason = reasons.get(i + 1);
+                        Guard guard = guards.get(i);
+                        if (!CONDITIONAL_CHECK_FAILED.equals(reason.code()) || !postings.remove(guard.posting())) {
+                            continue;
+                        }
+                        guardFailed = true;
+                        Posting posting = guard.posting();
+                        if (guard.marker()) {
+                            skipDuplicate(posting);
+                        } else {
+                            rejected.increment();
+                            posting.result().completeExceptionally(posting.companion().onConflict()
+                                    .apply(reason.hasItem() ? reason.item() : Map.of()));
+                        }
+                    }
+                    CancellationReason balanceReason = reasons.isEmpty() ? null : reasons.get(0);
+                    if (balanceReason != null && CONDITIONAL_CHECK_FAILED.equals(balanceReason.code())) {
+                        if (!retryAfterConflict(accountId, postings, ++conflicts, ex)) {
+                            return;
+                        }
+                        current = balanceReason.hasItem() && !balanceReason.item().isEmpty()
+                                ? balanceOf(balanceReason.item()) : Balance.NONE;
+                        fresh = true;
+                    } else if (!guardFailed) {
+                        // Another transaction on the same items, or throttling: read again and retry
+                        if (!retryAfterConflict(accountId, postings, ++conflicts, ex)) {
+                            return;
+                        }
+                        current = null;
+                    }
+                    if (postings.isEmpty()) {
+                        return;
+                    }
+                } catch (RuntimeException ex) {
+                    balances.remove(accountId);
+                    logger.error("Failed to update balance for accountId={}", accountId, ex);
+                    fail(postings, ex);
+                    return;
+                }
+            }
+        }
+
+        /** Counts a lost write; once out of retries, fails the postings as transient and returns false. */
+        private boolean retryAfterConflict(String accountId, List<Posting> postings, int conflicts, Exception ex) {
+            accountCounter("workflow.ledger.account.conflicts",
+                    "Balance updates that lost their version check to another writer", accountId)
+                    .increment();
+            if (conflicts > maxConflictRetries) {
+                balances.remove(accountId);
+                fail(postings, new TransientFailureException(
+                        "Ledger contention on account " + accountId + " after " + conflicts + " attempts", ex));
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private Fold fold(String accountId, Balance current, List<Posting> postings) {
+        Fold fold = new Fold();
+        String currency = current.currency();
+        long balance = current.balanceMinor();
+        Set<String> seen = new HashSet<>(current.recentPostings());
+        List<String> recent = new ArrayList<>(current.recentPostings());
+        for (Posting posting : postings) {
+            if (posting.eventId() != null && seen.contains(posting.eventId())) {
+                fold.duplicates.add(posting);
+                continue;
+            }
+            if (currency != null && !currency.equals(posting.currency())) {
+                fold.rejected.put(posting, new IllegalArgumentException(
+                        "Account " + accountId + " is held in " + currency + ", not " + posting.currency()));
+                continue;
+            }
+            long next;
+            try {
+                next = Math.addExact(balance, posting.amountMinor());
+            } catch (ArithmeticException ex) {
+                fold.rejected.put(posting, new IllegalArgumentException("Balance overflow on account " + accountId));
+                continue;
+            }
+            if (next < 0) {
+                fold.insufficientFunds = true;
+                fold.rejected.put(posting, new InsufficientFundsException("Payout of " + -posting.amountMinor()
+                        + " minor units exceeds the balance of " + balance + " on account " + accountId));
+                continue;
+            }
+            balance = next;
+            currency = posting.currency();
+            fold.applied.add(posting);
+            if (posting.eventId() != null) {
+                seen.add(posting.eventId());
+                recent.add(posting.eventId());
+            }
+        }
+        if (recent.size() > recentPostings) {
+            recent = new ArrayList<>(recent.subList(recent.size() - recentPostings, recent.size()));
+        }
+        fold.next = new Balance(currency, balance, current.version() + 1, List.copyOf(recent));
+        return fold;
+    }
+
+    /**
+     * Writes the fold's balance if the row is still at {@code current}'s
+     * version, in one transaction with the markers and companions of the
+     * applied postings if there are any.
+     */
+    private void update(String accountId, Balance current, Fold fold) {
+        Balance next = fold.next;
+        Map<String, String> names = Map.of(
+                "#balance", "balanceMinor",
+                "#currency", "currency",
+                "#version", "version",
+                "#recent", "recentPostings",
+                "#updated", "updatedAt");
+        List<AttributeValue> recent = new ArrayList<>(next.recentPostings().size());
+        for (String eventId : next.recentPostings()) {
+            recent.add(AttributeValue.fromS(eventId));
+        }
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":balance", AttributeValue.fromN(Long.toString(next.balanceMinor())));
+        values.put(":currency", AttributeValue.fromS(next.currency()));
+        values.put(":version", AttributeValue.fromN(Long.toString(next.version())));
+        values.put(":recent", AttributeValue.fromL(recent));
+        values.put(":now", AttributeValue.fromN(Long.toString(System.currentTimeMillis())));
+        String condition;
+        if (current.version() == 0) {
+            condition = "attribute_not_exists(accountId)";
+        } else {
+            values.put(":expected", AttributeValue.fromN(Long.toString(current.version())));
+            condition = "#version = :expected";
+        }
+
+        Map<String, AttributeValue> key = Map.of("accountId", AttributeValue.fromS(accountId));
+        String expression = "SET #balance = :balance, #currency = :currency, #version = :version, "
+                + "#recent = :recent, #updated = :now";
+        List<Guard> guards = guards(fold.applied);
+
+        long started = System.nanoTime();
+        try {
+            if (guards.isEmpty()) {
+                dynamo.updateItem(UpdateItemRequest.builder()
+                        .tableName(tableName)
+                        .key(key)
+                        .updateExpression(expression)
+                        .conditionExpression(condition)
+                        .expressionAttributeNames(names)
+                        .expressionAttributeValues(values)
+                        .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                        .build());
+            } else {
+                List<TransactWriteItem> items = new ArrayList<>(guards.size() + 1);
+                items.add(TransactWriteItem.builder()
+                        .update(Update.builder()
+                                .tableName(tableName)
+                                .key(key)
+                                .updateExpression(expression)
+                                .conditionExpression(condition)
+                                .expressionAttributeNames(names)
+                                .expressionAttributeValues(values)
+                                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                                .build())
+                        .build());
+                long now = System.currentTimeMillis();
+                for (Guard guard : guards) {
+                    Put put = guard.marker() ? marker(accountId, guard.posting(), now) : guard.posting().companion().put();
+                    items.add(TransactWriteItem.builder().put(put).build());
+                }
+                dynamo.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(items).build());
+            }
+            logger.debug("Updated balance for accountId={} to version={}", accountId, next.version());
+        } finally {
+            writeLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Balance load(String accountId) {
+        Map<String, AttributeValue> item = dynamo.getItem(GetItemRequest.builder()
+                        .tableName(tableName)
+                        .key(Map.of("accountId", AttributeValue.fromS(accountId)))
+                        .consistentRead(true)
+                        .build())
+                .item();
+        return item == null || item.isEmpty() ? Balance.NONE : balanceOf(item);
+    }
+
+    private static Balance balanceOf(Map<String, AttributeValue> item) {
+        AttributeValue currency = item.get("currency");
+        AttributeValue balance = item.get("balanceMinor");
+        AttributeValue version = item.get("version");
+        AttributeValue recent = item.get("recentPostings");
+        List<String> eventIds = new ArrayList<>();
+        if (recent != null && recent.hasL()) {
+            for (AttributeValue eventId : recent.l()) {
+                eventIds.add(eventId.s());
+            }
+        }
+        return new Balance(
+                currency != null ? currency.s() : null,
+                balance != null ? Long.parseLong(balance.n()) : 0,
+                version != null ? Long.parseLong(version.n()) : 0,
+                List.copyOf(eventIds));
+    }
+
+    private void complete(Fold fold) {
+        for (Posting posting : fold.applied) {
+            applied.increment();
+            posting.result().complete(null);
+        }
+        fold.duplicates.forEach(this::skipDuplicate);
+        fold.rejected.forEach((posting, ex) -> {
+            rejected.increment();
+            posting.result().completeExceptionally(ex);
+        });
+    }
+
+    /** The conditional puts of {@code postings}, in transaction order. */
+    private void skipDuplicate(Posting posting) {
+        duplicate.increment();
+        logger.info("Skipping posting already applied: eventId={}, accountId={}",
+                posting.eventId(), posting.accountId());
+        posting.result().complete(null);
+    }
+
+    private static List<Guard> guards(List<Posting> postings) {
+        List<Guard> guards = new ArrayList<>();
+        for (Posting posting : postings) {
+            if (posting.eventId() != null) {
+                guards.add(new Guard(posting, true));
+            }
+            if (posting.companion() != null) {
+                guards.add(new Guard(posting, false));
+            }
+        }
+        return guards;
+    }
+
+    /** Records that {@code posting}'s event was applied; fails if it already was. */
+    private Put marker(String accountId, Posting posting, long now) {
+        return Put.builder()
+                .tableName(tableName)
+                .item(Map.of(
+                        "accountId", AttributeValue.fromS(MARKER_PREFIX + posting.eventId()),
+                        "postedTo", AttributeValue.fromS(accountId),
+                        "amountMinor", AttributeValue.fromN(Long.toString(posting.amountMinor())),
+                        "createdAt", AttributeValue.fromN(Long.toString(now))))
+                .conditionExpression("attribute_not_exists(accountId)")
+                .build();
+    }
+
+    private static void fail(List<Posting> postings, Throwable ex) {
+        for (Posting posting : postings) {
+            posting.result().completeExceptionally(ex);
+        }
+    }
+
+    /** Only accounts that actually contend get here, so the first {@code max-tagged-accounts} of them get a series. */
+    private Counter accountCounter(String name, String description, String accountId) {
+        String tag = taggedAccounts.contains(accountId)
+                || (taggedAccounts.size() < maxTaggedAccounts && taggedAccounts.add(accountId))
+                ? accountId : OTHER_ACCOUNT;
+        return Counter.builder(name)
+                .description(description)
+                .tag("account", tag)
+                .register(meterRegistry);
+    }
+
+    private static Counter outcomeCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("workflow.ledger.postings")
+                .description("Ledger postings by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
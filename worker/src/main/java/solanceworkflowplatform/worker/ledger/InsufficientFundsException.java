@@ -0,0 +1,12 @@
+package solanceworkflowplatform.worker.ledger;
+
+/**
+ * A payout would take the account balance below zero. Permanent: the event
+ * ends as FAILED rather than being retried.
+ */
+public class InsufficientFundsException extends RuntimeException {
+
+    public InsufficientFundsException(String message) {
+        super(message);
+    }
+}
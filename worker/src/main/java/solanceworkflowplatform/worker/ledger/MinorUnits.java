@@ -0,0 +1,41 @@
+package solanceworkflowplatform.worker.ledger;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * Converts request amounts into fixed-point minor units (cents for EUR, yen
+ * for JPY), the only form the ledger does arithmetic in. Amounts arrive as
+ * JSON numbers bound to {@code double}; {@link BigDecimal#valueOf(double)}
+ * takes the shortest decimal that round-trips, so {@code 100.10} becomes
+ * 10010 and not 10009.
+ */
+public final class MinorUnits {
+
+    private MinorUnits() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the currency is unknown, or the amount
+     *         is not positive or has more decimals than the currency allows
+     */
+    public static long of(String currency, double amount) {
+        if (currency == null) {
+            throw new IllegalArgumentException("Currency is required");
+        }
+        if (!Double.isFinite(amount) || amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
+        }
+        int digits = Math.max(0, Currency.getInstance(currency).getDefaultFractionDigits());
+        try {
+            return BigDecimal.valueOf(amount)
+                    .setScale(digits, RoundingMode.UNNECESSARY)
+                    .unscaledValue()
+                    .longValueExact();
+        } catch (ArithmeticException ex) {
+            throw new IllegalArgumentException("Amount " + amount + " is not a whole number of minor units of "
+                    + currency, ex);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package solanceworkflowplatform.worker.payout;
+
+/**
+ * The same payment instruction was already accepted under another eventId
+ * within the duplicate window. Permanent: the event ends as FAILED.
+ */
+public class DuplicatePayoutException extends RuntimeException {
+
+    public DuplicatePayoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,247 @@
+package solanceworkflowplatform.worker.payout;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import services.model.PaymentInstructionRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import solanceworkflowplatform.worker.WorkerThreads;
+import solanceworkflowplatform.worker.ledger.AccountLedger;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops the same payment instruction from being paid twice when it is
+ * resubmitted under a new eventId. Two payouts are the same if they share
+ * {@code (userId, paymentRef, beneficiaryIban, currency, amount)}, within
+ * {@code workflow.worker.payout-guard.window-hours}.
+ * <p>
+ * The authority is the claims table ({@code PAYOUT_CLAIMS_TABLE}): one item
+ * per instruction, keyed by a SHA-256 of the fields above and holding the
+ * eventId that claimed it. The claim is taken by a conditional put that
+ * commits in the same transaction as the debit ({@link #companion}), so it
+ * costs no extra round trip and the debit fails with
+ * {@link DuplicatePayoutException} if another event holds the claim.
+ * <p>
+ * A {@link RotatingBloomFilter} covering the same window sits in front of it.
+ * An instruction this worker has probably seen is a suspected duplicate: its
+ * claim is written on its own before the debit is queued, so a duplicate is
+ * turned away without cancelling the transaction of every other posting folded
+ * with it. With the default sizing about 0.1% of unique payouts pay for this
+ * extra write. Instructions without a {@code paymentRef} are not checked.
+ */
+@Component
+public class DuplicatePayoutGuard {
+    private static final Logger logger = LoggerFactory.getLogger(DuplicatePayoutGuard.class);
+
+    /**
+     * The claim for one payout. {@code held} if it was already written ahead of
+     * the debit; {@link #release} it if the payout did not happen.
+     */
+    public record Claim(String payoutKey, String eventId, String paymentRef, boolean held) {
+        static final Claim NONE = new Claim(null, null, null, false);
+    }
+
+    private final DynamoDbClient dynamo;
+    private final String tableName;
+    private final Duration window;
+    private final RotatingBloomFilter filter;
+    private final ScheduledExecutorService rotation;
+    private final AsyncTaskExecutor writers;
+    private final Counter unique;
+    private final Counter checked;
+    private final Counter duplicate;
+
+    public DuplicatePayoutGuard(
+            DynamoDbClient dynamo,
+            WorkerThreads threads,
+            MeterRegistry meterRegistry,
+            @Value("${PAYOUT_CLAIMS_TABLE:solance-workflow-payout-claims}") String tableName,
+            @Value("${workflow.worker.payout-guard.window-hours:24}") long windowHours,
+            @Value("${workflow.worker.payout-guard.generations:4}") int generations,
+            @Value("${workflow.worker.payout-guard.expected-payouts:1000000}") long expectedPayouts,
+            @Value("${workflow.worker.payout-guard.false-positive-rate:0.001}") double falsePositiveRate
+    ) {
+        this.dynamo = dynamo;
+        this.tableName = tableName;
+        this.window = Duration.ofHours(windowHours);
+        int generationCount = Math.max(2, generations);
+        this.filter = new RotatingBloomFilter(expectedPayouts / generationCount, falsePositiveRate, generationCount);
+        this.writers = threads.executor("payout-claims-");
+        long rotateMs = Math.max(1, window.toMillis() / generationCount);
+        this.rotation = Executors.newSingleThreadScheduledExecutor(threads.threadFactory("payout-guard-rotate-"));
+        this.rotation.scheduleAtFixedRate(filter::rotate, rotateMs, rotateMs, TimeUnit.MILLISECONDS);
+
+        this.unique = resultCounter(meterRegistry, "unique");
+        this.checked = resultCounter(meterRegistry, "checked");
+        this.duplicate = resultCounter(meterRegistry, "duplicate");
+
+        logger.info("DuplicatePayoutGuard initialized: table={}, windowHours={}, generations={}, "
+                        + "bitsPerGeneration={}, hashes={}",
+                tableName, windowHours, generationCount, filter.bitsPerGeneration(), filter.hashes());
+    }
+
+    /**
+     * Claims the instruction for {@code eventId}; a retry of the same event
+     * gets its own claim back. Only a suspected duplicate is written here; pass
+     * the claim's {@link #companion} to the debit to make it stick.
+     *
+     * @throws DuplicatePayoutException if a suspected duplicate turns out to be claimed by another event
+     */
+    public Claim claim(String eventId, PaymentInstructionRequest payout, long amountMinor) {
+        if (payout.paymentRef() == null || payout.paymentRef().isBlank()) {
+            return Claim.NONE;
+        }
+        byte[] digest = digest(payout, amountMinor);
+        String payoutKey = HexFormat.of().formatHex(digest);
+        ByteBuffer hashes = ByteBuffer.wrap(digest);
+        long h1 = hashes.getLong();
+        long h2 = hashes.getLong();
+
+        if (!filter.mightContain(h1, h2)) {
+            filter.add(h1, h2);
+            unique.increment();
+            return new Claim(payoutKey, eventId, payout.paymentRef(), false);
+        }
+
+        checked.increment();
+        String owner = write(payoutKey, eventId);
+        if (owner != null) {
+            throw duplicate(payout.paymentRef(), owner);
+        }
+        filter.add(h1, h2);
+        return new Claim(payoutKey, eventId, payout.paymentRef(), true);
+    }
+
+    /**
+     * The claim's conditional put, to commit with the debit; {@code null} if
+     * there is nothing to claim.
+     */
+    public AccountLedger.Companion companion(Claim claim) {
+        if (claim.payoutKey() == null) {
+            return null;
+        }
+        return new AccountLedger.Companion(claimPut(claim.payoutKey(), claim.eventId()),
+                old -> duplicate(claim.paymentRef(), ownerOf(old)));
+    }
+
+    /**
+     * Gives back a claim that was written ahead of the debit, so a payout that
+     * failed for good does not block its own resubmission. A claim that was
+     * only to be written with the debit went away with it. Best effort.
+     */
+    public void release(Claim claim) {
+        if (!claim.held()) {
+            return;
+        }
+        writers.execute(() -> {
+            try {
+                dynamo.deleteItem(DeleteItemRequest.builder()
+                        .tableName(tableName)
+                        .key(Map.of("payoutKey", AttributeValue.fromS(claim.payoutKey())))
+                        .conditionExpression("eventId = :eventId")
+                        .expressionAttributeValues(Map.of(":eventId", AttributeValue.fromS(claim.eventId())))
+                        .build());
+            } catch (ConditionalCheckFailedException ex) {
+                logger.debug("Payout claim no longer held: eventId={}", claim.eventId());
+            } catch (Exception ex) {
+                logger.warn("Failed to release payout claim: eventId={}, error={}", claim.eventId(), ex.toString());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rotation.shutdown();
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    /**
+     * Conditional put of the claim, ahead of the debit.
+     *
+     * @return {@code null} if {@code eventId} holds the claim, otherwise the eventId that does
+     */
+    private String write(String payoutKey, String eventId) {
+        Put put = claimPut(payoutKey, eventId);
+        try {
+            dynamo.putItem(PutItemRequest.builder()
+                    .tableName(put.tableName())
+                    .item(put.item())
+                    .conditionExpression(put.conditionExpression())
+                    .expressionAttributeValues(put.expressionAttributeValues())
+                    .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                    .build());
+            return null;
+        } catch (ConditionalCheckFailedException ex) {
+            return ownerOf(ex.hasItem() ? ex.item() : Map.of());
+        }
+    }
+
+    private Put claimPut(String payoutKey, String eventId) {
+        long now = System.currentTimeMillis();
+        return Put.builder()
+                .tableName(tableName)
+                .item(Map.of(
+                        "payoutKey", AttributeValue.fromS(payoutKey),
+                        "eventId", AttributeValue.fromS(eventId),
+                        "createdAt", AttributeValue.fromN(Long.toString(now)),
+                        "expiresAt", AttributeValue.fromN(Long.toString((now + window.toMillis()) / 1000))))
+                // TTL deletes lazily, so an expired claim may still be there
+                .conditionExpression("attribute_not_exists(payoutKey) OR eventId = :eventId OR expiresAt < :now")
+                .expressionAttributeValues(Map.of(
+                        ":eventId", AttributeValue.fromS(eventId),
+                        ":now", AttributeValue.fromN(Long.toString(now / 1000))))
+                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                .build();
+    }
+
+    private DuplicatePayoutException duplicate(String paymentRef, String owner) {
+        duplicate.increment();
+        return new DuplicatePayoutException("Payout " + paymentRef + " was already instructed by eventId=" + owner);
+    }
+
+    private static String ownerOf(Map<String, AttributeValue> item) {
+        return item.containsKey("eventId") ? item.get("eventId").s() : "unknown";
+    }
+
+    private static byte[] digest(PaymentInstructionRequest payout, long amountMinor) {
+        String iban = payout.beneficiaryIban() != null
+                ? payout.beneficiaryIban().replace(" ", "").toUpperCase(Locale.ROOT) : "";
+        String fingerprint = String.join("\u0000", payout.userId(), payout.paymentRef(), iban,
+                payout.currency(), Long.toString(amountMinor));
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(fingerprint.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private static Counter resultCounter(MeterRegistry registry, String result) {
+        return Counter.builder("workflow.payout.duplicate-check")
+                .description("Payout duplicate checks by result")
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,96 @@
+package solanceworkflowplatform.worker.payout;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Time-windowed Bloom filter: a ring of generations, each sized for
+ * {@code expectedPerGeneration} keys at false-positive rate {@code fpp}.
+ * Keys go into the newest generation and are looked up in all of them;
+ * {@link #rotate} drops the oldest and starts a new one. With {@code n}
+ * generations rotated every {@code window / n}, a key is remembered for
+ * between {@code window * (n - 1) / n} and {@code window}.
+ * <p>
+ * Bits are set with CAS, so adds and lookups need no lock. A lookup racing an
+ * add may miss it, which only makes a duplicate look new; callers that need
+ * certainty must check elsewhere.
+ */
+public class RotatingBloomFilter {
+
+    private final int bitsPerGeneration;
+    private final int hashes;
+    private volatile AtomicLongArray[] generations;
+
+    public RotatingBloomFilter(long expectedPerGeneration, double fpp, int generationCount) {
+        long n = Math.max(1, expectedPerGeneration);
+        double p = Math.min(Math.max(fpp, 1e-9), 0.5);
+        // m = -n ln p / (ln 2)^2 and k = m / n ln 2, the textbook optimum
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        this.bitsPerGeneration = (int) Math.min(Math.max(64, m), Integer.MAX_VALUE - 63);
+        this.hashes = Math.max(1, (int) Math.round((double) bitsPerGeneration / n * Math.log(2)));
+        this.generations = new AtomicLongArray[Math.max(1, generationCount)];
+        for (int i = 0; i < generations.length; i++) {
+            generations[i] = newGeneration();
+        }
+    }
+
+    /** {@code h1} and {@code h2} are two independent 64-bit hashes of the key. */
+    public boolean mightContain(long h1, long h2) {
+        for (AtomicLongArray generation : generations) {
+            if (contains(generation, h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void add(long h1, long h2) {
+        AtomicLongArray newest = generations[0];
+        for (int i = 0; i < hashes; i++) {
+            int bit = bit(h1, h2, i);
+            int word = bit >>> 6;
+            long mask = 1L << (bit & 63);
+            long current;
+            while (((current = newest.get(word)) & mask) == 0
+                    && !newest.compareAndSet(word, current, current | mask)) {
+                // lost a race for another bit in the same word; retry
+            }
+        }
+    }
+
+    /** Drops the oldest generation; only ever called from one thread. */
+    public void rotate() {
+        AtomicLongArray[] next = new AtomicLongArray[generations.length];
+        next[0] = newGeneration();
+        System.arraycopy(generations, 0, next, 1, generations.length - 1);
+        generations = next;
+    }
+
+    public int bitsPerGeneration() {
+        return bitsPerGeneration;
+    }
+
+    public int hashes() {
+        return hashes;
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private boolean contains(AtomicLongArray generation, long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            int bit = bit(h1, h2, i);
+            if ((generation.get(bit >>> 6) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Double hashing (Kirsch-Mitzenmacher): k indexes from two hashes. */
+    private int bit(long h1, long h2, int i) {
+        return (int) Long.remainderUnsigned(h1 + i * h2, bitsPerGeneration);
+    }
+
+    private AtomicLongArray newGeneration() {
+        return new AtomicLongArray((bitsPerGeneration + 63) >>> 6);
+    }
+}
@@ -0,0 +1,206 @@
+package solanceworkflowplatform.worker.registry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import services.model.OpenAccountRequest;
+import services.model.RegisterRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import solanceworkflowplatform.worker.handler.TransientFailureException;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Customers and their accounts, in the registry table ({@code REGISTRY_TABLE}),
+ * one item per customer ({@code customer#<userId>}) and per account
+ * ({@code account#<accountId>}). Written by the register and open-account
+ * handlers; every deposit and payout is checked against it.
+ * <p>
+ * Lookups go through a {@link NearCache} per kind: entries live for
+ * {@code workflow.worker.registry.cache.ttl-seconds}, and an id that is not
+ * registered is remembered for {@code negative-ttl-seconds}. What this worker
+ * writes goes straight into its cache. Items are never changed once written,
+ * so a cached entry can only be stale in saying something does not exist yet.
+ * <p>
+ * An unknown customer or account fails as transient: events for a user and
+ * for an account run in different lanes (and may land on different workers),
+ * so a deposit can be handled before the account it goes to has been opened.
+ * If it never is, the event ends on the dead-letter queue.
+ */
+@Component
+public class CustomerRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(CustomerRegistry.class);
+
+    public record Customer(String userId, String fullName, String email) { }
+
+    public record Account(String accountId, String userId, String accountType, String currency) { }
+
+    private final DynamoDbClient dynamo;
+    private final String tableName;
+    private final NearCache<String, Customer> customers;
+    private final NearCache<String, Account> accounts;
+
+    public CustomerRegistry(
+            DynamoDbClient dynamo,
+            MeterRegistry meterRegistry,
+            @Value("${REGISTRY_TABLE:solance-workflow-registry}") String tableName,
+            @Value("${workflow.worker.registry.cache.max-entries:100000}") int maxEntries,
+            @Value("${workflow.worker.registry.cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${workflow.worker.registry.cache.negative-ttl-seconds:5}") long negativeTtlSeconds
+    ) {
+        this.dynamo = dynamo;
+        this.tableName = tableName;
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        Duration negativeTtl = Duration.ofSeconds(negativeTtlSeconds);
+        this.customers = new NearCache<>("customers", maxEntries, ttl, negativeTtl, meterRegistry);
+        this.accounts = new NearCache<>("accounts", maxEntries, ttl, negativeTtl, meterRegistry);
+
+        logger.info("CustomerRegistry initialized: table={}, maxEntries={}, ttlSeconds={}, negativeTtlSeconds={}",
+                tableName, maxEntries, ttlSeconds, negativeTtlSeconds);
+    }
+
+    /**
+     * Creates the customer. Redelivery of the event that created it is a no-op;
+     * fails with {@link IllegalStateException} if the userId is already taken.
+     */
+    public Customer register(String eventId, RegisterRequest registration) {
+        String userId = required("userId", registration.userId());
+        Customer customer = new Customer(userId, registration.fullName(), registration.email());
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("userId", AttributeValue.fromS(userId));
+        putIfPresent(item, "fullName", registration.fullName());
+        putIfPresent(item, "email", registration.email());
+        create(customerKey(userId), eventId, item);
+        customers.put(userId, customer);
+        logger.info("Registered customer: userId={}, eventId={}", userId, eventId);
+        return customer;
+    }
+
+    /**
+     * Opens an account for a registered customer. The account id is the one in
+     * the request or, if there is none, the eventId of the request.
+     */
+    public Account openAccount(String eventId, OpenAccountRequest openAccount) {
+        String userId = required("userId", openAccount.userId());
+        String currency = required("currency", openAccount.currency());
+        requireCustomer(userId);
+        String accountId = openAccount.accountId() != null ? openAccount.accountId() : eventId;
+        Account account = new Account(accountId, userId, openAccount.accountType(), currency);
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("accountId", AttributeValue.fromS(accountId));
+        item.put("userId", AttributeValue.fromS(userId));
+        item.put("currency", AttributeValue.fromS(currency));
+        putIfPresent(item, "accountType", openAccount.accountType());
+        create(accountKey(accountId), eventId, item);
+        accounts.put(accountId, account);
+        logger.info("Opened account: accountId={}, userId={}, currency={}, eventId={}",
+                accountId, userId, currency, eventId);
+        return account;
+    }
+
+    public Customer requireCustomer(String userId) {
+        Customer customer = customers.get(required("userId", userId), this::loadCustomer);
+        if (customer == null) {
+            throw new TransientFailureException("Customer not registered (yet): userId=" + userId);
+        }
+        return customer;
+    }
+
+    /**
+     * Checks that {@code accountId} exists, belongs to {@code userId} and is
+     * held in {@code currency}. A mismatch is permanent
+     * ({@link IllegalArgumentException}).
+     */
+    public Account requireAccount(String userId, String accountId, String currency) {
+        Account account = accounts.get(required("accountId", accountId), this::loadAccount);
+        if (account == null) {
+            throw new TransientFailureException("Account not opened (yet): accountId=" + accountId);
+        }
+        if (!account.userId().equals(userId)) {
+            throw new IllegalArgumentException("Account " + accountId + " does not belong to user " + userId);
+        }
+        if (!account.currency().equals(currency)) {
+            throw new IllegalArgumentException("Account " + accountId + " is held in " + account.currency()
+                    + ", not " + currency);
+        }
+        return account;
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    /** Conditional put: succeeds once, and again only for the event that created the item. */
+    private void create(String registryKey, String eventId, Map<String, AttributeValue> item) {
+        item.put("registryKey", AttributeValue.fromS(registryKey));
+        item.put("eventId", AttributeValue.fromS(eventId));
+        item.put("createdAt", AttributeValue.fromN(Long.toString(System.currentTimeMillis())));
+        try {
+            dynamo.putItem(PutItemRequest.builder()
+                    .tableName(tableName)
+                    .item(item)
+                    .conditionExpression("attribute_not_exists(registryKey) OR eventId = :eventId")
+                    .expressionAttributeValues(Map.of(":eventId", AttributeValue.fromS(eventId)))
+                    .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                    .build());
+        } catch (ConditionalCheckFailedException ex) {
+            String owner = ex.hasItem() && ex.item().containsKey("eventId") ? ex.item().get("eventId").s() : null;
+            throw new IllegalStateException(registryKey + " already exists (created by eventId=" + owner + ")", ex);
+        }
+    }
+
+    private Customer loadCustomer(String userId) {
+        Map<String, AttributeValue> item = load(customerKey(userId));
+        return item == null ? null : new Customer(userId, string(item, "fullName"), string(item, "email"));
+    }
+
+    private Account loadAccount(String accountId) {
+        Map<String, AttributeValue> item = load(accountKey(accountId));
+        return item == null ? null
+                : new Account(accountId, string(item, "userId"), string(item, "accountType"), string(item, "currency"));
+    }
+
+    private Map<String, AttributeValue> load(String registryKey) {
+        Map<String, AttributeValue> item = dynamo.getItem(GetItemRequest.builder()
+                        .tableName(tableName)
+                        .key(Map.of("registryKey", AttributeValue.fromS(registryKey)))
+                        // A miss is cached, so it should not be one only because a write has not propagated
+                        .consistentRead(true)
+                        .build())
+                .item();
+        return item == null || item.isEmpty() ? null : item;
+    }
+
+    private static String customerKey(String userId) {
+        return "customer#" + userId;
+    }
+
+    private static String accountKey(String accountId) {
+        return "account#" + accountId;
+    }
+
+    private static String required(String name, String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+        return value;
+    }
+
+    private static void putIfPresent(Map<String, AttributeValue> item, String name, String value) {
+        if (value != null) {
+            item.put(name, AttributeValue.fromS(value));
+        }
+    }
+
+    private static String string(Map<String, AttributeValue> item, String name) {
+        AttributeValue value = item.get(name);
+        return value != null ? value.s() : null;
+    }
+}
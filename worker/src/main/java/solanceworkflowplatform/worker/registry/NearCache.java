@@ -0,0 +1,173 @@
+package solanceworkflowplatform.worker.registry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL-evicting cache in front of a slow lookup. Absent values
+ * ({@code null} from the loader) are cached too, for their own (normally much
+ * shorter) TTL, so a burst of events for something that does not exist yet
+ * costs one read, not one per event. Concurrent misses on the same key share
+ * one load. Least recently used entries go once {@code maxEntries} is reached.
+ * <p>
+ * Meters, tagged with {@code cache=<name>}: {@code workflow.registry.cache.requests}
+ * by result ({@code hit}, {@code negative-hit}, {@code miss}),
+ * {@code workflow.registry.cache.evictions} by cause, and gauges for size and
+ * hit ratio.
+ *
+ * @param <K> key
+ * @param <V> cached value; {@code null} means "known not to exist"
+ */
+public class NearCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAtNanos) { }
+
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final Map<K, Entry<V>> entries;
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter negativeHits;
+    private final Counter misses;
+    private final Counter expired;
+    private final Counter evicted;
+
+    public NearCache(String name, int maxEntries, Duration ttl, Duration negativeTtl, MeterRegistry meterRegistry) {
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        int maxCached = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > maxCached) {
+                    evicted.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.hits = requestCounter(meterRegistry, name, "hit");
+        this.negativeHits = requestCounter(meterRegistry, name, "negative-hit");
+        this.misses = requestCounter(meterRegistry, name, "miss");
+        this.expired = evictionCounter(meterRegistry, name, "expired");
+        this.evicted = evictionCounter(meterRegistry, name, "size");
+        Gauge.builder("workflow.registry.cache.size", this, NearCache::size)
+                .description("Entries held, including cached absences")
+                .tag("cache", name)
+                .register(meterRegistry);
+        Gauge.builder("workflow.registry.cache.hit.ratio", this, NearCache::hitRatio)
+                .description("Share of lookups answered without a load, since start")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The cached value for {@code key}, or the loader's result if there is no
+     * live entry. Loader failures are not cached and are rethrown unchecked.
+     */
+    public V get(K key, Function<K, V> loader) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.expiresAtNanos() < 0) {
+                    (entry.value() != null ? hits : negativeHits).increment();
+                    return entry.value();
+                }
+                entries.remove(key);
+                expired.increment();
+            }
+        }
+
+        misses.increment();
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loading.putIfAbsent(key, load);
+        if (inFlight != null) {
+            return join(inFlight);
+        }
+        try {
+            V value = loader.apply(key);
+            synchronized (entries) {
+                // Anything put while we were loading is at least as recent as what we read
+                if (!entries.containsKey(key)) {
+                    entries.put(key, entryFor(value));
+                }
+            }
+            load.complete(value);
+            return value;
+        } catch (RuntimeException ex) {
+            load.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    /** Records a value known to be current, e.g. one this worker just wrote; {@code null} records an absence. */
+    public void put(K key, V value) {
+        synchronized (entries) {
+            entries.put(key, entryFor(value));
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private Entry<V> entryFor(V value) {
+        return new Entry<>(value, System.nanoTime() + (value != null ? ttlNanos : negativeTtlNanos));
+    }
+
+    private double size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private double hitRatio() {
+        double answered = hits.count() + negativeHits.count();
+        double total = answered + misses.count();
+        return total == 0 ? 0 : answered / total;
+    }
+
+    private static <V> V join(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private static Counter requestCounter(MeterRegistry registry, String name, String result) {
+        return Counter.builder("workflow.registry.cache.requests")
+                .description("Near-cache lookups by result")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static Counter evictionCounter(MeterRegistry registry, String name, String cause) {
+        return Counter.builder("workflow.registry.cache.evictions")
+                .description("Near-cache entries dropped, by cause")
+                .tag("cache", name)
+                .tag("cause", cause)
+                .register(registry);
+    }
+}
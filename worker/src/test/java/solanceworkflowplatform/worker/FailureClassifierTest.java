@@ -0,0 +1,69 @@
+package solanceworkflowplatform.worker;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import solanceworkflowplatform.worker.handler.TransientFailureException;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FailureClassifierTest {
+
+    @Test
+    void transientFailures() {
+        assertTrue(FailureClassifier.isTransient(new TransientFailureException("account not opened yet")));
+        assertTrue(FailureClassifier.isTransient(SdkClientException.create("connection reset")));
+        assertTrue(FailureClassifier.isTransient(new TimeoutException()));
+        assertTrue(FailureClassifier.isTransient(new IOException("broken pipe")));
+        assertTrue(FailureClassifier.isTransient(aws(400, "ThrottlingException")));
+        assertTrue(FailureClassifier.isTransient(aws(400, "ProvisionedThroughputExceededException")));
+        assertTrue(FailureClassifier.isTransient(aws(500, "InternalServerError")));
+        assertTrue(FailureClassifier.isTransient(aws(503, "ServiceUnavailable")));
+    }
+
+    @Test
+    void permanentFailures() {
+        assertFalse(FailureClassifier.isTransient(new IllegalArgumentException("amount must be positive")));
+        assertFalse(FailureClassifier.isTransient(new JsonParseException((JsonParser) null, "malformed JSON")));
+        assertFalse(FailureClassifier.isTransient(aws(400, "ValidationException")));
+        assertFalse(FailureClassifier.isTransient(aws(400, "ConditionalCheckFailedException")));
+    }
+
+    @Test
+    void futureWrappersAreLookedThrough() {
+        Throwable cause = aws(500, "InternalServerError");
+        Throwable wrapped = new CompletionException(new ExecutionException(cause));
+
+        assertSame(cause, FailureClassifier.unwrap(wrapped));
+        assertTrue(FailureClassifier.isTransient(wrapped));
+        assertFalse(FailureClassifier.isTransient(new CompletionException(new IllegalStateException("bad"))));
+    }
+
+    @Test
+    void wrapperWithoutCauseIsKept() {
+        CompletionException empty = new CompletionException("no cause", null);
+
+        assertSame(empty, FailureClassifier.unwrap(empty));
+        assertFalse(FailureClassifier.isTransient(empty));
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private static DynamoDbException aws(int statusCode, String errorCode) {
+        return (DynamoDbException) DynamoDbException.builder()
+                .statusCode(statusCode)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode(errorCode).build())
+                .message(errorCode)
+                .build();
+    }
+}
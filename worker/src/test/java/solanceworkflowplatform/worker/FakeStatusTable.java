@@ -0,0 +1,98 @@
+package solanceworkflowplatform.worker;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory workflow table that understands the three conditional updates
+ * {@link StatusWriter} makes: claim, finish and release.
+ */
+class FakeStatusTable implements DynamoDbClient {
+
+    final Map<String, Map<String, AttributeValue>> items = new ConcurrentHashMap<>();
+
+    void seed(String eventId, String status) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("eventId", AttributeValue.fromS(eventId));
+        item.put("status", AttributeValue.fromS(status));
+        items.put(eventId, item);
+    }
+
+    /** An event claimed by another attempt {@code ageMs} ago. */
+    void seedProcessing(String eventId, String claimId, long ageMs) {
+        seed(eventId, StatusWriter.PROCESSING);
+        items.get(eventId).put("claimId", AttributeValue.fromS(claimId));
+        items.get(eventId).put("startedAt",
+                AttributeValue.fromN(Long.toString(System.currentTimeMillis() - ageMs)));
+    }
+
+    String status(String eventId) {
+        return items.get(eventId).get("status").s();
+    }
+
+    AttributeValue attribute(String eventId, String name) {
+        return items.get(eventId).get(name);
+    }
+
+    @Override
+    public String serviceName() {
+        return "dynamodb";
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public synchronized UpdateItemResponse updateItem(UpdateItemRequest request) {
+        String eventId = request.key().get("eventId").s();
+        Map<String, AttributeValue> item = items.get(eventId);
+        Map<String, AttributeValue> values = request.expressionAttributeValues();
+        String status = item != null ? item.get("status").s() : null;
+        String to = values.get(":to").s();
+
+        boolean allowed;
+        if (values.containsKey(":received")) {
+            allowed = StatusWriter.RECEIVED.equals(status)
+                    || (StatusWriter.PROCESSING.equals(status) && number(item, "startedAt") < number(values, ":stale"));
+        } else {
+            allowed = StatusWriter.PROCESSING.equals(status) && values.get(":claim").equals(item.get("claimId"));
+        }
+        if (!allowed) {
+            throw ConditionalCheckFailedException.builder()
+                    .item(item != null ? new HashMap<>(item) : null)
+                    .message("The conditional request failed")
+                    .build();
+        }
+
+        Map<String, AttributeValue> next = new HashMap<>(item);
+        next.put("status", values.get(":to"));
+        if (StatusWriter.PROCESSING.equals(to)) {
+            next.put("startedAt", values.get(":now"));
+            next.put("claimId", values.get(":claim"));
+            if (values.containsKey(":dequeued")) {
+                next.put("dequeuedAt", values.get(":dequeued"));
+            }
+        } else if (StatusWriter.RECEIVED.equals(to)) {
+            next.remove("startedAt");
+            next.remove("claimId");
+        } else {
+            next.put("completedAt", values.get(":now"));
+        }
+        items.put(eventId, next);
+        return UpdateItemResponse.builder().build();
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private static long number(Map<String, AttributeValue> item, String name) {
+        return Long.parseLong(item.get(name).n());
+    }
+}
@@ -0,0 +1,84 @@
+package solanceworkflowplatform.worker;
+
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResultEntry;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * SQS client that records the {@code ChangeMessageVisibilityBatch} calls
+ * {@link InFlightMessages} makes. Calls succeed right away (except for
+ * receipt handles marked as expired) unless the queue is {@linkplain #hold held},
+ * in which case they stay pending until {@link #release}d.
+ */
+class FakeVisibilityQueue implements SqsAsyncClient {
+
+    record Call(ChangeMessageVisibilityBatchRequest request, CompletableFuture<ChangeMessageVisibilityBatchResponse> result) {
+
+        List<String> receiptHandles() {
+            return request.entries().stream().map(ChangeMessageVisibilityBatchRequestEntry::receiptHandle).toList();
+        }
+    }
+
+    final List<Call> calls = new ArrayList<>();
+    final Set<String> expired = new HashSet<>();
+    private boolean held;
+
+    void hold() {
+        held = true;
+    }
+
+    /** Completes every pending call. */
+    synchronized void release() {
+        held = false;
+        calls.stream().filter(call -> !call.result().isDone()).forEach(this::answer);
+    }
+
+    @Override
+    public String serviceName() {
+        return "sqs";
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public synchronized CompletableFuture<ChangeMessageVisibilityBatchResponse> changeMessageVisibilityBatch(
+            ChangeMessageVisibilityBatchRequest request) {
+        Call call = new Call(request, new CompletableFuture<>());
+        calls.add(call);
+        if (!held) {
+            answer(call);
+        }
+        return call.result();
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private void answer(Call call) {
+        ChangeMessageVisibilityBatchResponse.Builder response = ChangeMessageVisibilityBatchResponse.builder();
+        List<ChangeMessageVisibilityBatchResultEntry> successful = new ArrayList<>();
+        List<BatchResultErrorEntry> failed = new ArrayList<>();
+        for (ChangeMessageVisibilityBatchRequestEntry entry : call.request().entries()) {
+            if (expired.contains(entry.receiptHandle())) {
+                failed.add(BatchResultErrorEntry.builder()
+                        .id(entry.id())
+                        .code("ReceiptHandleIsInvalid")
+                        .senderFault(true)
+                        .build());
+            } else {
+                successful.add(ChangeMessageVisibilityBatchResultEntry.builder().id(entry.id()).build());
+            }
+        }
+        call.result().complete(response.successful(successful).failed(failed).build());
+    }
+}
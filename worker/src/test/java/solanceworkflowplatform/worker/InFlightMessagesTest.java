@@ -0,0 +1,159 @@
+package solanceworkflowplatform.worker;
+
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InFlightMessagesTest {
+
+    private static final String QUEUE = "https://sqs.local/workflow";
+    private static final String OTHER_QUEUE = "https://sqs.local/other";
+
+    private final FakeVisibilityQueue sqs = new FakeVisibilityQueue();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // The scheduled heartbeat (every 100 s) never fires during a test; beats are driven by hand
+    private final InFlightMessages inFlight = inFlight(1_500_000);
+
+    @AfterEach
+    void shutdown() {
+        inFlight.shutdown();
+    }
+
+    @Test
+    void heartbeatExtendsMessagesAboutToReappear() {
+        Message<String> message = message(QUEUE, "rh-1", Instant.now());
+        inFlight.track(message);
+
+        inFlight.beat();
+
+        assertEquals(1, sqs.calls.size());
+        ChangeMessageVisibilityBatchRequestEntry entry = sqs.calls.get(0).request().entries().get(0);
+        assertEquals("rh-1", entry.receiptHandle());
+        assertEquals(500, entry.visibilityTimeout());
+        assertEquals(1.0, outcome("extended"), 0);
+    }
+
+    @Test
+    void extendedMessageIsLeftAloneUntilItIsDueAgain() {
+        inFlight.track(message(QUEUE, "rh-1", Instant.now()));
+        inFlight.beat();
+
+        inFlight.beat();
+
+        assertEquals(1, sqs.calls.size());
+    }
+
+    @Test
+    void extensionsAreBatchedTenPerCallAndPerQueue() {
+        IntStream.range(0, 23).forEach(i -> inFlight.track(message(QUEUE, "rh-" + i, Instant.now())));
+        IntStream.range(0, 2).forEach(i -> inFlight.track(message(OTHER_QUEUE, "other-" + i, Instant.now())));
+
+        inFlight.beat();
+
+        Map<String, List<Integer>> sizesByQueue = sqs.calls.stream().collect(Collectors.groupingBy(
+                call -> call.request().queueUrl(),
+                Collectors.mapping(call -> call.request().entries().size(), Collectors.toList())));
+        assertEquals(List.of(10, 10, 3), sizesByQueue.get(QUEUE));
+        assertEquals(List.of(2), sizesByQueue.get(OTHER_QUEUE));
+        assertEquals(25.0, outcome("extended"), 0);
+    }
+
+    @Test
+    void messagePastItsDeadlineIsNoLongerExtended() {
+        inFlight.track(message(QUEUE, "rh-old", Instant.now().minusSeconds(1_000)));
+        inFlight.track(message(QUEUE, "rh-new", Instant.now()));
+
+        inFlight.beat();
+        inFlight.beat();
+
+        assertEquals(1, sqs.calls.size());
+        assertEquals(List.of("rh-new"), sqs.calls.get(0).receiptHandles());
+        assertEquals(1.0, outcome("abandoned"), 0);
+    }
+
+    @Test
+    void rejectedReceiptHandleIsDropped() {
+        sqs.expired.add("rh-gone");
+        inFlight.track(message(QUEUE, "rh-gone", Instant.now()));
+        inFlight.track(message(QUEUE, "rh-1", Instant.now()));
+        inFlight.beat();
+        assertEquals(1.0, outcome("failed"), 0);
+
+        // rh-1 was extended, rh-gone is no longer tracked: nothing is due
+        inFlight.beat();
+
+        assertEquals(1, sqs.calls.size());
+    }
+
+    @Test
+    void untrackedMessageIsNotExtended() {
+        Message<String> done = message(QUEUE, "rh-done", Instant.now());
+        inFlight.track(done);
+        inFlight.track(message(QUEUE, "rh-1", Instant.now()));
+
+        assertTrue(inFlight.untrack(List.of(done)).isDone());
+        inFlight.beat();
+
+        assertEquals(List.of("rh-1"), sqs.calls.get(0).receiptHandles());
+    }
+
+    @Test
+    void untrackWaitsForAnExtensionAlreadyUnderWay() {
+        Message<String> message = message(QUEUE, "rh-1", Instant.now());
+        inFlight.track(message);
+        sqs.hold();
+        inFlight.beat();
+
+        CompletableFuture<Void> untracked = inFlight.untrack(List.of(message));
+
+        // A retry backoff set now could still be overwritten by the pending extension
+        assertFalse(untracked.isDone());
+        sqs.release();
+        assertTrue(untracked.isDone());
+        inFlight.beat();
+        assertEquals(1, sqs.calls.size());
+    }
+
+    @Test
+    void startupFailsIfAClaimCouldExpireWhileItsMessageIsStillExtended() {
+        // Deadline 900 s plus one 500 s extension: the claim must outlive 1,400 s
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> inFlight(1_400_000));
+
+        assertTrue(ex.getMessage().contains("claim-timeout-ms"), ex.getMessage());
+        inFlight(1_400_001).shutdown();
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private InFlightMessages inFlight(long claimTimeoutMs) {
+        return new InFlightMessages(sqs, new WorkerThreads(false), meterRegistry, 60, 100, 500, 900, claimTimeoutMs);
+    }
+
+    private static Message<String> message(String queueUrl, String receiptHandle, Instant receivedAt) {
+        return MessageBuilder.withPayload("{}")
+                .setHeader(SqsHeaders.SQS_QUEUE_URL_HEADER, queueUrl)
+                .setHeader(SqsHeaders.SQS_RECEIPT_HANDLE_HEADER, receiptHandle)
+                .setHeader(SqsHeaders.SQS_RECEIVED_AT_HEADER, receivedAt)
+                .build();
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("workflow.worker.visibility.extensions").tag("outcome", outcome).counter().count();
+    }
+}
@@ -0,0 +1,78 @@
+package solanceworkflowplatform.worker;
+
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RetryPolicy policy(int baseDelaySeconds, int maxDelaySeconds) {
+        DeadLetterQueue deadLetters = new DeadLetterQueue(null, meterRegistry, "workflow-dlq");
+        return new RetryPolicy(deadLetters, meterRegistry, 5, baseDelaySeconds, maxDelaySeconds);
+    }
+
+    @Test
+    void delayDoublesWithEachAttemptWithinEqualJitter() {
+        RetryPolicy policy = policy(5, 900);
+
+        assertDelaysWithin(policy, 1, 2, 5);
+        assertDelaysWithin(policy, 2, 5, 10);
+        assertDelaysWithin(policy, 3, 10, 20);
+        assertDelaysWithin(policy, 4, 20, 40);
+    }
+
+    @Test
+    void delayIsCappedAtTheMaximum() {
+        RetryPolicy policy = policy(5, 900);
+
+        assertDelaysWithin(policy, 9, 450, 900);
+        // The shift is bounded, so a huge receive count cannot overflow into a short delay
+        assertDelaysWithin(policy, 1_000, 450, 900);
+    }
+
+    @Test
+    void delayIsAtLeastOneSecond() {
+        RetryPolicy policy = policy(1, 900);
+
+        assertDelaysWithin(policy, 1, 1, 1);
+        assertDelaysWithin(policy, 0, 1, 1);
+    }
+
+    @Test
+    void maximumIsClampedToWhatSqsAccepts() {
+        RetryPolicy policy = policy(5, Integer.MAX_VALUE);
+
+        assertDelaysWithin(policy, 30, 6 * 60 * 60, 12 * 60 * 60);
+    }
+
+    @Test
+    void retryWithAttemptsLeftKeepsTheMessage() {
+        RetryPolicy policy = policy(5, 900);
+        Message<String> message = MessageBuilder.withPayload("{}")
+                .setHeader(SqsHeaders.MessageSystemAttributes.SQS_APPROXIMATE_RECEIVE_COUNT, "2")
+                .build();
+
+        boolean deadLettered = policy.retryLater(message, new IllegalStateException("boom")).join();
+
+        assertFalse(deadLettered);
+        assertEquals(1.0, meterRegistry.get("workflow.worker.retries").counter().count(), 0);
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private static void assertDelaysWithin(RetryPolicy policy, int attempt, int min, int max) {
+        for (int i = 0; i < 1000; i++) {
+            int delay = policy.delaySeconds(attempt);
+            assertTrue(delay >= min && delay <= max,
+                    "attempt " + attempt + ": delay " + delay + " not in [" + min + ", " + max + "]");
+        }
+    }
+}
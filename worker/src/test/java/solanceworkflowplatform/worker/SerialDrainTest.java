@@ -0,0 +1,75 @@
+package solanceworkflowplatform.worker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SerialDrainTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @Test
+    void drainsInOrderOneBatchAtATime() throws Exception {
+        List<Integer> drained = new ArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1000);
+        SerialDrain<Integer> drain = new SerialDrain<>(executor, 10, batch -> {
+            if (running.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            assertTrue(batch.size() <= 10);
+            drained.addAll(batch);
+            batch.forEach(i -> done.countDown());
+            running.decrementAndGet();
+        });
+
+        for (int i = 0; i < 1000; i++) {
+            drain.add(i);
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, (int) drained.get(i));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void failedBatchDoesNotStallTheQueue() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        SerialDrain<String> drain = new SerialDrain<>(executor, 1, batch -> {
+            if (batch.get(0).equals("bad")) {
+                throw new IllegalStateException("rejected");
+            }
+            done.countDown();
+        });
+
+        drain.add("bad");
+        drain.add("good");
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    void keysSpreadOverEverySlot() {
+        boolean[] used = new boolean[16];
+        for (int i = 0; i < 1000; i++) {
+            used[SerialDrain.slotFor("account-" + i, used.length)] = true;
+        }
+        for (boolean slot : used) {
+            assertTrue(slot);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package solanceworkflowplatform.worker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import solanceworkflowplatform.worker.handler.TransientFailureException;
+
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatusWriterTest {
+
+    private static final long CLAIM_TIMEOUT_MS = 60_000;
+
+    private final FakeStatusTable table = new FakeStatusTable();
+    private final StatusWriter writer = new StatusWriter(table, new WorkerThreads(false), new SimpleMeterRegistry(),
+            "workflow", 25, 1, CLAIM_TIMEOUT_MS);
+
+    @AfterEach
+    void shutdown() {
+        writer.shutdown();
+    }
+
+    @Test
+    void claimAndFinishStampTheirTimes() {
+        table.seed("e1", StatusWriter.RECEIVED);
+
+        String claimId = writer.claim("e1", 1234L).join();
+
+        assertNotNull(claimId);
+        assertEquals(StatusWriter.PROCESSING, table.status("e1"));
+        assertEquals("1234", table.attribute("e1", "dequeuedAt").n());
+        assertNotNull(table.attribute("e1", "startedAt"));
+
+        assertTrue(writer.finish("e1", claimId, StatusWriter.COMPLETED).join());
+
+        assertEquals(StatusWriter.COMPLETED, table.status("e1"));
+        assertNotNull(table.attribute("e1", "completedAt"));
+    }
+
+    @Test
+    void finishedEventsDoNotMoveBackwards() {
+        table.seed("e1", StatusWriter.RECEIVED);
+        String claimId = writer.claim("e1", null).join();
+        writer.finish("e1", claimId, StatusWriter.FAILED).join();
+
+        assertNull(writer.claim("e1", null).join());
+        assertFalse(writer.finish("e1", claimId, StatusWriter.COMPLETED).join());
+        assertFalse(writer.release("e1", claimId).join());
+        assertEquals(StatusWriter.FAILED, table.status("e1"));
+    }
+
+    @Test
+    void unclaimedEventCannotBeFinished() {
+        table.seed("e1", StatusWriter.RECEIVED);
+
+        assertFalse(writer.finish("e1", "no-claim", StatusWriter.COMPLETED).join());
+        assertEquals(StatusWriter.RECEIVED, table.status("e1"));
+    }
+
+    @Test
+    void liveClaimElsewhereIsTransient() {
+        table.seedProcessing("e1", "other", 1000);
+
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> writer.claim("e1", null).join());
+
+        assertInstanceOf(TransientFailureException.class, failure.getCause());
+        assertEquals("other", table.attribute("e1", "claimId").s());
+    }
+
+    @Test
+    void staleClaimIsTakenOverAndItsFinishRejected() {
+        table.seedProcessing("e1", "stale", CLAIM_TIMEOUT_MS + 1000);
+
+        String claimId = writer.claim("e1", null).join();
+
+        assertNotNull(claimId);
+        assertNotEquals("stale", claimId);
+        // The attempt that lost its claim cannot overwrite the outcome of the one that took it
+        assertFalse(writer.finish("e1", "stale", StatusWriter.FAILED).join());
+        assertFalse(writer.release("e1", "stale").join());
+        assertTrue(writer.finish("e1", claimId, StatusWriter.COMPLETED).join());
+        assertEquals(StatusWriter.COMPLETED, table.status("e1"));
+    }
+
+    @Test
+    void onlyTheMatchingClaimCanRelease() {
+        table.seed("e1", StatusWriter.RECEIVED);
+        String claimId = writer.claim("e1", null).join();
+
+        assertFalse(writer.release("e1", "someone-else").join());
+        assertEquals(StatusWriter.PROCESSING, table.status("e1"));
+
+        assertTrue(writer.release("e1", claimId).join());
+        assertEquals(StatusWriter.RECEIVED, table.status("e1"));
+        assertNull(table.attribute("e1", "claimId"));
+        assertNotNull(writer.claim("e1", null).join());
+    }
+
+    @Test
+    void nonTerminalFinishIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> writer.finish("e1", "claim", StatusWriter.PROCESSING));
+    }
+}
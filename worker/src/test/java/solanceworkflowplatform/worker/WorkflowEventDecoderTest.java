@@ -0,0 +1,104 @@
+package solanceworkflowplatform.worker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import services.model.DepositRequest;
+import solanceworkflowplatform.worker.handler.DepositHandler;
+import solanceworkflowplatform.worker.handler.WorkflowHandlerRegistry;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WorkflowEventDecoderTest {
+
+    private static final String DEPOSIT = "{\"userId\":\"u1\",\"accountId\":\"acc-1\",\"currency\":\"EUR\",\"amount\":12.5}";
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    // Only the handler's type and payload record are used while decoding
+    private final WorkflowEventDecoder decoder = new WorkflowEventDecoder(mapper,
+            new WorkflowHandlerRegistry(List.of(new DepositHandler(null, null)), mapper));
+
+    @Test
+    void decodesTheDirectShape() throws Exception {
+        InboundEvent evt = decoder.decode(
+                "{\"eventId\":\"e1\",\"detailType\":\"Deposit\",\"detail\":" + DEPOSIT + "}");
+
+        assertDeposit(evt);
+    }
+
+    @Test
+    void decodesTheEventBridgeShape() throws Exception {
+        InboundEvent evt = decoder.decode("{\"version\":\"0\",\"id\":\"eb-1\",\"detail-type\":\"Deposit\","
+                + "\"source\":\"solance.workflow\",\"time\":\"2025-05-12T09:14:03Z\",\"resources\":[],"
+                + "\"detail\":{\"eventId\":\"e1\",\"detailType\":\"Deposit\",\"detail\":" + DEPOSIT + "}}");
+
+        assertDeposit(evt);
+    }
+
+    @Test
+    void detailBeforeDetailTypeIsBuffered() throws Exception {
+        InboundEvent evt = decoder.decode(
+                "{\"detail\":" + DEPOSIT + ",\"eventId\":\"e1\",\"detailType\":\"Deposit\"}");
+
+        assertDeposit(evt);
+    }
+
+    @Test
+    void detailBeforeTheEventBridgeMarkersIsReadAsTheEnvelope() throws Exception {
+        InboundEvent evt = decoder.decode("{\"detail\":{\"eventId\":\"e1\",\"detailType\":\"Deposit\",\"detail\":"
+                + DEPOSIT + "},\"detail-type\":\"Deposit\",\"source\":\"solance.workflow\"}");
+
+        assertDeposit(evt);
+    }
+
+    @Test
+    void payloadBeforeItsTypeInsideTheEventBridgeShape() throws Exception {
+        InboundEvent evt = decoder.decode("{\"source\":\"solance.workflow\",\"detail-type\":\"Deposit\","
+                + "\"detail\":{\"detail\":" + DEPOSIT + ",\"detailType\":\"Deposit\",\"eventId\":\"e1\"}}");
+
+        assertDeposit(evt);
+    }
+
+    @Test
+    void unknownTypeDecodesWithoutAPayload() throws Exception {
+        InboundEvent evt = decoder.decode(
+                "{\"eventId\":\"e1\",\"detailType\":\"Mystery\",\"detail\":{\"nested\":{\"a\":[1,2]}}}");
+
+        assertEquals("e1", evt.eventId());
+        assertEquals("Mystery", evt.detailType());
+        assertNull(evt.payload());
+    }
+
+    @Test
+    void missingDetailIsRejected() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> decoder.decode("{\"eventId\":\"e1\",\"detailType\":\"Deposit\"}"));
+
+        assertEquals("Workflow event has no detail: eventId=e1", ex.getMessage());
+    }
+
+    @Test
+    void missingDetailInsideTheEventBridgeShapeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode("{\"detail-type\":\"Deposit\","
+                + "\"source\":\"solance.workflow\",\"detail\":{\"eventId\":\"e1\",\"detailType\":\"Deposit\"}}"));
+    }
+
+    @Test
+    void unsupportedShapesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode("[1,2,3]"));
+        assertThrows(IllegalArgumentException.class,
+                () -> decoder.decode("{\"detailType\":\"Deposit\",\"detail\":" + DEPOSIT + "}"));
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode("{\"detail\":" + DEPOSIT + "}"));
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private static void assertDeposit(InboundEvent evt) {
+        assertEquals("e1", evt.eventId());
+        assertEquals("Deposit", evt.detailType());
+        assertEquals(new DepositRequest("u1", "acc-1", "EUR", 12.5, null), evt.payload());
+    }
+}
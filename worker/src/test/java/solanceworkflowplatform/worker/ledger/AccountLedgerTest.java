@@ -0,0 +1,175 @@
+package solanceworkflowplatform.worker.ledger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import solanceworkflowplatform.worker.WorkerThreads;
+import solanceworkflowplatform.worker.handler.TransientFailureException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AccountLedgerTest {
+
+    private final FakeLedgerTable table = new FakeLedgerTable();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AccountLedger ledger = ledger();
+
+    private AccountLedger ledger() {
+        return new AccountLedger(table, new WorkerThreads(false), meterRegistry, "ledger",
+                4, 100, 3, 32, 1000, 100);
+    }
+
+    @Test
+    void creditAndDebitQueuedTogetherAreFoldedIntoOneWrite() throws Exception {
+        table.holdWrites();
+        CompletableFuture<Void> opening = ledger.credit("acc-1", "EUR", 1000, "c0");
+        table.awaitWriteStarted();
+        CompletableFuture<Void> credit = ledger.credit("acc-1", "EUR", 500, "c1");
+        CompletableFuture<Void> debit = ledger.debit("acc-1", "EUR", 300, "d1");
+        table.releaseWrites();
+
+        CompletableFuture.allOf(opening, credit, debit).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, table.writes.get());
+        assertEquals(1200, table.balance("acc-1"));
+        assertEquals(2, table.version("acc-1"));
+        assertEquals(1.0, meterRegistry.get("workflow.ledger.account.folded").counter().count(), 0);
+    }
+
+    @Test
+    void insufficientFundsRejectsOnlyThatPosting() throws Exception {
+        table.holdWrites();
+        CompletableFuture<Void> opening = ledger.credit("acc-1", "EUR", 100, "c0");
+        table.awaitWriteStarted();
+        CompletableFuture<Void> payout = ledger.debit("acc-1", "EUR", 500, "d1");
+        CompletableFuture<Void> credit = ledger.credit("acc-1", "EUR", 50, "c1");
+        table.releaseWrites();
+
+        opening.get(5, TimeUnit.SECONDS);
+        credit.get(5, TimeUnit.SECONDS);
+        CompletionException failure = assertThrows(CompletionException.class, payout::join);
+
+        assertInstanceOf(InsufficientFundsException.class, failure.getCause());
+        assertEquals(150, table.balance("acc-1"));
+        assertEquals(2, table.writes.get());
+    }
+
+    @Test
+    void replayIsDeduplicatedThroughRecentPostings() throws Exception {
+        table.seed("acc-1", "EUR", 100, 1, "c0");
+
+        ledger.credit("acc-1", "EUR", 100, "c0").get(5, TimeUnit.SECONDS);
+        ledger.credit("acc-1", "EUR", 100, "c1").get(5, TimeUnit.SECONDS);
+        ledger.credit("acc-1", "EUR", 100, "c1").get(5, TimeUnit.SECONDS);
+
+        assertEquals(200, table.balance("acc-1"));
+        assertEquals(1, table.writes.get());
+        assertEquals(2.0, meterRegistry.get("workflow.ledger.postings").tag("outcome", "duplicate")
+                .counter().count(), 0);
+    }
+
+    @Test
+    void replayLongAfterItsPostingIsRejectedByTheMarker() throws Exception {
+        ledger.credit("acc-1", "EUR", 100, "c0").get(5, TimeUnit.SECONDS);
+        for (int i = 1; i <= 40; i++) {
+            ledger.credit("acc-1", "EUR", 1, "c" + i).get(5, TimeUnit.SECONDS);
+        }
+
+        // c0 has long left recentPostings (32); only its marker remembers it
+        ledger.credit("acc-1", "EUR", 100, "c0").get(5, TimeUnit.SECONDS);
+        ledger.debit("acc-1", "EUR", 10, "d1").get(5, TimeUnit.SECONDS);
+
+        assertEquals(130, table.balance("acc-1"));
+        assertEquals(42, table.writes.get());
+        assertEquals("acc-1", table.markers.get("posting#c0").get("postedTo").s());
+        assertEquals(1.0, meterRegistry.get("workflow.ledger.postings").tag("outcome", "duplicate")
+                .counter().count(), 0);
+    }
+
+    @Test
+    void replayFromAnotherWorkerIsRejectedByTheMarker() throws Exception {
+        ledger.credit("acc-1", "EUR", 100, "c0").get(5, TimeUnit.SECONDS);
+        AccountLedger other = new AccountLedger(table, new WorkerThreads(false), new SimpleMeterRegistry(),
+                "ledger", 4, 100, 3, 32, 1000, 100);
+        table.seed("acc-1", "EUR", 100, 1);
+
+        other.credit("acc-1", "EUR", 100, "c0").get(5, TimeUnit.SECONDS);
+
+        assertEquals(100, table.balance("acc-1"));
+        assertEquals(1, table.writes.get());
+    }
+
+    @Test
+    void conflictIsRetriedOnTheReturnedRow() throws Exception {
+        table.seed("acc-1", "EUR", 100, 1);
+        ledger.credit("acc-1", "EUR", 100, "c1").get(5, TimeUnit.SECONDS);
+        table.interfere(2);
+
+        ledger.debit("acc-1", "EUR", 50, "d1").get(5, TimeUnit.SECONDS);
+
+        // Two credits of 1000 by the other writer, then ours on top
+        assertEquals(2150, table.balance("acc-1"));
+        assertEquals(5, table.version("acc-1"));
+        assertEquals(2.0, meterRegistry.get("workflow.ledger.account.conflicts").counter().count(), 0);
+    }
+
+    @Test
+    void conflictsBeyondTheRetryLimitFailAsTransient() throws Exception {
+        table.seed("acc-1", "EUR", 100, 1);
+        ledger.credit("acc-1", "EUR", 100, "c1").get(5, TimeUnit.SECONDS);
+        table.interfere(Integer.MAX_VALUE);
+
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> ledger.debit("acc-1", "EUR", 50, "d1").join());
+
+        assertInstanceOf(TransientFailureException.class, failure.getCause());
+        assertEquals(4.0, meterRegistry.get("workflow.ledger.account.conflicts").counter().count(), 0);
+    }
+
+    @Test
+    void postingIsRejectedWhenItsCompanionIsTaken() throws Exception {
+        table.seed("acc-1", "EUR", 1000, 1);
+        table.claims.put("taken", "other-event");
+
+        ledger.debit("acc-1", "EUR", 100, "d1", companion("free", "d1")).get(5, TimeUnit.SECONDS);
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> ledger.debit("acc-1", "EUR", 100, "d2", companion("taken", "d2")).join());
+
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertEquals("taken by other-event", failure.getCause().getMessage());
+        assertEquals(900, table.balance("acc-1"));
+        assertEquals("d1", table.claims.get("free"));
+    }
+
+    @Test
+    void currencyMismatchIsRejected() throws Exception {
+        table.seed("acc-1", "EUR", 100, 1);
+
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> ledger.credit("acc-1", "USD", 100, "c1").join());
+
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        assertEquals(100, table.balance("acc-1"));
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private static AccountLedger.Companion companion(String payoutKey, String eventId) {
+        return new AccountLedger.Companion(
+                Put.builder()
+                        .tableName("claims")
+                        .item(Map.of(
+                                "payoutKey", AttributeValue.fromS(payoutKey),
+                                "eventId", AttributeValue.fromS(eventId)))
+                        .build(),
+                old -> new IllegalStateException("taken by " + old.get("eventId").s()));
+    }
+}
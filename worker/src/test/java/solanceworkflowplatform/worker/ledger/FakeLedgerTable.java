@@ -0,0 +1,216 @@
+package solanceworkflowplatform.worker.ledger;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory ledger table that understands the two conditions the ledger
+ * writes and its posting markers, plus companion puts keyed by
+ * {@code payoutKey}. Writes can be held
+ * back ({@link #holdWrites}) so postings queue up behind one in progress, and
+ * another writer can be simulated ({@link #interfere}).
+ */
+class FakeLedgerTable implements DynamoDbClient {
+
+    final Map<String, Map<String, AttributeValue>> rows = new ConcurrentHashMap<>();
+    final Map<String, String> claims = new ConcurrentHashMap<>();
+    final Map<String, Map<String, AttributeValue>> markers = new ConcurrentHashMap<>();
+    final AtomicInteger writes = new AtomicInteger();
+    final AtomicInteger interferences = new AtomicInteger();
+    private final CountDownLatch writeStarted = new CountDownLatch(1);
+    private volatile CountDownLatch hold = new CountDownLatch(0);
+
+    void holdWrites() {
+        hold = new CountDownLatch(1);
+    }
+
+    void releaseWrites() {
+        hold.countDown();
+    }
+
+    void awaitWriteStarted() throws InterruptedException {
+        if (!writeStarted.await(5, TimeUnit.SECONDS)) {
+            throw new AssertionError("no write started");
+        }
+    }
+
+    /** The next {@code times} writes find the row moved on by another worker (see {@link #interfered}). */
+    void interfere(int times) {
+        interferences.set(times);
+    }
+
+    void seed(String accountId, String currency, long balanceMinor, long version, String... recentPostings) {
+        List<AttributeValue> recent = new ArrayList<>();
+        for (String eventId : recentPostings) {
+            recent.add(AttributeValue.fromS(eventId));
+        }
+        Map<String, AttributeValue> row = new HashMap<>();
+        row.put("accountId", AttributeValue.fromS(accountId));
+        row.put("currency", AttributeValue.fromS(currency));
+        row.put("balanceMinor", AttributeValue.fromN(Long.toString(balanceMinor)));
+        row.put("version", AttributeValue.fromN(Long.toString(version)));
+        row.put("recentPostings", AttributeValue.fromL(recent));
+        rows.put(accountId, row);
+    }
+
+    long balance(String accountId) {
+        return Long.parseLong(rows.get(accountId).get("balanceMinor").n());
+    }
+
+    long version(String accountId) {
+        return Long.parseLong(rows.get(accountId).get("version").n());
+    }
+
+    @Override
+    public String serviceName() {
+        return "dynamodb";
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest request) {
+        Map<String, AttributeValue> row = rows.get(request.key().get("accountId").s());
+        return GetItemResponse.builder().item(row != null ? new HashMap<>(row) : null).build();
+    }
+
+    @Override
+    public UpdateItemResponse updateItem(UpdateItemRequest request) {
+        awaitHold();
+        synchronized (this) {
+            String accountId = request.key().get("accountId").s();
+            Map<String, AttributeValue> current = interfered(accountId);
+            if (!versionMatches(current, request.conditionExpression(), request.expressionAttributeValues())) {
+                throw ConditionalCheckFailedException.builder()
+                        .item(current)
+                        .message("The conditional request failed")
+                        .build();
+            }
+            apply(accountId, request.expressionAttributeValues());
+            return UpdateItemResponse.builder().build();
+        }
+    }
+
+    @Override
+    public TransactWriteItemsResponse transactWriteItems(TransactWriteItemsRequest request) {
+        awaitHold();
+        synchronized (this) {
+            List<CancellationReason> reasons = new ArrayList<>();
+            boolean cancelled = false;
+            for (TransactWriteItem item : request.transactItems()) {
+                if (item.update() != null) {
+                    String accountId = item.update().key().get("accountId").s();
+                    Map<String, AttributeValue> current = interfered(accountId);
+                    boolean ok = versionMatches(current, item.update().conditionExpression(),
+                            item.update().expressionAttributeValues());
+                    reasons.add(ok ? none() : CancellationReason.builder()
+                            .code("ConditionalCheckFailed").item(current).build());
+                    cancelled |= !ok;
+                } else if (!item.put().item().containsKey("payoutKey")) {
+                    Map<String, AttributeValue> marker = markers.get(item.put().item().get("accountId").s());
+                    reasons.add(marker == null ? none() : CancellationReason.builder()
+                            .code("ConditionalCheckFailed")
+                            .build());
+                    cancelled |= marker != null;
+                } else {
+                    Put put = item.put();
+                    String owner = claims.get(put.item().get("payoutKey").s());
+                    boolean ok = owner == null || owner.equals(put.item().get("eventId").s());
+                    reasons.add(ok ? none() : CancellationReason.builder()
+                            .code("ConditionalCheckFailed")
+                            .item(Map.of("eventId", AttributeValue.fromS(owner)))
+                            .build());
+                    cancelled |= !ok;
+                }
+            }
+            if (cancelled) {
+                throw TransactionCanceledException.builder()
+                        .cancellationReasons(reasons)
+                        .message("Transaction cancelled")
+                        .build();
+            }
+            for (TransactWriteItem item : request.transactItems()) {
+                if (item.update() != null) {
+                    apply(item.update().key().get("accountId").s(), item.update().expressionAttributeValues());
+                } else if (!item.put().item().containsKey("payoutKey")) {
+                    markers.put(item.put().item().get("accountId").s(), item.put().item());
+                } else {
+                    claims.put(item.put().item().get("payoutKey").s(), item.put().item().get("eventId").s());
+                }
+            }
+            return TransactWriteItemsResponse.builder().build();
+        }
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private void awaitHold() {
+        writeStarted.countDown();
+        try {
+            if (!hold.await(5, TimeUnit.SECONDS)) {
+                throw new AssertionError("writes held for too long");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError(ex);
+        }
+    }
+
+    /** Another worker credits 1000 and bumps the version, if asked to. */
+    private Map<String, AttributeValue> interfered(String accountId) {
+        Map<String, AttributeValue> current = rows.get(accountId);
+        if (current != null && interferences.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            Map<String, AttributeValue> moved = new HashMap<>(current);
+            moved.put("balanceMinor", AttributeValue.fromN(Long.toString(balance(accountId) + 1000)));
+            moved.put("version", AttributeValue.fromN(Long.toString(version(accountId) + 1)));
+            rows.put(accountId, moved);
+            current = moved;
+        }
+        return current;
+    }
+
+    private static boolean versionMatches(Map<String, AttributeValue> current, String condition,
+                                          Map<String, AttributeValue> values) {
+        if (condition.startsWith("attribute_not_exists")) {
+            return current == null;
+        }
+        return current != null && current.get("version").n().equals(values.get(":expected").n());
+    }
+
+    private void apply(String accountId, Map<String, AttributeValue> values) {
+        Map<String, AttributeValue> row = new HashMap<>();
+        row.put("accountId", AttributeValue.fromS(accountId));
+        row.put("balanceMinor", values.get(":balance"));
+        row.put("currency", values.get(":currency"));
+        row.put("version", values.get(":version"));
+        row.put("recentPostings", values.get(":recent"));
+        rows.put(accountId, row);
+        writes.incrementAndGet();
+    }
+
+    private static CancellationReason none() {
+        return CancellationReason.builder().code("None").build();
+    }
+}
@@ -0,0 +1,44 @@
+package solanceworkflowplatform.worker.ledger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MinorUnitsTest {
+
+    @Test
+    void convertsToTheCurrencysMinorUnits() {
+        assertEquals(10010, MinorUnits.of("EUR", 100.10));
+        assertEquals(110, MinorUnits.of("EUR", 1.10));
+        assertEquals(500, MinorUnits.of("JPY", 500));
+        assertEquals(1234, MinorUnits.of("KWD", 1.234));
+    }
+
+    @Test
+    void binaryRepresentationDoesNotRoundDown() {
+        // 0.29 * 100 is 28.999999999999996 in double arithmetic
+        assertEquals(29, MinorUnits.of("EUR", 0.29));
+        assertEquals(1999, MinorUnits.of("USD", 19.99));
+    }
+
+    @Test
+    void rejectsFractionsOfAMinorUnit() {
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.of("EUR", 1.001));
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.of("JPY", 10.5));
+    }
+
+    @Test
+    void rejectsNonPositiveAndNonFiniteAmounts() {
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.of("EUR", 0));
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.of("EUR", -5));
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.of("EUR", Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.of("EUR", Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void rejectsMissingOrUnknownCurrency() {
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.of(null, 1));
+        assertThrows(IllegalArgumentException.class, () -> MinorUnits.of("XYZ", 1));
+    }
+}
@@ -0,0 +1,114 @@
+package solanceworkflowplatform.worker.payout;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RotatingBloomFilterTest {
+
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Test
+    void sizedForTheExpectedKeysAndRate() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(1000, 0.01, 4);
+
+        assertEquals(9586, filter.bitsPerGeneration());
+        assertEquals(7, filter.hashes());
+    }
+
+    @Test
+    void everyAddedKeyIsFound() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(10_000, 0.001, 4);
+        long[][] keys = keys(10_000);
+
+        for (long[] key : keys) {
+            filter.add(key[0], key[1]);
+        }
+
+        for (long[] key : keys) {
+            assertTrue(filter.mightContain(key[0], key[1]));
+        }
+    }
+
+    @Test
+    void keyIsRememberedUntilItsGenerationRotatesOut() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(1000, 0.001, 4);
+        long[] key = keys(1)[0];
+        filter.add(key[0], key[1]);
+
+        for (int rotation = 1; rotation < 4; rotation++) {
+            filter.rotate();
+            assertTrue(filter.mightContain(key[0], key[1]), "forgotten after " + rotation + " rotations");
+        }
+        filter.rotate();
+
+        assertFalse(filter.mightContain(key[0], key[1]));
+    }
+
+    @Test
+    void keysAddedAfterARotationGoIntoTheNewGeneration() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(1000, 0.001, 2);
+        long[] older = keys(1)[0];
+        long[] newer = keys(1)[0];
+        filter.add(older[0], older[1]);
+        filter.rotate();
+        filter.add(newer[0], newer[1]);
+
+        filter.rotate();
+
+        assertFalse(filter.mightContain(older[0], older[1]));
+        assertTrue(filter.mightContain(newer[0], newer[1]));
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheConfiguredRate() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(10_000, 0.01, 1);
+        for (long[] key : keys(10_000)) {
+            filter.add(key[0], key[1]);
+        }
+
+        assertTrue(falsePositiveRate(filter) < 0.015, "false positive rate above 1.5%");
+    }
+
+    @Test
+    void falsePositiveRateAcrossTheWindowGrowsWithTheGenerations() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(10_000, 0.01, 4);
+        for (int generation = 0; generation < 4; generation++) {
+            if (generation > 0) {
+                filter.rotate();
+            }
+            for (long[] key : keys(10_000)) {
+                filter.add(key[0], key[1]);
+            }
+        }
+
+        // Each full generation can answer yes on its own: about 1 - (1 - p)^4
+        double rate = falsePositiveRate(filter);
+        assertTrue(rate > 0.02 && rate < 0.06, "unexpected false positive rate " + rate);
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private long[][] keys(int count) {
+        long[][] keys = new long[count][];
+        for (int i = 0; i < count; i++) {
+            keys[i] = new long[] {random.nextLong(), random.nextLong()};
+        }
+        return keys;
+    }
+
+    private double falsePositiveRate(RotatingBloomFilter filter) {
+        int probes = 100_000;
+        int hits = 0;
+        for (long[] key : keys(probes)) {
+            if (filter.mightContain(key[0], key[1])) {
+                hits++;
+            }
+        }
+        return (double) hits / probes;
+    }
+}
@@ -0,0 +1,159 @@
+package solanceworkflowplatform.worker.registry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NearCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void valueIsLoadedOnceWhileItLives() {
+        NearCache<String, String> cache = cache(10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+        assertEquals("value-a", cache.get("a", loader()));
+        assertEquals("value-a", cache.get("a", loader()));
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, requests("hit"), 0);
+        assertEquals(1.0, requests("miss"), 0);
+    }
+
+    @Test
+    void expiredValueIsLoadedAgain() throws InterruptedException {
+        NearCache<String, String> cache = cache(10, Duration.ofMillis(50), Duration.ofMinutes(1));
+        cache.get("a", loader());
+
+        Thread.sleep(80);
+        cache.get("a", loader());
+
+        assertEquals(2, loads.get());
+        assertEquals(1.0, evictions("expired"), 0);
+    }
+
+    @Test
+    void absenceIsCachedForItsOwnShorterTtl() throws InterruptedException {
+        NearCache<String, String> cache = cache(10, Duration.ofMinutes(1), Duration.ofMillis(50));
+        Function<String, String> absent = key -> {
+            loads.incrementAndGet();
+            return null;
+        };
+
+        assertNull(cache.get("a", absent));
+        assertNull(cache.get("a", absent));
+        assertEquals(1, loads.get());
+        assertEquals(1.0, requests("negative-hit"), 0);
+
+        Thread.sleep(80);
+
+        assertEquals("value-a", cache.get("a", loader()));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        NearCache<String, String> cache = cache(10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<String, String> slow = key -> {
+            started.countDown();
+            await(release);
+            return loader().apply(key);
+        };
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> cache.get("a", slow));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> cache.get("a", slow));
+        // Both lookups have missed before the first load finishes
+        while (requests("miss") < 2) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertEquals("value-a", first.get(5, TimeUnit.SECONDS));
+        assertEquals("value-a", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        NearCache<String, String> cache = cache(10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+        assertThrows(IllegalStateException.class, () -> cache.get("a", key -> {
+            throw new IllegalStateException("registry unavailable");
+        }));
+
+        assertEquals("value-a", cache.get("a", loader()));
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesGoOnceFull() {
+        NearCache<String, String> cache = cache(2, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        cache.get("a", loader());
+        cache.get("b", loader());
+        cache.get("a", loader());
+
+        cache.get("c", loader());
+
+        assertEquals(1.0, evictions("size"), 0);
+        assertEquals(2.0, meterRegistry.get("workflow.registry.cache.size").gauge().value(), 0);
+        cache.get("a", loader());
+        assertEquals(3, loads.get());
+        cache.get("b", loader());
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void sizeStaysWithinCapacity() {
+        NearCache<String, String> cache = cache(100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+        for (int i = 0; i < 10_000; i++) {
+            cache.get("key-" + i, loader());
+        }
+
+        assertEquals(100.0, meterRegistry.get("workflow.registry.cache.size").gauge().value(), 0);
+        assertEquals(9_900.0, evictions("size"), 0);
+    }
+
+    /* ---------- helpers ---------------------------------------------------- */
+
+    private NearCache<String, String> cache(int maxEntries, Duration ttl, Duration negativeTtl) {
+        return new NearCache<>("test", maxEntries, ttl, negativeTtl, meterRegistry);
+    }
+
+    private Function<String, String> loader() {
+        return key -> {
+            loads.incrementAndGet();
+            return "value-" + key;
+        };
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("workflow.registry.cache.requests").tag("result", result).counter().count();
+    }
+
+    private double evictions(String cause) {
+        return meterRegistry.get("workflow.registry.cache.evictions").tag("cause", cause).counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}